@@ -33,7 +33,6 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -41,7 +40,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
@@ -68,7 +66,10 @@ import com.xilinx.rapidwright.edif.EDIFNetlist;
 import com.xilinx.rapidwright.edif.EDIFPort;
 import com.xilinx.rapidwright.edif.EDIFPortInst;
 import com.xilinx.rapidwright.edif.EDIFTools;
+import com.xilinx.rapidwright.router.DeviceNodeIndex;
 import com.xilinx.rapidwright.router.RouteNode;
+import com.xilinx.rapidwright.router.RouteNodeQueue;
+import com.xilinx.rapidwright.router.RouteSearchState;
 import com.xilinx.rapidwright.tests.CodePerfTracker;
 import com.xilinx.rapidwright.util.MessageGenerator;
 import com.xilinx.rapidwright.util.StringTools;
@@ -750,11 +751,10 @@ public class DesignTools {
 	 * @return A list of PIPs that configure a path from start to end nodes, or null if a path could not be found.
 	 */
 	public static List<PIP> findRoutingPath(RouteNode start, RouteNode end){
-		PriorityQueue<RouteNode> q = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		RouteNodeQueue q = new RouteNodeQueue();
 		q.add(start);
-		HashSet<Wire> visited = new HashSet<>();
-		visited.add(new Wire(start.getTile(), start.getWire()));
+		RouteSearchState visited = new RouteSearchState(DeviceNodeIndex.get(start.getTile().getDevice()));
+		visited.markVisited(start.getTile(), start.getWire());
 		
 		while(!q.isEmpty()){
 			RouteNode curr = q.remove();
@@ -763,9 +763,9 @@ public class DesignTools {
 			}
 			if(visited.size() > 100000) return null;
 			for(Wire w : curr.getConnections()){
-				if(visited.contains(w)) continue;
-				visited.add(w);
-				RouteNode rn = new RouteNode(w,curr);
+				if(visited.isVisited(w.getTile(), w.getWireIndex())) continue;
+				RouteNode rn = visited.getCandidate(w.getTile(), w.getWireIndex(), curr, curr.getLevel()+1);
+				visited.visit(rn);
 				rn.setCost((rn.getManhattanDistance(end) << 1) + rn.getLevel());
 				q.add(rn);
 			}
@@ -50,6 +50,8 @@ public class PBlock extends ArrayList<PBlockRange> {
 	
 	private Set<Tile> tileSet;
 	
+	private TileMask tileMask;
+	
 	private String name;
 	
 	private PBlock parent;
@@ -272,13 +274,31 @@ public class PBlock extends ArrayList<PBlockRange> {
 		return sites;
 	}
 	
+	/**
+	 * Gets a dense mask of all tiles covered by the pblock, for fast membership checks.
+	 * As with {@link #getAllTiles()}, the mask is cached and will be stale if the 
+	 * underlying PBlockRange objects are changed since last called.
+	 * @return The tile mask of the pblock, or null if the pblock has no ranges.
+	 */
+	public TileMask getTileMask(){
+		if(tileMask == null && size() > 0){
+			TileMask mask = new TileMask(getDevice());
+			for(PBlockRange range : this){
+				range.addToTileMask(mask);
+			}
+			tileMask = mask;
+		}
+		return tileMask;
+	}
+	
 	/**
 	 * Checks if this pblock includes the tile provided within its boundaries.
 	 * @param tile The tile in question.
 	 * @return True if the tile falls within the boundaries of the PBlock, false otherwise.
 	 */
 	public boolean containsTile(Tile tile){
-		return getAllTiles().contains(tile);
+		TileMask mask = getTileMask();
+		return mask != null && mask.contains(tile);
 	}
 	
 	
@@ -495,6 +515,10 @@ public class PBlock extends ArrayList<PBlockRange> {
 
 			}			
 		}
+		if(hasMoved){
+			tileSet = null;
+			tileMask = null;
+		}
 		return hasMoved;
 	}
 	
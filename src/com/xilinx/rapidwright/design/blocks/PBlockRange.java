@@ -197,7 +197,31 @@ public class PBlockRange {
 	 */
 	public Set<Tile> getAllTiles(){
 		Set<Tile> tiles = new HashSet<>();
+		int[] bounds = getTileBounds();
+		for(int col=bounds[1]; col <= bounds[3]; col++){
+			for(int row=bounds[0]; row <= bounds[2]; row++){
+				tiles.add(getDevice().getTile(row, col));
+			}
+		}
 		
+		return tiles;
+	}
+	
+	/**
+	 * Adds the rectangular region imposed by the pblock range to a tile mask.  Covers
+	 * the same tiles as {@link #getAllTiles()}.
+	 * @param mask The mask to update.
+	 */
+	public void addToTileMask(TileMask mask){
+		int[] bounds = getTileBounds();
+		mask.addRectangle(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+	
+	/**
+	 * Gets the tile rows and columns covered by the pblock range.
+	 * @return An array of {minRow, minColumn, maxRow, maxColumn}.
+	 */
+	private int[] getTileBounds(){
 		int colMin = getBottomLeftTile().getColumn();
 		int rowMin = getTopRightTile().getRow();
 		int colMax = getTopRightTile().getColumn();
@@ -210,14 +234,7 @@ public class PBlockRange {
 			t = getUpperRightSite().getIntTile();
 			if(t.getColumn() > colMax) colMax = t.getColumn();			
 		}
-					
-		for(int col=colMin; col <= colMax; col++){
-			for(int row=rowMin; row <= rowMax; row++){
-				tiles.add(getDevice().getTile(row, col));
-			}
-		}
-		
-		return tiles;
+		return new int[]{rowMin, colMin, rowMax, colMax};
 	}
 	
 	public boolean isClockRegionRange(){
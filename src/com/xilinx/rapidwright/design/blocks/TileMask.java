@@ -0,0 +1,118 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.design.blocks;
+
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * A dense set of tiles of a device, stored as one bit per tile row/column location.  
+ * Membership checks are a single array read and do not allocate or hash, making it
+ * suitable as the region test of routing searches (see {@link PBlock#getTileMask()}).
+ * A mask is not modified once it has been shared and can then be read by several 
+ * threads.
+ * 
+ * Created on: Mar 10, 2021
+ */
+public class TileMask {
+
+	private Device device;
+	
+	private int rows;
+	
+	private int columns;
+	
+	private long[] bits;
+	
+	private int count;
+	
+	/**
+	 * Creates an empty mask covering all tile locations of the device.
+	 * @param device The device of the tiles.
+	 */
+	public TileMask(Device device){
+		this.device = device;
+		rows = device.getRows();
+		columns = device.getColumns();
+		bits = new long[((rows * columns) >>> 6) + 1];
+	}
+	
+	/**
+	 * @return The device of the tiles in this mask.
+	 */
+	public Device getDevice(){
+		return device;
+	}
+	
+	/**
+	 * Adds all tiles in the rectangle of rows and columns provided (inclusive).  Locations
+	 * outside of the device are ignored.
+	 * @param rowMin The top row of the rectangle.
+	 * @param colMin The left column of the rectangle.
+	 * @param rowMax The bottom row of the rectangle.
+	 * @param colMax The right column of the rectangle.
+	 */
+	public void addRectangle(int rowMin, int colMin, int rowMax, int colMax){
+		rowMin = Math.max(0, rowMin);
+		colMin = Math.max(0, colMin);
+		rowMax = Math.min(rows-1, rowMax);
+		colMax = Math.min(columns-1, colMax);
+		for(int row=rowMin; row <= rowMax; row++){
+			for(int col=colMin; col <= colMax; col++){
+				int i = row * columns + col;
+				long mask = 1L << i;
+				if((bits[i >>> 6] & mask) != 0) continue;
+				bits[i >>> 6] |= mask;
+				count++;
+			}
+		}
+	}
+	
+	/**
+	 * Checks if the tile location is in the mask.
+	 * @param row The row of the tile.
+	 * @param column The column of the tile.
+	 * @return True if the location is part of the mask, false otherwise.
+	 */
+	public boolean contains(int row, int column){
+		if(row < 0 || row >= rows || column < 0 || column >= columns) return false;
+		int i = row * columns + column;
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+	
+	/**
+	 * Checks if the tile is in the mask.  Only the tile's location is checked, the tile
+	 * is assumed to belong to the same device as the mask.
+	 * @param tile The tile in question.
+	 * @return True if the tile is part of the mask, false otherwise (or if tile is null).
+	 */
+	public boolean contains(Tile tile){
+		if(tile == null) return false;
+		return contains(tile.getRow(), tile.getColumn());
+	}
+	
+	/**
+	 * @return The number of tile locations in the mask.
+	 */
+	public int size(){
+		return count;
+	}
+}
@@ -32,6 +32,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.xilinx.rapidwright.util.CompactMap;
+
 /**
  * A cell instance in a logical (EDIF) netlist.  Instantiates
  * an {@link EDIFCell}.
@@ -104,7 +106,7 @@ public class EDIFCellInst extends EDIFPropertyObject implements EDIFEnumerable {
      * @returns Any previous port ref of the same name, null if none already exists.
      */
     protected EDIFPortInst addPortInst(EDIFPortInst epr) {
-        if(portInsts == null) portInsts = new HashMap<>();
+        if(portInsts == null) portInsts = EDIFTools.USE_COMPACT_MAPS ? new CompactMap<>() : new HashMap<>();
         if(!epr.getCellInst().equals(this)) 
             throw new RuntimeException("ERROR: Incorrect EDIFPortInst '"+
                 epr.getFullName()+"' being added to EDIFCellInst " + toString());
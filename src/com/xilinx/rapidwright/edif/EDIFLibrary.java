@@ -261,13 +261,29 @@ public class EDIFLibrary extends EDIFName {
 	
 
 	public void exportEDIF(Writer bw) throws IOException{
+		exportEDIFHeader(bw);
+		for(EDIFCell cell : getValidCellExportOrder()){
+			cell.exportEDIF(bw);
+		}
+		exportEDIFFooter(bw);
+	}
+	
+	/**
+	 * Writes the start of the library (everything before its cells).
+	 * @param bw The writer to write to.
+	 */
+	void exportEDIFHeader(Writer bw) throws IOException{
 		bw.write("  (Library ");
 		exportEDIFName(bw);
 		bw.write("\n    (edifLevel 0)\n");
 		bw.write("    (technology (numberDefinition ))\n");
-		for(EDIFCell cell : getValidCellExportOrder()){
-			cell.exportEDIF(bw);
-		}
+	}
+	
+	/**
+	 * Writes the end of the library (everything after its cells).
+	 * @param bw The writer to write to.
+	 */
+	void exportEDIFFooter(Writer bw) throws IOException{
 		bw.write("  )\n");
 	}
 }
@@ -30,6 +30,8 @@ import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.xilinx.rapidwright.util.CompactMap;
+
 /**
  * This class serves as the universal common ancestor for most all EDIF netlist
  * objects.  Primarily it serves to manage the regular name and legal EDIF 
@@ -163,6 +165,7 @@ public class EDIFName implements Comparable<EDIFName> {
 	}
 	
 	public <K, V> Map<K, V> getNewMap(){
+		if(EDIFTools.USE_COMPACT_MAPS) return new CompactMap<K,V>();
 		return new LinkedHashMap<K,V>();
 	}
 
@@ -29,6 +29,7 @@ import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -540,7 +541,22 @@ public class EDIFNetlist extends EDIFName {
 		return new ArrayList<>(toExport);
 	}
 	
+	/**
+	 * Writes the netlist to an EDIF file.  If {@link ParallelEDIFWriter#EDIF_EXPORT_THREADS}
+	 * is greater than one or the file name ends with '.gz', the netlist is written by a 
+	 * {@link ParallelEDIFWriter} (gzip compressed for '.gz' file names).
+	 * @param fileName Name of the EDIF file to write.
+	 */
 	public void exportEDIF(String fileName){
+		if(ParallelEDIFWriter.EDIF_EXPORT_THREADS > 1 || fileName.endsWith(ParallelEDIFWriter.GZIP_SUFFIX)){
+			try {
+				new ParallelEDIFWriter(this, ParallelEDIFWriter.EDIF_EXPORT_THREADS).exportEDIF(fileName);
+			} catch (IOException e) {
+				MessageGenerator.briefError("ERROR: Failed to export EDIF file " + fileName);
+				e.printStackTrace();
+			}
+			return;
+		}
 		BufferedWriter bw = null;
 		
 		//for(EDIFLibrary lib : getLibraries()){
@@ -549,48 +565,13 @@ public class EDIFNetlist extends EDIFName {
 		
 		try {
 			bw = new BufferedWriter(new FileWriter(fileName));
-			bw.write("(edif ");
-			exportEDIFName(bw);
-			bw.write("\n");
-			bw.write("  (edifversion 2 0 0)\n");
-			bw.write("  (edifLevel 0)\n");
-			bw.write("  (keywordmap (keywordlevel 0))\n");
-			bw.write("(status\n");
-			bw.write(" (written\n");
-			bw.write("  (timeStamp ");
-			SimpleDateFormat formatter = new SimpleDateFormat("yyyy MM dd HH mm ss");
-			bw.write(formatter.format(new java.util.Date()));
-			bw.write(")\n");
-			bw.write("  (program \""+Device.FRAMEWORK_NAME+"\" (version \"" + Device.RAPIDWRIGHT_VERSION + "\"))\n");
-			for(String comment : getComments()){
-				bw.write("  (comment \"");
-				bw.write(comment);
-				bw.write("\")\n");
-			}
-			for(Entry<String,EDIFPropertyValue> e : metax.entrySet()){
-				bw.write("(metax ");
-				bw.write(e.getKey());
-				bw.write(" ");
-				e.getValue().writeEDIFString(bw);
-				bw.write(")\n");
-			}
-			bw.write(" )\n");
-			bw.write(")\n");
-			
+			exportEDIFHeader(bw);
 			getHDIPrimitivesLibrary().exportEDIF(bw);
 			for(EDIFLibrary lib : getLibrariesMap().values()){
 				if(lib.getName().equals(EDIFTools.EDIF_LIBRARY_HDI_PRIMITIVES_NAME)) continue;
 				lib.exportEDIF(bw);
 			}
-			bw.write("(comment \"Reference To The Cell Of Highest Level\")\n\n");
-			bw.write("  (design ");
-			EDIFDesign design = getDesign(); 
-			design.exportEDIFName(bw);
-			bw.write("\n    (cellref " + design.getTopCell().getLegalEDIFName() + " (libraryref ");
-			bw.write(design.getTopCell().getLibrary().getLegalEDIFName() +"))\n");
-			design.exportEDIFProperties(bw, "    ");
-			bw.write("  )\n");
-			bw.write(")\n");
+			exportEDIFDesign(bw);
 			bw.flush();
 			bw.close();
 		} catch (IOException e) {
@@ -599,6 +580,56 @@ public class EDIFNetlist extends EDIFName {
 		}
 	}
 	
+	/**
+	 * Writes the start of the EDIF file: the netlist name, version and status.
+	 * @param bw The writer to write to.
+	 */
+	void exportEDIFHeader(Writer bw) throws IOException{
+		bw.write("(edif ");
+		exportEDIFName(bw);
+		bw.write("\n");
+		bw.write("  (edifversion 2 0 0)\n");
+		bw.write("  (edifLevel 0)\n");
+		bw.write("  (keywordmap (keywordlevel 0))\n");
+		bw.write("(status\n");
+		bw.write(" (written\n");
+		bw.write("  (timeStamp ");
+		SimpleDateFormat formatter = new SimpleDateFormat("yyyy MM dd HH mm ss");
+		bw.write(formatter.format(new java.util.Date()));
+		bw.write(")\n");
+		bw.write("  (program \""+Device.FRAMEWORK_NAME+"\" (version \"" + Device.RAPIDWRIGHT_VERSION + "\"))\n");
+		for(String comment : getComments()){
+			bw.write("  (comment \"");
+			bw.write(comment);
+			bw.write("\")\n");
+		}
+		for(Entry<String,EDIFPropertyValue> e : metax.entrySet()){
+			bw.write("(metax ");
+			bw.write(e.getKey());
+			bw.write(" ");
+			e.getValue().writeEDIFString(bw);
+			bw.write(")\n");
+		}
+		bw.write(" )\n");
+		bw.write(")\n");
+	}
+	
+	/**
+	 * Writes the end of the EDIF file: the design (top cell reference) and its properties.
+	 * @param bw The writer to write to.
+	 */
+	void exportEDIFDesign(Writer bw) throws IOException{
+		bw.write("(comment \"Reference To The Cell Of Highest Level\")\n\n");
+		bw.write("  (design ");
+		EDIFDesign design = getDesign(); 
+		design.exportEDIFName(bw);
+		bw.write("\n    (cellref " + design.getTopCell().getLegalEDIFName() + " (libraryref ");
+		bw.write(design.getTopCell().getLibrary().getLegalEDIFName() +"))\n");
+		design.exportEDIFProperties(bw, "    ");
+		bw.write("  )\n");
+		bw.write(")\n");
+	}
+	
 	/**
 	 * Based on a hierarchical string, this method will get the instance corresponding
 	 * to the name provided.
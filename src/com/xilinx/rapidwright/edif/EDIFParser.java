@@ -25,18 +25,13 @@
  */
 package com.xilinx.rapidwright.edif;
 
-import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.WeakHashMap;
 
 import com.xilinx.rapidwright.tests.CodePerfTracker;
@@ -53,19 +48,9 @@ public class EDIFParser {
 
 	private String fileName;
 	
-	private InputStream in;
-	
-	private int lineNumber;
-	
-	private char[] buffer = new char[8192*16*18];
-	
-	private int ch = -1;
-	
-	private int idx = 0;
+	private EDIFTokenizer tokenizer;
 	
-	private boolean inQuote = false;
-	
-	private Queue<String> nextTokens;
+	private String nextToken;
 	
 	private Map<String,String> stringPool;
 	
@@ -122,19 +107,26 @@ public class EDIFParser {
 	
 	public EDIFParser(String fileName) throws FileNotFoundException{
 		this.fileName = fileName;
-		in = new BufferedInputStream(new FileInputStream(this.fileName));
-		init();
+		init(new FileInputStream(this.fileName));
 	}
 	
 	public EDIFParser(InputStream in){
-		this.in = in;
-		init();
+		init(in);
+	}
+	
+	/**
+	 * Creates a parser for a stream read from (part of) a file.
+	 * @param fileName Name of the file, used in error messages.
+	 * @param in The stream to parse.
+	 */
+	EDIFParser(String fileName, InputStream in){
+		this.fileName = fileName;
+		init(in);
 	}
 	
-	private void init(){
-		lineNumber = 1;
-		nextTokens = new LinkedList<>();
+	private void init(InputStream in){
 		stringPool = new WeakHashMap<>();
+		tokenizer = new EDIFTokenizer(fileName, in, stringPool);
 		edifInstCellMap = new HashMap<String, Map<String,EDIFCell>>();
 		portLookup = new HashMap<>();
 	}
@@ -147,7 +139,7 @@ public class EDIFParser {
 	 * @return The existing EDIFCell or a newly created one that will be populated  
 	 * when the cell is parsed.
 	 */
-	private EDIFCell getRefEDIFCell(String edifCellName, String libraryName){
+	EDIFCell getRefEDIFCell(String edifCellName, String libraryName){
 		Map<String,EDIFCell> lib = edifInstCellMap.get(libraryName);
 		if(lib == null){
 			lib = new HashMap<>();
@@ -179,123 +171,60 @@ public class EDIFParser {
 	}
 	
 	private String peekNextToken(){
-		if(nextTokens.isEmpty()){
-			String next = getNextToken();
-			if(nextTokens.isEmpty()){
-				nextTokens.add(next);
-			}else {
-				String tmp = nextTokens.poll();
-				nextTokens.add(next);
-				nextTokens.add(tmp);
-			}
+		if(nextToken == null){
+			nextToken = tokenizer.getNextToken();
 		}
-		return nextTokens.peek();
+		return nextToken;
 	}
 	
 	private String debugToken(String token){
-		if(debug) System.out.println("<" + token + "> : " + lineNumber);
+		if(debug) System.out.println("<" + token + "> : " + tokenizer.getLineNumber());
 		return token;
 	}
 	
-	private String getUniqueString(char[] buffer, int offset, int count){
-		String tmp = new String(buffer, offset, count);
-		String curr = stringPool.get(tmp);
-		if(curr == null) {
-			stringPool.put(tmp, tmp);
-			return tmp;
-		}
-		return curr;
-	}
-	
 	public Map<String,String> getStringPool(){
 		return stringPool;
 	}
 	
+	/**
+	 * Replaces the string pool used to de-duplicate tokens.  Parsers running 
+	 * concurrently can share a pool if it is thread safe.
+	 * @param stringPool The string pool to use.
+	 */
+	void setStringPool(Map<String,String> stringPool){
+		this.stringPool = stringPool;
+		tokenizer.setStringPool(stringPool);
+	}
+	
+	/**
+	 * Sets the line number of the start of the stream, used in error messages.
+	 * @param lineNumber The line number in the file of the first character of the stream.
+	 */
+	void setLineNumber(int lineNumber){
+		tokenizer.setLineNumber(lineNumber);
+	}
+	
+	/**
+	 * @return The cells created or parsed so far, by library and legal EDIF cell name.
+	 */
+	Map<String,Map<String,EDIFCell>> getEDIFCellRefMap(){
+		return edifInstCellMap;
+	}
+	
+	/**
+	 * @return The ports parsed so far, by library name, cell name and legal EDIF port name.
+	 */
+	Map<String,EDIFPort> getPortLookup(){
+		return portLookup;
+	}
+	
 	private String getNextToken(){
-		if(!nextTokens.isEmpty()){
-			return debugToken(nextTokens.poll());
-		}
-		String returnToken = null;
-		try{
-			outer: while((ch = in.read()) != -1){
-				if(ch == '\n') lineNumber++;
-				switch(ch){
-					case '"':
-						if(inQuote){
-							inQuote = false;
-							buffer[idx++] = (char) ch;
-							int end = idx;
-							idx = 0;
-							returnToken = getUniqueString(buffer,1, end-2);
-							break outer;
-						}else{
-							buffer[idx++] = (char) ch;
-							inQuote = true;							
-						}
-						break;
-					case '(':
-						if(inQuote) {
-							buffer[idx++] = (char) ch;
-							break;
-						}
-						if(idx > 0){
-							int end = idx;
-							idx = 0;
-							returnToken = getUniqueString(buffer,0, end);
-							nextTokens.add("(");
-							break outer;
-						}
-						idx = 0;	
-						returnToken = "(";
-						break outer;
-					case ')':
-						if(inQuote) {
-							buffer[idx++] = (char) ch;
-							break;
-						}
-						if(idx > 0){
-							int end = idx;
-							idx = 0;
-							returnToken = getUniqueString(buffer,0, end);
-							nextTokens.add(")");
-							break outer;
-						}
-						idx = 0;
-						returnToken = ")";
-						break outer;
-					case ' ':
-					case '\n':
-					case '\r':
-					case '\t':
-						if(inQuote) {
-							buffer[idx++] = (char) ch;
-							break;
-						}
-						if(idx > 0){
-							int end = idx;
-							idx = 0;
-							returnToken = getUniqueString(buffer,0, end);
-							break outer;
-						}
-						break;
-					default:
-						buffer[idx++] = (char) ch;
-				}
-			}
-		}
-		catch(IOException e){
-			e.printStackTrace();
-			MessageGenerator.briefErrorAndExit("ERROR: IOException while reading EDIF file: " + fileName);
-		} 
-		catch(ArrayIndexOutOfBoundsException e ){
-			if(idx >= buffer.length) 
-				MessageGenerator.briefError("ERROR: String buffer overflow on line " + 
-						lineNumber + " parsing token starting with \n\t'" + 
-						new String(buffer,0,128) + "...'. \n\tPlease revisit why this EDIF token "
-						+ "is so long or increase the buffer in " + this.getClass().getCanonicalName());
-			throw e;
+		if(nextToken != null){
+			String token = nextToken;
+			nextToken = null;
+			return debugToken(token);
 		}
-		return debugToken(returnToken);
+		return debugToken(tokenizer.getNextToken());
 	}
 	
 	private EDIFName parseEDIFNameObject(EDIFName o){
@@ -307,10 +236,8 @@ public class EDIFParser {
 			String name = getNextToken();
 			if(name.charAt(0) == '[' && name.length() >= 2 &&  name.charAt(1) == ']'){
 				name = name.substring(2);
-				String unique = stringPool.get(name);
-				if(unique == null){
-					stringPool.put(name, name);
-				}else{
+				String unique = stringPool.putIfAbsent(name, name);
+				if(unique != null){
 					name = unique;
 				}
 			}
@@ -363,8 +290,26 @@ public class EDIFParser {
 		expect(RIGHT_PAREN, getNextToken());
 	}
 	
-	@SuppressWarnings("unused")
 	public EDIFNetlist parseEDIFNetlist(){
+		parseEDIFNetlistStructure();
+		
+		// Update PortInsts
+		for(EDIFLibrary lib : currNetlist.getLibraries()){
+			for(EDIFCell cell : lib.getCells()){
+				updatePortInsts(cell);
+			}
+		}
+		
+		return currNetlist;
+	}
+	
+	/**
+	 * Parses the netlist without the final update of the port instances 
+	 * (see {@link #updatePortInsts(EDIFCell)}).
+	 * @return The parsed netlist.
+	 */
+	@SuppressWarnings("unused")
+	EDIFNetlist parseEDIFNetlistStructure(){
 		expect(LEFT_PAREN, getNextToken());
 		expect(EDIF, getNextToken());
 		currNetlist = (EDIFNetlist) parseEDIFNameObject(new EDIFNetlist());
@@ -425,36 +370,39 @@ public class EDIFParser {
 		}
 		expect(RIGHT_PAREN, currToken);  // edif end
 		
-		// Update PortInsts
-		for(EDIFLibrary lib : currNetlist.getLibraries()){
-			for(EDIFCell cell : lib.getCells()){
-				for(EDIFNet net : cell.getNets()){
-					List<EDIFPortInst> portInsts = new ArrayList<>(net.getPortInsts());
-					for(EDIFPortInst portInst : portInsts){
-						EDIFCellInst inst = portInst.getCellInst();
-						EDIFCell c = inst == null ? portInst.getParentCell() : inst.getCellType();
-						String uid = getUniqueEDIFPortID(c.getLibrary(), c, portInst.getName());
-						portInst.setPort(portLookup.get(uid));
-						if(inst == null){
-							cell.addInternalPortMapEntry(portInst.getPortInstNameFromPort(), net);							
-						}else {
-							inst.removePortInst(portInst);
-						}
-						String newPortInstName = portInst.getPortInstNameFromPort();
-						portInst.setName(newPortInstName);
-						if(inst != null){
-							inst.addPortInst(portInst);
-						}
-					}
-					net.getPortInstMap().clear();
-					for(EDIFPortInst portInst : portInsts){
-						net.addPortInst(portInst);
-					}
+		return currNetlist;
+	}
+	
+	/**
+	 * Connects the port instances of a parsed cell's nets to their ports and renames 
+	 * them after their port.  Only reads the port lookup and modifies the cell and its
+	 * instances, so different cells can be updated concurrently.
+	 * @param cell The parsed cell.
+	 */
+	void updatePortInsts(EDIFCell cell){
+		for(EDIFNet net : cell.getNets()){
+			List<EDIFPortInst> portInsts = new ArrayList<>(net.getPortInsts());
+			for(EDIFPortInst portInst : portInsts){
+				EDIFCellInst inst = portInst.getCellInst();
+				EDIFCell c = inst == null ? portInst.getParentCell() : inst.getCellType();
+				String uid = getUniqueEDIFPortID(c.getLibrary(), c, portInst.getName());
+				portInst.setPort(portLookup.get(uid));
+				if(inst == null){
+					cell.addInternalPortMapEntry(portInst.getPortInstNameFromPort(), net);							
+				}else {
+					inst.removePortInst(portInst);
+				}
+				String newPortInstName = portInst.getPortInstNameFromPort();
+				portInst.setName(newPortInstName);
+				if(inst != null){
+					inst.addPortInst(portInst);
 				}
 			}
+			net.getPortInstMap().clear();
+			for(EDIFPortInst portInst : portInsts){
+				net.addPortInst(portInst);
+			}
 		}
-		
-		return currNetlist;
 	}
 	
 	private EDIFLibrary parseEDIFLibrary(){
@@ -484,6 +432,22 @@ public class EDIFParser {
 		return library;
 	}
 	
+	/**
+	 * Parses a stream that only contains a sequence of cell definitions of a library.
+	 * The cells are not added to the library.
+	 * @param lib The library the cells belong to.
+	 * @return The parsed cells, in order.
+	 */
+	List<EDIFCell> parseEDIFCells(EDIFLibrary lib){
+		List<EDIFCell> cells = new ArrayList<>();
+		String currToken = null;
+		while(LEFT_PAREN.equals(currToken = getNextToken())){
+			cells.add(parseEDIFCell(lib));
+		}
+		if(currToken != null) expect(LEFT_PAREN, currToken);
+		return cells;
+	}
+	
 	/**
 	 * This method will arbitrate between existing temporary cells created
 	 * for their reference and newly created cells as parsed in the file.  
@@ -745,10 +709,10 @@ public class EDIFParser {
 	
 	private void expect(String expectedString, String token){
 		if(!expectedString.equals(token)){
-			if(expectedString.equals(token.toLowerCase())) return;
+			if(expectedString.equalsIgnoreCase(token)) return;
 			new Exception().printStackTrace();
 			MessageGenerator.briefErrorAndExit("Parsing Error: Expected token: " + expectedString +
-					", encountered: " + token + " on line: " + lineNumber + ".");
+					", encountered: " + token + " on line: " + tokenizer.getLineNumber() + ".");
 		}
 	}
 	
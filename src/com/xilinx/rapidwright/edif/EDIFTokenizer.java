@@ -0,0 +1,281 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.edif;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Splits an EDIF byte stream into the tokens consumed by {@link EDIFParser}.  The 
+ * stream is read in large blocks into a byte buffer and tokens are matched directly 
+ * against the raw bytes.  Every distinct token is kept in a hash table keyed on its 
+ * bytes, so a String is only created the first time a token is seen; keywords, 
+ * parentheses and repeated names are returned without any allocation.
+ * 
+ * Created on: Mar 12, 2021
+ */
+public class EDIFTokenizer {
+
+	/** Initial size (in bytes) of the read buffer, grown if a single token does not fit */
+	public static int READ_BUFFER_SIZE = 4 * 1024 * 1024;
+	
+	private static final int INITIAL_TOKEN_CAPACITY = 1 << 12;
+	
+	private static final String LEFT_PAREN = "(";
+	
+	private static final String RIGHT_PAREN = ")";
+	
+	private String fileName;
+	
+	private InputStream in;
+	
+	private byte[] buffer;
+	
+	/** Index of the next unread byte in the buffer */
+	private int pos;
+	
+	/** Number of valid bytes in the buffer */
+	private int limit;
+	
+	private int lineNumber = 1;
+	
+	private boolean endOfStream;
+	
+	/** Open addressed hash table of every token seen so far and their hash codes */
+	private String[] tokens;
+	
+	private int[] hashes;
+	
+	private int tokenCount;
+	
+	private Map<String,String> stringPool;
+	
+	/**
+	 * Creates a tokenizer reading from the provided stream.
+	 * @param fileName Name of the file being read, used in error messages.
+	 * @param in The stream to tokenize.
+	 * @param stringPool Pool used to share new token strings (may be shared with other 
+	 * tokenizers if it is thread safe).
+	 */
+	public EDIFTokenizer(String fileName, InputStream in, Map<String,String> stringPool){
+		this.fileName = fileName;
+		this.in = in;
+		this.stringPool = stringPool;
+		buffer = new byte[READ_BUFFER_SIZE];
+		tokens = new String[INITIAL_TOKEN_CAPACITY];
+		hashes = new int[INITIAL_TOKEN_CAPACITY];
+	}
+	
+	/**
+	 * @return The current line number of the stream.
+	 */
+	public int getLineNumber(){
+		return lineNumber;
+	}
+	
+	/**
+	 * Sets the line number of the current position of the stream.
+	 * @param lineNumber The line number.
+	 */
+	public void setLineNumber(int lineNumber){
+		this.lineNumber = lineNumber;
+	}
+	
+	/**
+	 * Sets the pool used to share token strings.  New tokens seen after this call are 
+	 * added to this pool.
+	 * @param stringPool The string pool to use.
+	 */
+	public void setStringPool(Map<String,String> stringPool){
+		this.stringPool = stringPool;
+	}
+	
+	/**
+	 * Reads the next token from the stream.  Parentheses are returned as individual 
+	 * tokens and quoted strings are returned without their quotes.
+	 * @return The next token or null if the end of the stream has been reached.
+	 */
+	public String getNextToken(){
+		while(true){
+			if(pos >= limit && !fill(pos)) return null;
+			switch(buffer[pos]){
+				case '(':
+					pos++;
+					return LEFT_PAREN;
+				case ')':
+					pos++;
+					return RIGHT_PAREN;
+				case '\n':
+					lineNumber++;
+				case ' ':
+				case '\r':
+				case '\t':
+					pos++;
+					break;
+				default:
+					return readToken();
+			}
+		}
+	}
+	
+	/**
+	 * Reads a name, number or quoted string token starting at the current position.  The
+	 * token ends at white space or a parenthesis outside of quotes (which are left in the
+	 * stream) or just after a closing quote.
+	 * @return The token or null if the stream ended before the token was complete.
+	 */
+	private String readToken(){
+		int start = pos;
+		boolean inQuote = false;
+		while(true){
+			if(pos >= limit){
+				if(!fill(start)) return null;
+				start = 0;
+			}
+			byte b = buffer[pos];
+			switch(b){
+				case '"':
+					pos++;
+					if(inQuote){
+						// Drop the first character (opening quote) and the closing quote
+						return getUniqueString(start + 1, pos - start - 2);
+					}
+					inQuote = true;
+					break;
+				case '(':
+				case ')':
+				case ' ':
+				case '\r':
+				case '\t':
+					if(inQuote){
+						pos++;
+						break;
+					}
+					return getUniqueString(start, pos - start);
+				case '\n':
+					if(inQuote){
+						lineNumber++;
+						pos++;
+						break;
+					}
+					return getUniqueString(start, pos - start);
+				default:
+					pos++;
+			}
+		}
+	}
+	
+	/**
+	 * Moves the unread bytes starting at the provided index to the beginning of the 
+	 * buffer and reads more of the stream after them.  The buffer is grown if it 
+	 * is already full and released once the end of the stream is reached.
+	 * @param keep Index of the first byte in the buffer to keep.
+	 * @return True if more bytes were read, false if the end of the stream was reached.
+	 */
+	private boolean fill(int keep){
+		if(endOfStream) return false;
+		int remaining = limit - keep;
+		if(keep > 0){
+			System.arraycopy(buffer, keep, buffer, 0, remaining);
+		}else if(remaining == buffer.length){
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		pos -= keep;
+		limit = remaining;
+		try {
+			int count = in.read(buffer, limit, buffer.length - limit);
+			if(count < 0){
+				endOfStream = true;
+				buffer = new byte[0];
+				pos = limit = 0;
+				tokens = null;
+				hashes = null;
+				return false;
+			}
+			limit += count;
+		} catch (IOException e) {
+			e.printStackTrace();
+			MessageGenerator.briefErrorAndExit("ERROR: IOException while reading EDIF file: " + fileName);
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets the unique String for the token bytes, only creating a new String if the 
+	 * token has not been seen before.  The hash is the same as {@link String#hashCode()}
+	 * of the decoded token.
+	 * @param offset Index of the first byte of the token in the buffer.
+	 * @param length Number of bytes in the token.
+	 * @return The token.
+	 */
+	private String getUniqueString(int offset, int length){
+		int hash = 0;
+		int end = offset + length;
+		for(int i=offset; i < end; i++){
+			hash = 31 * hash + (buffer[i] & 0xff);
+		}
+		int mask = tokens.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		String token;
+		while((token = tokens[slot]) != null){
+			if(hashes[slot] == hash && matches(token, offset, length)) return token;
+			slot = (slot + 1) & mask;
+		}
+		token = new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+		String pooled = stringPool.putIfAbsent(token, token);
+		if(pooled != null) token = pooled;
+		tokens[slot] = token;
+		hashes[slot] = hash;
+		if(++tokenCount * 2 > tokens.length) growTokenTable();
+		return token;
+	}
+	
+	private boolean matches(String token, int offset, int length){
+		if(token.length() != length) return false;
+		for(int i=0; i < length; i++){
+			if(token.charAt(i) != (buffer[offset + i] & 0xff)) return false;
+		}
+		return true;
+	}
+	
+	private void growTokenTable(){
+		String[] oldTokens = tokens;
+		int[] oldHashes = hashes;
+		tokens = new String[oldTokens.length * 2];
+		hashes = new int[oldTokens.length * 2];
+		int mask = tokens.length - 1;
+		for(int i=0; i < oldTokens.length; i++){
+			if(oldTokens[i] == null) continue;
+			int hash = oldHashes[i];
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while(tokens[slot] != null){
+				slot = (slot + 1) & mask;
+			}
+			tokens[slot] = oldTokens[i];
+			hashes[slot] = oldHashes[i];
+		}
+	}
+}
@@ -141,6 +141,11 @@ public class EDIFTools {
 	/** Flag to switch EDIF files to KRYO files to make Java debugging faster  (must run once without debugging mode first, once set to true) */
 	public static final boolean EDIF_DEBUG = false;
 
+	/** Flag to store the maps of netlist objects created from now on (instances, nets, ports, 
+	 * port instances and properties) in {@link com.xilinx.rapidwright.util.CompactMap}s, trading some lookup speed for a 
+	 * much smaller heap footprint on large netlists */
+	public static boolean USE_COMPACT_MAPS = false;
+
 	public static int UNIQUE_COUNT = 0;
 	
 	private static String getUniqueNetSuffix() {
@@ -692,7 +697,19 @@ public class EDIFTools {
 		t.stop().printSummary();
 	}
 
+	/**
+	 * Parses an EDIF file.  Files of at least
+	 * {@link ParallelEDIFParser#PARALLEL_PARSE_MIN_FILE_SIZE} bytes are parsed with
+	 * {@link ParallelEDIFParser} when {@link ParallelEDIFParser#EDIF_PARSER_THREADS} is
+	 * greater than one.
+	 * @param fileName Name of the EDIF file.
+	 * @return The parsed netlist.
+	 */
 	public static EDIFNetlist loadEDIFFile(String fileName){
+		if(ParallelEDIFParser.EDIF_PARSER_THREADS > 1 
+				&& new File(fileName).length() >= ParallelEDIFParser.PARALLEL_PARSE_MIN_FILE_SIZE){
+			return new ParallelEDIFParser(fileName, ParallelEDIFParser.EDIF_PARSER_THREADS).parseEDIFNetlist();
+		}
 		EDIFParser p = null;
 		try {
 			p = new EDIFParser(fileName);
@@ -814,8 +831,21 @@ public class EDIFTools {
 				+ "\n\n        source " + tclFileName + "\n");
 	}
 
+	/**
+	 * Reads the EDIF netlist stored in a DCP file.  The EDIF is decompressed on a 
+	 * separate thread while it is parsed or, if it is stored uncompressed, parsed directly 
+	 * from a memory mapped region of the DCP (see 
+	 * {@link FileTools#getPipelinedInputStreamFromZipOrDcpFile(String, String)}).
+	 * @param dcpFileName Name of the DCP file.
+	 * @return The parsed netlist.
+	 */
 	public static EDIFNetlist readEdifFromDcpFile(String dcpFileName){
-		return EDIFTools.loadEDIFFile(FileTools.getInputStreamFromZipOrDcpFile(dcpFileName, ".edf"));
+		InputStream is = FileTools.getPipelinedInputStreamFromZipOrDcpFile(dcpFileName, ".edf");
+		try {
+			return EDIFTools.loadEDIFFile(is);
+		} finally {
+			FileTools.close(is);
+		}
 	}
 
 	public static EDIFNetlist loadEDIFFile(InputStream is){
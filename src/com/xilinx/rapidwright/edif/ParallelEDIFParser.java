@@ -0,0 +1,408 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.edif;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.xilinx.rapidwright.util.ParallelismTools;
+
+/**
+ * Parses an EDIF file on several threads.  A fast pre-scan of the file finds the byte
+ * ranges of the cells of each library, which are grouped into chunks of consecutive 
+ * cells.  The rest of the file (header, library headers and design) is parsed by an 
+ * {@link EDIFParser} that skips over the chunks while the chunks are parsed 
+ * concurrently, each by its own {@link EDIFParser}.  A final linking pass then adds the 
+ * cells to their libraries in file order and resolves the cell references 
+ * (cellref/libraryref) that crossed chunk boundaries.  The resulting netlist is the 
+ * same as the one produced by {@link EDIFParser#parseEDIFNetlist()}.
+ * 
+ * Created on: Mar 11, 2021
+ */
+public class ParallelEDIFParser {
+
+	/** Number of threads used to parse EDIF files (see {@link EDIFTools#loadEDIFFile(String)}) */
+	public static int EDIF_PARSER_THREADS = ParallelismTools.DEFAULT_THREADS;
+	
+	/** Files smaller than this (in bytes) are parsed sequentially by {@link EDIFTools#loadEDIFFile(String)} */
+	public static long PARALLEL_PARSE_MIN_FILE_SIZE = 16L * 1024 * 1024;
+	
+	/** Minimum size (in bytes) of a chunk of cells parsed by one task */
+	public static long MIN_CHUNK_SIZE = 1024 * 1024;
+	
+	private static final int SCAN_BUFFER_SIZE = 4 * 1024 * 1024;
+	
+	private String fileName;
+	
+	private int threads;
+	
+	/**
+	 * Consecutive cell definitions of a library, parsed as one unit.
+	 */
+	private static class CellChunk {
+		/** Index of the library in the file */
+		private int library;
+		/** Offset of the first byte of the first cell */
+		private long start;
+		/** Offset after the last byte of the last cell */
+		private long end;
+		/** Line number of the first cell */
+		private int line;
+		private EDIFParser parser;
+		private List<EDIFCell> cells;
+	}
+	
+	/**
+	 * Creates a parallel parser for an EDIF file.
+	 * @param fileName Name of the EDIF file.
+	 * @param threads Number of threads to use.
+	 */
+	public ParallelEDIFParser(String fileName, int threads){
+		this.fileName = fileName;
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Parses the EDIF file.
+	 * @return The parsed netlist.
+	 */
+	public EDIFNetlist parseEDIFNetlist(){
+		List<CellChunk> chunks;
+		try {
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, new File(fileName).length() / (threads * 4));
+			chunks = findCellChunks(chunkSize);
+		} catch (IOException e) {
+			throw new RuntimeException("ERROR: Couldn't read file : " + fileName, e);
+		}
+		
+		// Parse everything except the cells
+		long[] skipped = new long[chunks.size() * 2];
+		for(int i=0; i < chunks.size(); i++){
+			skipped[i*2] = chunks.get(i).start;
+			skipped[i*2+1] = chunks.get(i).end;
+		}
+		Map<String,String> stringPool = new ConcurrentHashMap<>();
+		EDIFParser main;
+		EDIFNetlist netlist;
+		try (FileRangeInputStream in = new FileRangeInputStream(fileName, skipped, true)) {
+			main = new EDIFParser(fileName, in);
+			main.setStringPool(stringPool);
+			netlist = main.parseEDIFNetlistStructure();
+		} catch (IOException e) {
+			throw new RuntimeException("ERROR: Couldn't read file : " + fileName, e);
+		}
+		final List<EDIFLibrary> libraries = new ArrayList<>(netlist.getLibraries());
+		
+		// Parse the cells
+		List<Callable<CellChunk>> tasks = new ArrayList<>(chunks.size());
+		for(CellChunk chunk : chunks){
+			tasks.add(new Callable<CellChunk>() {
+				public CellChunk call() throws IOException {
+					long[] range = new long[]{chunk.start, chunk.end};
+					try (FileRangeInputStream in = new FileRangeInputStream(fileName, range, false)) {
+						chunk.parser = new EDIFParser(fileName, in);
+						chunk.parser.setStringPool(stringPool);
+						chunk.parser.setLineNumber(chunk.line);
+						chunk.cells = chunk.parser.parseEDIFCells(libraries.get(chunk.library));
+					}
+					return chunk;
+				}
+			});
+		}
+		ParallelismTools.invokeAll(tasks, threads);
+		
+		linkCells(main, netlist, libraries, chunks);
+		return netlist;
+	}
+	
+	/**
+	 * Adds the parsed cells to their libraries in file order, resolves the cell references
+	 * that could not be resolved by the parser of a chunk and updates the port instances of
+	 * all cells (see {@link EDIFParser#updatePortInsts(EDIFCell)}).
+	 */
+	private void linkCells(EDIFParser main, EDIFNetlist netlist, List<EDIFLibrary> libraries, 
+			List<CellChunk> chunks){
+		// Cells by library and name, and the position of each cell in the file
+		Map<String,Map<String,EDIFCell>> cells = new HashMap<>();
+		final Map<EDIFCell,Integer> order = new IdentityHashMap<>();
+		for(CellChunk chunk : chunks){
+			EDIFLibrary lib = libraries.get(chunk.library);
+			Map<String,EDIFCell> libCells = getLibraryCells(cells, lib.getLegalEDIFName());
+			for(EDIFCell cell : chunk.cells){
+				if(libCells.put(cell.getLegalEDIFName(), cell) != null){
+					throw new RuntimeException("ERROR: Cell " + cell.getName() + " is defined more "
+							+ "than once in library " + lib.getName() + " of " + fileName);
+				}
+				order.put(cell, order.size());
+				lib.addCell(cell);
+			}
+			main.getPortLookup().putAll(chunk.parser.getPortLookup());
+		}
+		
+		// Each parser created its own reference cells for the cells it did not parse
+		final Map<EDIFCell,EDIFCell> replacements = new IdentityHashMap<>();
+		List<EDIFParser> parsers = new ArrayList<>();
+		parsers.add(main);
+		for(CellChunk chunk : chunks){
+			parsers.add(chunk.parser);
+		}
+		for(EDIFParser parser : parsers){
+			for(Entry<String,Map<String,EDIFCell>> e : parser.getEDIFCellRefMap().entrySet()){
+				Map<String,EDIFCell> libCells = getLibraryCells(cells, e.getKey());
+				for(Entry<String,EDIFCell> ref : e.getValue().entrySet()){
+					if(order.containsKey(ref.getValue())) continue;
+					EDIFCell cell = libCells.get(ref.getKey());
+					if(cell == null){
+						// Never defined, all references share the first reference cell
+						libCells.put(ref.getKey(), ref.getValue());
+					}else if(cell != ref.getValue()){
+						replacements.put(ref.getValue(), cell);
+					}
+				}
+			}
+		}
+		EDIFDesign design = netlist.getDesign();
+		if(design != null && replacements.containsKey(design.getTopCell())){
+			design.setTopCell(replacements.get(design.getTopCell()));
+		}
+		
+		List<Callable<Object>> tasks = new ArrayList<>(chunks.size());
+		for(CellChunk chunk : chunks){
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					for(EDIFCell cell : chunk.cells){
+						int position = order.get(cell);
+						for(EDIFCellInst inst : cell.getCellInsts()){
+							EDIFCell ref = inst.getCellType();
+							EDIFCell type = replacements.get(ref);
+							if(type == null) continue;
+							inst.setCellType(type);
+							// As with the sequential parser, the viewref is only taken from the
+							// cell if it was defined before the instance
+							Integer defined = order.get(type);
+							if(defined == null || defined > position){
+								inst.setViewref(ref.getEDIFView());
+							}
+						}
+						main.updatePortInsts(cell);
+					}
+					return null;
+				}
+			});
+		}
+		ParallelismTools.invokeAll(tasks, threads);
+	}
+	
+	private static Map<String,EDIFCell> getLibraryCells(Map<String,Map<String,EDIFCell>> cells, String libName){
+		Map<String,EDIFCell> libCells = cells.get(libName);
+		if(libCells == null){
+			libCells = new HashMap<>();
+			cells.put(libName, libCells);
+		}
+		return libCells;
+	}
+	
+	/**
+	 * Scans the file for the byte ranges of the cells of each library, without tokenizing
+	 * it.  Only parentheses, quotes and the keyword following a parenthesis at the library
+	 * and cell levels are examined.
+	 * @param chunkSize Size (in bytes) after which a chunk is closed.
+	 * @return The chunks of consecutive cells, in file order.
+	 * @throws IOException
+	 */
+	private List<CellChunk> findCellChunks(long chunkSize) throws IOException {
+		List<CellChunk> chunks = new ArrayList<>();
+		CellChunk chunk = null;
+		int depth = 0;
+		int line = 1;
+		boolean inQuote = false;
+		// 0: no keyword expected, 1: waiting for the keyword, 2: in the keyword
+		int keywordState = 0;
+		byte[] keyword = new byte[16];
+		int keywordLength = 0;
+		long keywordParen = -1;
+		int keywordLine = 0;
+		int library = -1;
+		boolean inLibrary = false;
+		long cellStart = -1;
+		int cellLine = 0;
+		
+		try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			ByteBuffer bb = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+			byte[] buf = bb.array();
+			long offset = 0;
+			int count;
+			while((count = ch.read(bb)) != -1){
+				for(int i=0; i < count; i++){
+					byte b = buf[i];
+					if(inQuote){
+						if(b == '"') inQuote = false;
+						else if(b == '\n') line++;
+						continue;
+					}
+					if(keywordState != 0){
+						boolean separator = b == ' ' || b == '\n' || b == '\r' || b == '\t' 
+								|| b == '(' || b == ')' || b == '"';
+						if(!separator){
+							keywordState = 2;
+							if(keywordLength < keyword.length) keyword[keywordLength++] = (byte) Character.toLowerCase(b);
+							continue;
+						}
+						if(keywordState == 2){
+							keywordState = 0;
+							String key = new String(keyword, 0, keywordLength);
+							if(depth == 2 && (key.equals("library") || key.equals("external"))){
+								inLibrary = true;
+								library++;
+							}else if(depth == 3 && key.equals("cell")){
+								cellStart = keywordParen;
+								cellLine = keywordLine;
+							}
+						}else if(b != '(' && b != ')' && b != '"'){
+							if(b == '\n') line++;
+							continue;
+						}else{
+							keywordState = 0;
+						}
+					}
+					switch(b){
+						case '"':
+							inQuote = true;
+							break;
+						case '\n':
+							line++;
+							break;
+						case '(':
+							depth++;
+							if(depth == 2 || (depth == 3 && inLibrary)){
+								keywordState = 1;
+								keywordLength = 0;
+								keywordParen = offset + i;
+								keywordLine = line;
+							}
+							break;
+						case ')':
+							if(depth == 3 && cellStart >= 0){
+								if(chunk == null){
+									chunk = new CellChunk();
+									chunk.library = library;
+									chunk.start = cellStart;
+									chunk.line = cellLine;
+								}
+								chunk.end = offset + i + 1;
+								cellStart = -1;
+								if(chunk.end - chunk.start >= chunkSize){
+									chunks.add(chunk);
+									chunk = null;
+								}
+							}else if(depth == 2 && inLibrary){
+								inLibrary = false;
+								if(chunk != null){
+									chunks.add(chunk);
+									chunk = null;
+								}
+							}
+							depth--;
+							break;
+					}
+				}
+				offset += count;
+				bb.clear();
+			}
+		}
+		if(chunk != null) chunks.add(chunk);
+		return chunks;
+	}
+	
+	/**
+	 * Reads a list of byte ranges of a file (or everything but the ranges) as one stream.
+	 */
+	private static class FileRangeInputStream extends InputStream {
+		
+		private FileChannel ch;
+		
+		/** Start and end offsets of the ranges to read */
+		private long[] ranges;
+		
+		private int range;
+		
+		private long position;
+		
+		private byte[] single = new byte[1];
+		
+		/**
+		 * @param fileName Name of the file to read.
+		 * @param ranges Sorted start (inclusive) and end (exclusive) offsets of the ranges.
+		 * @param exclude If true, the stream contains everything except the ranges.
+		 * @throws IOException
+		 */
+		private FileRangeInputStream(String fileName, long[] ranges, boolean exclude) throws IOException{
+			ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			if(exclude){
+				long[] complement = new long[ranges.length + 2];
+				complement[0] = 0;
+				System.arraycopy(ranges, 0, complement, 1, ranges.length);
+				complement[complement.length-1] = ch.size();
+				ranges = complement;
+			}
+			this.ranges = ranges;
+			position = ranges.length > 0 ? ranges[0] : 0;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) return 0;
+			while(range < ranges.length && position >= ranges[range+1]){
+				range += 2;
+				if(range < ranges.length) position = ranges[range];
+			}
+			if(range >= ranges.length) return -1;
+			int n = (int) Math.min(len, ranges[range+1] - position);
+			int count = ch.read(ByteBuffer.wrap(b, off, n), position);
+			if(count == -1) return -1;
+			position += count;
+			return count;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			ch.close();
+		}
+	}
+}
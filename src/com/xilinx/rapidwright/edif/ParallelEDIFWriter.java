@@ -0,0 +1,255 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.edif;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import com.xilinx.rapidwright.util.ParallelismTools;
+
+/**
+ * Writes an EDIF file on several threads.  The netlist is split into chunks of 
+ * consecutive cells (in the same order as {@link EDIFLibrary#getValidCellExportOrder()}),
+ * each chunk is rendered into its own buffer concurrently and the buffers are written 
+ * to the file in order through a {@link FileChannel}.  Only a bounded number of rendered
+ * chunks are kept in memory at any time.  Cells that are too large to buffer (such as the
+ * top cell of a flat netlist, see {@link #STREAMED_CELL_WEIGHT}) get a chunk of their own 
+ * that is rendered straight to the file when its turn comes, while the following chunks 
+ * are rendered concurrently.  When gzip output is requested, each chunk is also compressed 
+ * and written as a separate gzip member; the concatenated members form a valid gzip file 
+ * that decompresses to the same EDIF.
+ * 
+ * Created on: Mar 14, 2021
+ */
+public class ParallelEDIFWriter {
+
+	/** Number of threads used to export EDIF files (see {@link EDIFNetlist#exportEDIF(String)}) */
+	public static int EDIF_EXPORT_THREADS = ParallelismTools.DEFAULT_THREADS;
+	
+	/** Approximate number of ports, instances and net connections rendered by one task */
+	public static int EXPORT_CHUNK_WEIGHT = 1 << 16;
+	
+	/** Cells with at least this weight are rendered directly to the file instead of a buffer */
+	public static int STREAMED_CELL_WEIGHT = 1 << 18;
+	
+	/** File name suffix that selects gzip compressed output */
+	public static final String GZIP_SUFFIX = ".gz";
+	
+	private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+	
+	private EDIFNetlist netlist;
+	
+	private int threads;
+	
+	/**
+	 * Consecutive parts of the EDIF file rendered by one task, in file order.
+	 */
+	private static class ExportChunk {
+		/** Render the netlist header before anything else */
+		private boolean netlistHeader;
+		/** Library whose header is rendered before the cells */
+		private EDIFLibrary libraryStart;
+		private List<EDIFCell> cells = new ArrayList<>();
+		/** Library whose footer is rendered after the cells */
+		private EDIFLibrary libraryEnd;
+		/** Render the design after everything else */
+		private boolean netlistDesign;
+		/** Render directly to the file, the chunk holds a single large cell */
+		private boolean streamed;
+	}
+	
+	/**
+	 * Creates a parallel writer for a netlist.
+	 * @param netlist The netlist to write.
+	 * @param threads Number of threads to use.
+	 */
+	public ParallelEDIFWriter(EDIFNetlist netlist, int threads){
+		this.netlist = netlist;
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Writes the netlist to an EDIF file, gzip compressed if the file name ends with 
+	 * {@link #GZIP_SUFFIX}.
+	 * @param fileName Name of the file to write.
+	 */
+	public void exportEDIF(String fileName) throws IOException {
+		exportEDIF(fileName, fileName.endsWith(GZIP_SUFFIX));
+	}
+	
+	/**
+	 * Writes the netlist to an EDIF file.
+	 * @param fileName Name of the file to write.
+	 * @param gzip If true, the file is gzip compressed.
+	 */
+	public void exportEDIF(String fileName, boolean gzip) throws IOException {
+		List<ExportChunk> chunks = getExportChunks();
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// Not closed, closing the channel is left to the try-with-resources
+			OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), WRITER_BUFFER_SIZE);
+			if(threads == 1){
+				for(ExportChunk chunk : chunks){
+					render(chunk, fileOut, gzip);
+				}
+				fileOut.flush();
+				return;
+			}
+			ExecutorService pool = ParallelismTools.createPool(threads, "EDIFWriter");
+			try {
+				// Keep a bounded window of chunks in flight so memory does not grow with the netlist
+				int window = threads * 2;
+				Queue<ExportChunk> pendingChunks = new ArrayDeque<>(window);
+				Queue<Future<byte[]>> pending = new ArrayDeque<>(window);
+				int next = 0;
+				while(next < chunks.size() || !pendingChunks.isEmpty()){
+					while(next < chunks.size() && pendingChunks.size() < window){
+						ExportChunk chunk = chunks.get(next++);
+						pendingChunks.add(chunk);
+						if(chunk.streamed) continue;
+						pending.add(pool.submit(new Callable<byte[]>() {
+							public byte[] call() throws IOException {
+								return render(chunk, gzip);
+							}
+						}));
+					}
+					ExportChunk chunk = pendingChunks.poll();
+					if(chunk.streamed){
+						render(chunk, fileOut, gzip);
+					}else{
+						fileOut.write(ParallelismTools.join(pending.poll()));
+					}
+				}
+				fileOut.flush();
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+	
+	/**
+	 * Splits the netlist into chunks of consecutive cells following the export order of 
+	 * {@link EDIFNetlist#exportEDIF(String)}: the HDI primitives library first, then 
+	 * the remaining libraries. Chunks never span more than one library and cells of at 
+	 * least {@link #STREAMED_CELL_WEIGHT} are put in a streamed chunk of their own.
+	 * @return The chunks, in file order.
+	 */
+	private List<ExportChunk> getExportChunks(){
+		List<EDIFLibrary> libraries = new ArrayList<>();
+		libraries.add(netlist.getHDIPrimitivesLibrary());
+		for(EDIFLibrary lib : netlist.getLibrariesMap().values()){
+			if(lib.getName().equals(EDIFTools.EDIF_LIBRARY_HDI_PRIMITIVES_NAME)) continue;
+			libraries.add(lib);
+		}
+		List<ExportChunk> chunks = new ArrayList<>();
+		ExportChunk header = new ExportChunk();
+		header.netlistHeader = true;
+		chunks.add(header);
+		for(EDIFLibrary lib : libraries){
+			ExportChunk chunk = new ExportChunk();
+			chunk.libraryStart = lib;
+			long weight = 0;
+			for(EDIFCell cell : lib.getValidCellExportOrder()){
+				long cellWeight = getExportWeight(cell);
+				boolean large = cellWeight >= STREAMED_CELL_WEIGHT;
+				if(weight >= EXPORT_CHUNK_WEIGHT || chunk.streamed || (large && !chunk.cells.isEmpty())){
+					chunks.add(chunk);
+					chunk = new ExportChunk();
+					weight = 0;
+				}
+				chunk.cells.add(cell);
+				chunk.streamed = large;
+				weight += cellWeight;
+			}
+			chunk.libraryEnd = lib;
+			chunks.add(chunk);
+		}
+		ExportChunk design = new ExportChunk();
+		design.netlistDesign = true;
+		chunks.add(design);
+		return chunks;
+	}
+	
+	/**
+	 * Estimates the relative amount of EDIF text generated for a cell.
+	 * @param cell The cell.
+	 * @return The number of ports, instances and net connections of the cell (plus one).
+	 */
+	private static long getExportWeight(EDIFCell cell){
+		long weight = 1 + cell.getPorts().size() + cell.getCellInsts().size();
+		for(EDIFNet net : cell.getNets()){
+			weight += 1 + net.getPortInsts().size();
+		}
+		return weight;
+	}
+	
+	/**
+	 * Renders a chunk of the EDIF file into a buffer.
+	 * @param chunk The chunk to render.
+	 * @param gzip If true, the rendered text is compressed as a gzip member.
+	 * @return The bytes to write to the file.
+	 */
+	private byte[] render(ExportChunk chunk, boolean gzip) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(WRITER_BUFFER_SIZE);
+		render(chunk, bytes, gzip);
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Renders a chunk of the EDIF file to a stream, the stream is flushed but not closed.
+	 * @param chunk The chunk to render.
+	 * @param os The stream to write to.
+	 * @param gzip If true, the rendered text is compressed as a gzip member.
+	 */
+	private void render(ExportChunk chunk, OutputStream os, boolean gzip) throws IOException {
+		GZIPOutputStream gz = gzip ? new GZIPOutputStream(os, WRITER_BUFFER_SIZE) : null;
+		// Same encoding as FileWriter used by the sequential export
+		Writer wr = new BufferedWriter(new OutputStreamWriter(gzip ? gz : os, Charset.defaultCharset()), WRITER_BUFFER_SIZE);
+		if(chunk.netlistHeader) netlist.exportEDIFHeader(wr);
+		if(chunk.libraryStart != null) chunk.libraryStart.exportEDIFHeader(wr);
+		for(EDIFCell cell : chunk.cells){
+			cell.exportEDIF(wr);
+		}
+		if(chunk.libraryEnd != null) chunk.libraryEnd.exportEDIFFooter(wr);
+		if(chunk.netlistDesign) netlist.exportEDIFDesign(wr);
+		wr.flush();
+		if(gz != null) gz.finish();
+		os.flush();
+	}
+}
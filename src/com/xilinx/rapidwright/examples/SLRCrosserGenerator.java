@@ -344,38 +344,38 @@ public class SLRCrosserGenerator {
 			clockRegions.add(dev.getClockRegion(cr.getRow()+1, cr.getColumn()));				
 		}
 		
-		// Route from BUFG to Clock Routing Tracks
-		RouteNode clkRoutingLine = UltraScaleClockRouting.routeBUFGToNearestRoutingTrack(clk);
-		
-		// Route from Routing track to Centroid
-		Set<ClockRegion> centroids = new HashSet<>();
+		List<RouteNode> distLines = new ArrayList<>();
 		if(useCommonCentroid){
-			// Use a conventional centroid that attempts to minimize global skew
-			centroids.add(findCentroid(lagunaStarts, dev));
+			// Use a conventional centroid that attempts to minimize global skew, clocks with the 
+			// same BUFG and clock regions reuse the same route
+			ClockRegion centroid = findCentroid(lagunaStarts, dev);
+			distLines.addAll(UltraScaleClockRouting.routeToHorizontalDistributionLines(clk, centroid, clockRegions));
 		}else{
+			// Route from BUFG to Clock Routing Tracks
+			RouteNode clkRoutingLine = UltraScaleClockRouting.routeBUFGToNearestRoutingTrack(clk);
+			
+			// Route from Routing track to Centroid
+			Set<ClockRegion> centroids = new HashSet<>();
 			// Use each Laguna start CR as a centroid
 			for(String laguna : lagunaStarts){
 				ClockRegion cr = dev.getSite(laguna).getTile().getClockRegion();
 				centroids.add(cr);
 			}
-		}
-
-		List<RouteNode> distLines = new ArrayList<>();
-		for(ClockRegion centroid : centroids){
-			RouteNode centroidRouteNode = UltraScaleClockRouting.routeToCentroid(clk, clkRoutingLine, centroid);
 			
-			// Transition centroid from routing track to vertical distribution track
-			RouteNode centroidDistNode = UltraScaleClockRouting.transitionCentroidToDistributionLine(clk,centroidRouteNode);
-
-			// Route from Centroid to Clock distribution 
-			if(!useCommonCentroid){
+			for(ClockRegion centroid : centroids){
+				RouteNode centroidRouteNode = UltraScaleClockRouting.routeToCentroid(clk, clkRoutingLine, centroid);
+				
+				// Transition centroid from routing track to vertical distribution track
+				RouteNode centroidDistNode = UltraScaleClockRouting.transitionCentroidToDistributionLine(clk,centroidRouteNode);
+	
+				// Route from Centroid to Clock distribution 
 				clockRegions.clear();
 				clockRegions.add(centroid);
 				clockRegions.add(centroid.getNeighborClockRegion(1, 0));
+				Map<ClockRegion, RouteNode> vertDistLines = UltraScaleClockRouting.routeCentroidToVerticalDistributionLines(clk,centroidDistNode, clockRegions);
+				
+				distLines.addAll(UltraScaleClockRouting.routeCentroidToHorizontalDistributionLines(clk, centroidDistNode, vertDistLines)); 			
 			}
-			Map<ClockRegion, RouteNode> vertDistLines = UltraScaleClockRouting.routeCentroidToVerticalDistributionLines(clk,centroidDistNode, clockRegions);
-			
-			distLines.addAll(UltraScaleClockRouting.routeCentroidToHorizontalDistributionLines(clk, centroidDistNode, vertDistLines)); 			
 		}
 		
 		
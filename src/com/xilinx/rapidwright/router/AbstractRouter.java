@@ -23,12 +23,14 @@
 package com.xilinx.rapidwright.router;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 import com.xilinx.rapidwright.design.Design;
 import com.xilinx.rapidwright.design.Net;
@@ -52,16 +54,20 @@ public abstract class AbstractRouter{
 	protected Design design;
 	/** This is the device database */
 	protected Device dev;
-	/** This keeps track of all the used nodes in the chip during routing */
-	protected HashSet<RouteNode> usedNodes;
-	/** Keeps track for each used node by which net it is used by */
-	protected HashMap<RouteNode,LinkedList<Net>> usedNodesMap; // TODO - Does this really need to have multiple values, resources can't be used by multiple nets
-	/** This keeps track of all the visited nodes in the chip during routing */
-	protected HashSet<RouteNode> visitedNodes;
+	/** This keeps track of all the used nodes in the chip during routing (safe for concurrent use) */
+	protected Set<RouteNode> usedNodes;
+	/** Bitset backing usedNodes once {@link #initNodeOccupancy(DeviceNodeIndex)} is called, null otherwise */
+	protected NodeOccupancy occupancy;
+	/** Remaining cost estimate used by setCost(), null to use twice the Manhattan distance */
+	protected LookaheadCostMap lookahead;
+	/** Number of cost units per routing hop for the connection being routed, scales the estimate in setCost() */
+	protected int costScale = 1;
+	/** Keeps track for each used node by which net it is used by (safe for concurrent use) */
+	protected Map<RouteNode,LinkedList<Net>> usedNodesMap; // TODO - Does this really need to have multiple values, resources can't be used by multiple nets
 	/** This keeps track of Clock resource number that is used during routing */
 	protected HashSet<Integer> usedClkResources;
 	/** A Priority Queue for nodes to be processed */
-	protected PriorityQueue<RouteNode> queue;
+	protected RouteNodeQueue queue;
 	/** Some nodes are reserved for particular routes to minimize routing conflicts later */
 	protected HashMap<Net,ArrayList<RouteNode>> reservedNodes;
 
@@ -105,13 +111,12 @@ public abstract class AbstractRouter{
 	public AbstractRouter() {
 		// Initialize variables
 		tempNode = new RouteNode();
-		usedNodes = new HashSet<RouteNode>();
+		usedNodes = ConcurrentHashMap.newKeySet();
 		usedClkResources = new HashSet<Integer>();
-		usedNodesMap = new HashMap<RouteNode, LinkedList<Net>>();
+		usedNodesMap = new ConcurrentHashMap<RouteNode, LinkedList<Net>>();
 		reservedNodes = new HashMap<Net, ArrayList<RouteNode>>();
 		// Create a compare function based on node's cost
-		queue = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		queue = new RouteNodeQueue();
 
 		totalConnections = 0;
 		totalNodesProcessed = 0;
@@ -125,6 +130,15 @@ public abstract class AbstractRouter{
 		return design;
 	}
 	
+	/**
+	 * Gets the priority queue of the connection searches, its operation counters can be 
+	 * used to compare search efficiency. 
+	 * @return The queue of the connection searches.
+	 */
+	public RouteNodeQueue getQueue(){
+		return queue;
+	}
+	
 	/**
 	 * Sets a node (combined tile and wire) as used and maps 
 	 * the usage to the given net.
@@ -135,23 +149,40 @@ public abstract class AbstractRouter{
 	 */
 	protected RouteNode setWireAsUsed(Tile t, int wire, Net net){
 		RouteNode n = new RouteNode(t, wire, null, 0);
+		addUsedWireMapping(net, n);
 		markNodeUsed(n);
-		addUsedWireMapping(net, n);	
 		return n;
 	}
 	
 	/**
 	 * Sets a node (combined tile and wire) as unused and unmaps 
-	 * the usage to the given net.
+	 * the usage to the given net.  If other nets are still mapped to the node
+	 * (when wire overlap is allowed during congestion resolution) the node
+	 * remains marked as used.
 	 * @param t The tile specifier for the node to be marked as unused.
 	 * @param wire The wire specifier for the node to be marked as unused.
 	 * @param net The net currently using the node.
 	 * @return The node that was set as unused.
 	 */
 	protected RouteNode setWireAsUnused(Tile t, int wire, Net net){
-		RouteNode n = new RouteNode(t, wire, null, 0);
-		usedNodes.remove(n);
-		removeUsedWireMapping(net, n);		
+		final RouteNode n = new RouteNode(t, wire, null, 0);
+		// Unmapping and unmarking happen under the map's per-key lock so a
+		// concurrent addUsedWireMapping() can't be lost in between
+		usedNodesMap.compute(n, new BiFunction<RouteNode, LinkedList<Net>, LinkedList<Net>>() {
+			@Override
+			public LinkedList<Net> apply(RouteNode key, LinkedList<Net> list) {
+				if(list != null){
+					synchronized (list) {
+						list.remove(net);
+						if(!list.isEmpty()){
+							return list;
+						}
+					}
+				}
+				usedNodes.remove(n);
+				return null;
+			}
+		});
 		return n;
 	}
 	
@@ -162,14 +193,20 @@ public abstract class AbstractRouter{
 	 * @param n The node used by the given net
 	 */
 	protected void addUsedWireMapping(Net net, RouteNode n){
-		LinkedList<Net> list = usedNodesMap.get(n);
-		if(list == null){ 
-			list = new LinkedList<Net>();
-			usedNodesMap.put(n, list);
-		}
-		if(!list.contains(net)){ 
-			list.add(net);
-		}
+		usedNodesMap.compute(n, new BiFunction<RouteNode, LinkedList<Net>, LinkedList<Net>>() {
+			@Override
+			public LinkedList<Net> apply(RouteNode key, LinkedList<Net> list) {
+				if(list == null){
+					list = new LinkedList<Net>();
+				}
+				synchronized (list) {
+					if(!list.contains(net)){ 
+						list.add(net);
+					}
+				}
+				return list;
+			}
+		});
 	}
 	
 	/**
@@ -179,15 +216,17 @@ public abstract class AbstractRouter{
 	 * @param n The node to be removed.
 	 */
 	protected void removeUsedWireMapping(Net net, RouteNode n){
-		LinkedList<Net> list = usedNodesMap.get(n);
-		if(list == null){ 
-			return; 
-		}
-		if(list.remove(net)){
-			if(list.isEmpty()){
-				usedNodesMap.remove(n);
+		usedNodesMap.computeIfPresent(n, new BiFunction<RouteNode, LinkedList<Net>, LinkedList<Net>>() {
+			@Override
+			public LinkedList<Net> apply(RouteNode key, LinkedList<Net> list) {
+				synchronized (list) {
+					if(list.remove(net) && list.isEmpty()){
+						return null;
+					}
+				}
+				return list;
 			}
-		}
+		});
 	}
 	
 	/**
@@ -208,14 +247,32 @@ public abstract class AbstractRouter{
 	}
 	
 	public boolean isNodeUsed(Tile tile, int wire){
+		if(occupancy != null){
+			return occupancy.isUsed(tile, wire);
+		}
 		tempNode.setTileAndWire(tile, wire);
 		return usedNodes.contains(tempNode);
 	}
 	
 	public boolean isNodeUsed(RouteNode routeNode){
+		if(occupancy != null){
+			return occupancy.isUsed(routeNode.getTile(), routeNode.getWire());
+		}
 		return usedNodes.contains(routeNode);
 	}
 	
+	/**
+	 * Replaces the hash-based set of used nodes with a device-wide occupancy bitset.
+	 * Any nodes already marked as used are carried over.
+	 * @param index The node index of the device being routed.
+	 */
+	protected void initNodeOccupancy(DeviceNodeIndex index){
+		NodeOccupancy bitset = new NodeOccupancy(index);
+		bitset.addAll(usedNodes);
+		occupancy = bitset;
+		usedNodes = bitset;
+	}
+	
 	/**
 	 * Examines the pips in the list and marks all of the resources
 	 * as used.
@@ -247,6 +304,32 @@ public abstract class AbstractRouter{
 		usedNodes.add(n);
 	}
 	
+	/**
+	 * Atomically marks a node as used if no other router (or thread) has 
+	 * already done so.
+	 * @param n The node to claim.
+	 * @return True if the node was previously unused and is now marked used, 
+	 * false if it was already in use.
+	 */
+	protected boolean claimNode(RouteNode n){
+		return usedNodes.add(n);
+	}
+	
+	/**
+	 * Shares the node usage state of another router with this one.  This allows 
+	 * several router instances (one per worker thread) to route different nets 
+	 * of the same design concurrently while observing each other's resource usage.
+	 * @param other The router whose node usage state should be shared.
+	 */
+	protected void shareNodeUsage(AbstractRouter other){
+		this.design = other.design;
+		this.dev = other.dev;
+		this.usedNodes = other.usedNodes;
+		this.occupancy = other.occupancy;
+		this.usedNodesMap = other.usedNodesMap;
+		this.reservedNodes = other.reservedNodes;
+	}
+	
 	/**
 	 * This will add the sole source of the net to the set of sources to be used by the router.
 	 * It also updates the Router's currSources with the sole source of the net.
@@ -269,7 +352,6 @@ public abstract class AbstractRouter{
 	protected void prepareForRoutingConnection(){
 		// Reset Variable for a new route
 		pipList = new ArrayList<PIP>();
-		visitedNodes = new HashSet<RouteNode>();
 		queue.clear();
 		nodesProcessed = 0;
 		successfulRoute = false;
@@ -305,7 +387,12 @@ public abstract class AbstractRouter{
 		if(x < 0) x = -x;
 		if(y < 0) y = -y;
 
-		routeNode.setCost(((x + y) << 1) + routeNode.getLevel() + routeNode.getHistory());
+		int estimate = (x + y) << 1;
+		if(lookahead != null){
+			Tile target = (switchMatrixSink == null || foundSwitchMatrixSink) ? currSink.getTile() : switchMatrixSink.getTile();
+			estimate = lookahead.getCost(routeNode.getTile(), routeNode.getWire(), target);
+		}
+		routeNode.setCost(estimate * costScale + routeNode.getLevel());
 		
 		// Favor clock wires when routing the clock tree
 		if(isCurrSinkAClkWire && routeNode.getWireName().contains("CLK") && !isRouteThrough){
@@ -337,12 +424,37 @@ public abstract class AbstractRouter{
 	 * the usedNodesMap should not be updated
 	 */
 	protected void markIntermediateNodesAsUsed(PIP pip, Net currentNet){
+		for(Wire w : getIntermediateWires(pip)){
+			RouteNode tmp = setWireAsUsed(w.getTile(), w.getWireIndex(), currentNet);
+			if(currentNet != null) addUsedWireMapping(currentNet, tmp);
+		}
+	}
+	
+	/**
+	 * Reverses {@link #markIntermediateNodesAsUsed(PIP, Net)}, releasing the
+	 * intermediate nodes of the PIP that were used by the net.
+	 * @param pip The pip to check intermediate used nodes for
+	 * @param currentNet The net currently using the intermediate nodes
+	 */
+	protected void markIntermediateNodesAsUnused(PIP pip, Net currentNet){
+		for(Wire w : getIntermediateWires(pip)){
+			setWireAsUnused(w.getTile(), w.getWireIndex(), currentNet);
+		}
+	}
+	
+	/**
+	 * Gets the wires external to the PIP's tile that are part of the same 
+	 * nodes as the PIP wires (doubles/pents/hexes/longlines).
+	 * @param pip The pip to examine
+	 * @return The list of intermediate wires, possibly empty.
+	 */
+	protected List<Wire> getIntermediateWires(PIP pip){
+		List<Wire> intermediates = new ArrayList<Wire>();
 		List<Wire> wires = pip.getTile().getWireConnections(pip.getEndWireIndex());
 		if(wires != null && wires.size() > 1){
 			for(Wire w : wires){
 				if(!w.getTile().equals(pip.getTile())){
-					RouteNode tmp = setWireAsUsed(w.getTile(), w.getWireIndex(), currentNet);
-					if(currentNet != null) addUsedWireMapping(currentNet, tmp);
+					intermediates.add(w);
 				}
 			}
 		}
@@ -352,12 +464,12 @@ public abstract class AbstractRouter{
 			if(wires != null && wires.size() > 1){
 				for(Wire w : wires){
 					if(!w.getTile().equals(pip.getTile())){
-						RouteNode tmp = setWireAsUsed(w.getTile(), w.getWireIndex(), currentNet);
-						if(currentNet != null) addUsedWireMapping(currentNet, tmp);
+						intermediates.add(w);
 					}
 				}
 			}
 		}
+		return intermediates;
 	}
 
 	public static boolean isClkPin(SitePinInst sinkPin){
@@ -0,0 +1,566 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A pure Java conflict-driven clause learning (CDCL) SAT solver.  Uses two watched 
+ * literals for unit propagation, first unique implication point clause learning, 
+ * activity based (VSIDS) decisions with phase saving and Luby restarts.  Variables 
+ * are decided false first, which suits routing problems where most resources are unused.
+ * 
+ * Created on: Mar 3, 2021
+ */
+public class CDCLSolver implements SATSolver {
+
+	/** Number of conflicts in the first restart interval, later intervals follow the Luby sequence */
+	public static int RESTART_BASE = 100;
+	
+	/** Decay factor of variable activities, applied after each conflict */
+	public static double VARIABLE_DECAY = 0.95;
+	
+	/** Initial limit of learnt clauses relative to the number of problem clauses, half are deleted when reached */
+	public static double LEARNT_CLAUSE_RATIO = 0.33;
+	
+	private static final byte UNASSIGNED = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	
+	private static class Clause {
+		private int[] lits;
+		private boolean learnt;
+		private boolean deleted;
+		
+		private Clause(int[] lits, boolean learnt){
+			this.lits = lits;
+			this.learnt = learnt;
+		}
+	}
+	
+	private static class ClauseList {
+		private Clause[] data = new Clause[4];
+		private int size;
+		
+		private void add(Clause c){
+			if(size == data.length) data = Arrays.copyOf(data, size * 2);
+			data[size++] = c;
+		}
+	}
+	
+	/** Number of variables, literals are encoded as 2*var for positive and 2*var+1 for negative */
+	private int numVars;
+	/** Current value of each variable */
+	private byte[] assigns;
+	/** Last value of each variable, used as the value of the next decision */
+	private boolean[] polarity;
+	/** Decision level at which each variable was assigned */
+	private int[] level;
+	/** Clause that implied each variable, null for decisions */
+	private Clause[] reason;
+	/** Decision heuristic score of each variable */
+	private double[] activity;
+	/** Scratch marks used during conflict analysis */
+	private boolean[] seen;
+	/** Clauses watching each literal */
+	private ClauseList[] watches;
+	/** Assigned literals in assignment order */
+	private int[] trail;
+	private int trailSize;
+	/** Index in the trail of the next literal to propagate */
+	private int qhead;
+	/** Trail index where each decision level starts */
+	private int[] trailLim;
+	private int decisionLevel;
+	private List<Clause> clauses;
+	private List<Clause> learnts;
+	/** Unassigned variables ordered by activity */
+	private VariableHeap order;
+	private double varInc;
+	private double maxLearnts;
+	/** False once the clauses added are known to be unsatisfiable */
+	private boolean ok;
+	private boolean[] model;
+	private long conflicts;
+	private long decisions;
+	
+	private int[] learntBuffer = new int[16];
+	
+	public CDCLSolver(){
+		reset();
+	}
+	
+	@Override
+	public void reset(){
+		numVars = 0;
+		int capacity = 16;
+		assigns = new byte[capacity];
+		polarity = new boolean[capacity];
+		level = new int[capacity];
+		reason = new Clause[capacity];
+		activity = new double[capacity];
+		seen = new boolean[capacity];
+		watches = new ClauseList[capacity * 2];
+		trail = new int[capacity];
+		trailSize = 0;
+		qhead = 0;
+		trailLim = new int[capacity];
+		decisionLevel = 0;
+		clauses = new ArrayList<>();
+		learnts = new ArrayList<>();
+		order = new VariableHeap(capacity);
+		varInc = 1.0;
+		ok = true;
+		model = null;
+		conflicts = 0;
+		decisions = 0;
+	}
+	
+	@Override
+	public int newVariable(){
+		int v = ++numVars;
+		if(v >= assigns.length){
+			int capacity = assigns.length * 2;
+			assigns = Arrays.copyOf(assigns, capacity);
+			polarity = Arrays.copyOf(polarity, capacity);
+			level = Arrays.copyOf(level, capacity);
+			reason = Arrays.copyOf(reason, capacity);
+			activity = Arrays.copyOf(activity, capacity);
+			seen = Arrays.copyOf(seen, capacity);
+			watches = Arrays.copyOf(watches, capacity * 2);
+			trail = Arrays.copyOf(trail, capacity);
+			trailLim = Arrays.copyOf(trailLim, capacity);
+			order.grow(capacity);
+		}
+		watches[2*v] = new ClauseList();
+		watches[2*v+1] = new ClauseList();
+		order.insert(v);
+		return v;
+	}
+	
+	@Override
+	public int getVariableCount(){
+		return numVars;
+	}
+	
+	@Override
+	public void addClause(int... literals){
+		if(!ok) return;
+		cancelUntil(0);
+		int[] lits = new int[literals.length];
+		int size = 0;
+		nextLiteral: for(int d : literals){
+			int v = Math.abs(d);
+			if(d == 0 || v > numVars){
+				throw new RuntimeException("ERROR: Invalid literal " + d + " for a problem of " + numVars + " variables");
+			}
+			int lit = d > 0 ? 2*v : 2*v+1;
+			byte value = valueOf(lit);
+			if(value == TRUE) return;
+			if(value == FALSE) continue;
+			for(int i=0; i < size; i++){
+				if(lits[i] == lit) continue nextLiteral;
+				if(lits[i] == (lit ^ 1)) return;
+			}
+			lits[size++] = lit;
+		}
+		if(size == 0){
+			ok = false;
+		}else if(size == 1){
+			enqueue(lits[0], null);
+			ok = propagate() == null;
+		}else{
+			Clause c = new Clause(Arrays.copyOf(lits, size), false);
+			clauses.add(c);
+			attach(c);
+		}
+	}
+	
+	@Override
+	public Boolean solve(long maxConflicts){
+		model = null;
+		if(!ok) return Boolean.FALSE;
+		long start = conflicts;
+		maxLearnts = Math.max(clauses.size() * LEARNT_CLAUSE_RATIO, 1000);
+		for(int restart=0; ; restart++){
+			long limit = (long)(luby(2, restart) * RESTART_BASE);
+			if(maxConflicts > 0){
+				long remaining = maxConflicts - (conflicts - start);
+				if(remaining <= 0) return null;
+				limit = Math.min(limit, remaining);
+			}
+			Boolean status = search(limit);
+			if(status == Boolean.TRUE){
+				model = new boolean[numVars+1];
+				for(int v=1; v <= numVars; v++){
+					model[v] = assigns[v] == TRUE;
+				}
+				cancelUntil(0);
+				return Boolean.TRUE;
+			}
+			if(status == Boolean.FALSE){
+				ok = false;
+				cancelUntil(0);
+				return Boolean.FALSE;
+			}
+			maxLearnts *= 1.1;
+		}
+	}
+	
+	@Override
+	public boolean getValue(int variable){
+		if(model == null){
+			throw new RuntimeException("ERROR: No satisfying assignment is available, solve() must succeed first");
+		}
+		return model[variable];
+	}
+	
+	/**
+	 * @return The total number of conflicts encountered since the last {@link #reset()}.
+	 */
+	public long getConflictCount(){
+		return conflicts;
+	}
+	
+	/**
+	 * @return The total number of decisions made since the last {@link #reset()}.
+	 */
+	public long getDecisionCount(){
+		return decisions;
+	}
+	
+	private byte valueOf(int lit){
+		byte value = assigns[lit >> 1];
+		return (lit & 1) == 0 ? value : (byte) -value;
+	}
+	
+	private void attach(Clause c){
+		watches[c.lits[0]].add(c);
+		watches[c.lits[1]].add(c);
+	}
+	
+	private void enqueue(int lit, Clause from){
+		int v = lit >> 1;
+		assigns[v] = (lit & 1) == 0 ? TRUE : FALSE;
+		level[v] = decisionLevel;
+		reason[v] = from;
+		trail[trailSize++] = lit;
+	}
+	
+	/**
+	 * Propagates all pending assignments.
+	 * @return The conflicting clause or null if no conflict occurred.
+	 */
+	private Clause propagate(){
+		Clause conflict = null;
+		while(qhead < trailSize && conflict == null){
+			int falseLit = trail[qhead++] ^ 1;
+			ClauseList ws = watches[falseLit];
+			Clause[] data = ws.data;
+			int n = ws.size;
+			int i = 0;
+			int j = 0;
+			nextClause: while(i < n){
+				Clause c = data[i++];
+				if(c.deleted) continue;
+				int[] lits = c.lits;
+				// Make sure the false literal is in the second watch
+				if(lits[0] == falseLit){
+					lits[0] = lits[1];
+					lits[1] = falseLit;
+				}
+				int first = lits[0];
+				if(valueOf(first) == TRUE){
+					data[j++] = c;
+					continue;
+				}
+				// Look for a new literal to watch
+				for(int k=2; k < lits.length; k++){
+					if(valueOf(lits[k]) != FALSE){
+						lits[1] = lits[k];
+						lits[k] = falseLit;
+						watches[lits[1]].add(c);
+						continue nextClause;
+					}
+				}
+				// Clause is unit or conflicting
+				data[j++] = c;
+				if(valueOf(first) == FALSE){
+					conflict = c;
+					qhead = trailSize;
+					while(i < n){
+						data[j++] = data[i++];
+					}
+				}else{
+					enqueue(first, c);
+				}
+			}
+			ws.size = j;
+		}
+		return conflict;
+	}
+	
+	/**
+	 * Derives a learnt clause from a conflict (first unique implication point).
+	 * @param conflict The conflicting clause.
+	 * @return The number of literals of the learnt clause in {@link #learntBuffer}, the 
+	 * asserting literal is first and the literal with the highest remaining level second.
+	 */
+	private int analyze(Clause conflict){
+		int size = 1;
+		int pathCount = 0;
+		int p = -1;
+		int index = trailSize - 1;
+		do {
+			int[] lits = conflict.lits;
+			for(int k = (p == -1 ? 0 : 1); k < lits.length; k++){
+				int q = lits[k];
+				int v = q >> 1;
+				if(seen[v] || level[v] == 0) continue;
+				bumpActivity(v);
+				seen[v] = true;
+				if(level[v] >= decisionLevel){
+					pathCount++;
+				}else{
+					if(size == learntBuffer.length) learntBuffer = Arrays.copyOf(learntBuffer, size * 2);
+					learntBuffer[size++] = q;
+				}
+			}
+			while(!seen[trail[index] >> 1]) index--;
+			p = trail[index--];
+			conflict = reason[p >> 1];
+			seen[p >> 1] = false;
+			pathCount--;
+		} while(pathCount > 0);
+		learntBuffer[0] = p ^ 1;
+		
+		int maxIndex = 1;
+		for(int i=1; i < size; i++){
+			seen[learntBuffer[i] >> 1] = false;
+			if(level[learntBuffer[i] >> 1] > level[learntBuffer[maxIndex] >> 1]) maxIndex = i;
+		}
+		if(size > 1){
+			int tmp = learntBuffer[1];
+			learntBuffer[1] = learntBuffer[maxIndex];
+			learntBuffer[maxIndex] = tmp;
+		}
+		return size;
+	}
+	
+	/**
+	 * Runs propagation and decisions until a solution, proof of unsatisfiability or 
+	 * the conflict limit is reached.
+	 * @param maxConflicts The number of conflicts before restarting.
+	 * @return True if satisfiable, false if unsatisfiable, null to restart. 
+	 */
+	private Boolean search(long maxConflicts){
+		long searchConflicts = 0;
+		while(true){
+			Clause conflict = propagate();
+			if(conflict != null){
+				conflicts++;
+				searchConflicts++;
+				if(decisionLevel == 0) return Boolean.FALSE;
+				int size = analyze(conflict);
+				int backtrackLevel = size == 1 ? 0 : level[learntBuffer[1] >> 1];
+				cancelUntil(backtrackLevel);
+				if(size == 1){
+					enqueue(learntBuffer[0], null);
+				}else{
+					Clause c = new Clause(Arrays.copyOf(learntBuffer, size), true);
+					learnts.add(c);
+					attach(c);
+					enqueue(learntBuffer[0], c);
+				}
+				varInc /= VARIABLE_DECAY;
+			}else{
+				if(searchConflicts >= maxConflicts){
+					cancelUntil(0);
+					return null;
+				}
+				if(learnts.size() - trailSize >= maxLearnts){
+					reduceLearnts();
+				}
+				int next = pickBranchLiteral();
+				if(next == -1) return Boolean.TRUE;
+				decisions++;
+				trailLim[decisionLevel++] = trailSize;
+				enqueue(next, null);
+			}
+		}
+	}
+	
+	private int pickBranchLiteral(){
+		while(!order.isEmpty()){
+			int v = order.removeMax();
+			if(assigns[v] == UNASSIGNED){
+				return polarity[v] ? 2*v : 2*v+1;
+			}
+		}
+		return -1;
+	}
+	
+	private void cancelUntil(int targetLevel){
+		if(decisionLevel <= targetLevel) return;
+		int stop = trailLim[targetLevel];
+		for(int i=trailSize-1; i >= stop; i--){
+			int lit = trail[i];
+			int v = lit >> 1;
+			assigns[v] = UNASSIGNED;
+			reason[v] = null;
+			polarity[v] = (lit & 1) == 0;
+			if(!order.contains(v)) order.insert(v);
+		}
+		trailSize = stop;
+		qhead = stop;
+		decisionLevel = targetLevel;
+	}
+	
+	private void bumpActivity(int v){
+		if((activity[v] += varInc) > 1e100){
+			for(int i=1; i <= numVars; i++){
+				activity[i] *= 1e-100;
+			}
+			varInc *= 1e-100;
+		}
+		if(order.contains(v)) order.increased(v);
+	}
+	
+	/**
+	 * Deletes the longer half of the learnt clauses, keeping binary clauses and clauses 
+	 * that are the reason of a current assignment.
+	 */
+	private void reduceLearnts(){
+		Collections.sort(learnts, new Comparator<Clause>() {
+			public int compare(Clause a, Clause b) {
+				return Integer.compare(b.lits.length, a.lits.length);
+			}
+		});
+		int target = learnts.size() / 2;
+		int removed = 0;
+		List<Clause> kept = new ArrayList<>(learnts.size() - target);
+		for(Clause c : learnts){
+			boolean locked = reason[c.lits[0] >> 1] == c && valueOf(c.lits[0]) == TRUE;
+			if(removed < target && c.lits.length > 2 && !locked){
+				c.deleted = true;
+				removed++;
+			}else{
+				kept.add(c);
+			}
+		}
+		learnts = kept;
+	}
+	
+	private static double luby(double y, int x){
+		int size = 1;
+		int seq = 0;
+		while(size < x+1){
+			seq++;
+			size = 2*size+1;
+		}
+		while(size-1 != x){
+			size = (size-1) >> 1;
+			seq--;
+			x = x % size;
+		}
+		return Math.pow(y, seq);
+	}
+	
+	/**
+	 * Binary max-heap of variables ordered by activity.
+	 */
+	private class VariableHeap {
+		private int[] heap;
+		private int[] indices;
+		private int size;
+		
+		private VariableHeap(int capacity){
+			heap = new int[capacity];
+			indices = new int[capacity];
+			Arrays.fill(indices, -1);
+		}
+		
+		private void grow(int capacity){
+			int prev = indices.length;
+			heap = Arrays.copyOf(heap, capacity);
+			indices = Arrays.copyOf(indices, capacity);
+			Arrays.fill(indices, prev, capacity, -1);
+		}
+		
+		private boolean isEmpty(){
+			return size == 0;
+		}
+		
+		private boolean contains(int v){
+			return indices[v] >= 0;
+		}
+		
+		private void insert(int v){
+			indices[v] = size;
+			heap[size++] = v;
+			percolateUp(indices[v]);
+		}
+		
+		private void increased(int v){
+			percolateUp(indices[v]);
+		}
+		
+		private int removeMax(){
+			int v = heap[0];
+			heap[0] = heap[--size];
+			indices[heap[0]] = 0;
+			indices[v] = -1;
+			if(size > 1) percolateDown(0);
+			return v;
+		}
+		
+		private void percolateUp(int i){
+			int v = heap[i];
+			while(i > 0){
+				int parent = (i-1) >> 1;
+				if(activity[heap[parent]] >= activity[v]) break;
+				heap[i] = heap[parent];
+				indices[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = v;
+			indices[v] = i;
+		}
+		
+		private void percolateDown(int i){
+			int v = heap[i];
+			while(2*i+1 < size){
+				int child = 2*i+1;
+				if(child+1 < size && activity[heap[child+1]] > activity[heap[child]]) child++;
+				if(activity[heap[child]] <= activity[v]) break;
+				heap[i] = heap[child];
+				indices[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = v;
+			indices[v] = i;
+		}
+	}
+}
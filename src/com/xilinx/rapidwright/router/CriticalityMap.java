@@ -0,0 +1,238 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jgrapht.GraphPath;
+
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.SitePinInst;
+import com.xilinx.rapidwright.device.IntentCode;
+import com.xilinx.rapidwright.timing.TimingEdge;
+import com.xilinx.rapidwright.timing.TimingGraph;
+import com.xilinx.rapidwright.timing.TimingManager;
+import com.xilinx.rapidwright.timing.TimingModel;
+import com.xilinx.rapidwright.timing.TimingVertex;
+
+/**
+ * Keeps the timing criticality of each routed connection (sink pin) for timing-driven 
+ * routing.  The criticality of a connection is derived from the slack of the worst 
+ * {@link TimingGraph} path going through it:
+ * 
+ *     criticality = min(MAX_CRITICALITY, (1 - slack / maxDelay) ^ CRITICALITY_EXPONENT)
+ * 
+ * where maxDelay is the largest path arrival time.  Paths without a timing requirement 
+ * are treated as constrained by maxDelay.  After nets are (re)routed, 
+ * {@link #update(Collection)} recomputes the net delays of their edges with the 
+ * {@link TimingModel} and refreshes the arrival times, slacks and criticalities, either 
+ * for the whole graph or only for the paths going through the changed nets.  
+ * 
+ * Created on: Feb 8, 2021
+ */
+public class CriticalityMap {
+
+	/** Upper bound of a connection's criticality, keeps some congestion cost on critical connections */
+	public static float MAX_CRITICALITY = 0.99f;
+	
+	/** Exponent applied to the criticalities, higher values focus on the most critical connections */
+	public static float CRITICALITY_EXPONENT = 3.0f;
+	
+	private TimingManager timingManager;
+	
+	/** Net delay edges of the timing graph grouped by their physical net */
+	private Map<Net,List<TimingEdge>> edgesByNet;
+	
+	/** The timing paths going through each net delay edge */
+	private Map<TimingEdge,List<GraphPath<TimingVertex, TimingEdge>>> pathsByEdge;
+	
+	/** Net delay edges of the timing graph grouped by their sink pin */
+	private Map<SitePinInst,List<TimingEdge>> edgesBySink;
+	
+	/** 
+	 * Current criticality of each sink pin, pins not in the map have no criticality.  Pins 
+	 * are kept by identity as LUT pin swaps rename them (see {@link #refresh(SitePinInst)}).
+	 */
+	private Map<SitePinInst,Float> criticalities;
+	
+	/** Per intent code delay estimates (in ps) from the timing model */
+	private float[] intentCodeDelays;
+	
+	/** Largest path arrival time (in ps) found by the last full update */
+	private float maxDelay;
+	
+	public CriticalityMap(TimingManager timingManager){
+		this.timingManager = timingManager;
+		edgesByNet = new HashMap<Net, List<TimingEdge>>();
+		pathsByEdge = new HashMap<TimingEdge, List<GraphPath<TimingVertex,TimingEdge>>>();
+		edgesBySink = new IdentityHashMap<SitePinInst, List<TimingEdge>>();
+		criticalities = new IdentityHashMap<SitePinInst, Float>();
+		TimingGraph graph = timingManager.getTimingGraph();
+		for(GraphPath<TimingVertex, TimingEdge> path : graph.getGraphPaths()){
+			for(TimingEdge e : path.getEdgeList()){
+				if(e.getNet() == null || e.getSecondPin() == null) continue;
+				List<GraphPath<TimingVertex, TimingEdge>> paths = pathsByEdge.get(e);
+				if(paths == null){
+					paths = new ArrayList<GraphPath<TimingVertex,TimingEdge>>();
+					pathsByEdge.put(e, paths);
+					List<TimingEdge> edges = edgesByNet.get(e.getNet());
+					if(edges == null){
+						edges = new ArrayList<TimingEdge>();
+						edgesByNet.put(e.getNet(), edges);
+					}
+					edges.add(e);
+					edges = edgesBySink.get(e.getSecondPin());
+					if(edges == null){
+						edges = new ArrayList<TimingEdge>();
+						edgesBySink.put(e.getSecondPin(), edges);
+					}
+					edges.add(e);
+				}
+				paths.add(path);
+			}
+		}
+		TimingModel model = timingManager.getTimingModel();
+		IntentCode[] codes = IntentCode.values();
+		intentCodeDelays = new float[codes.length];
+		for(IntentCode code : codes){
+			intentCodeDelays[code.ordinal()] = model.getIntentCodeDelay(code);
+		}
+		update(null);
+	}
+	
+	public TimingManager getTimingManager(){
+		return timingManager;
+	}
+	
+	/**
+	 * Gets the criticality of the connection to the provided sink pin.
+	 * @param sink The sink pin of the connection.
+	 * @return The criticality between 0 (not critical) and {@link #MAX_CRITICALITY}.
+	 */
+	public float getCriticality(SitePinInst sink){
+		Float criticality = criticalities.get(sink);
+		return criticality == null ? 0 : criticality;
+	}
+	
+	/**
+	 * Gets the estimated delay of a routing node from the timing model.
+	 * @param intentCode The intent code of the node.
+	 * @return The estimated delay in picoseconds.
+	 */
+	public float getNodeDelay(IntentCode intentCode){
+		return intentCode == null ? 0 : intentCodeDelays[intentCode.ordinal()];
+	}
+	
+	/**
+	 * Gets the largest path arrival time found by the last full update. 
+	 * @return The max path delay in picoseconds.
+	 */
+	public float getMaxDelay(){
+		return maxDelay;
+	}
+	
+	/**
+	 * Recomputes the net delays of the routed nets, the resulting arrival times and slacks 
+	 * of the timing graph and the criticalities of the connections.
+	 * @param changedNets The nets that were (re)routed since the last update, only the paths 
+	 * going through them are updated.  If null, the whole timing graph is updated and the 
+	 * max path delay used to normalize slacks is recomputed.  
+	 */
+	public void update(Collection<Net> changedNets){
+		TimingGraph graph = timingManager.getTimingGraph();
+		TimingModel model = timingManager.getTimingModel();
+		Collection<Net> nets = changedNets == null ? edgesByNet.keySet() : changedNets;
+		Set<GraphPath<TimingVertex, TimingEdge>> paths = new LinkedHashSet<GraphPath<TimingVertex,TimingEdge>>();
+		for(Net net : nets){
+			List<TimingEdge> edges = edgesByNet.get(net);
+			if(edges == null) continue;
+			for(TimingEdge e : edges){
+				if(!net.getPIPs().isEmpty()){
+					e.setNetDelay(model.calcDelay(e.getFirstPin(), e.getSecondPin(), net));
+				}
+				paths.addAll(pathsByEdge.get(e));
+			}
+		}
+		if(changedNets == null){
+			graph.computeArrivalTimes();
+			graph.computeSlacks();
+			maxDelay = 0;
+			for(GraphPath<TimingVertex, TimingEdge> path : graph.getGraphPaths()){
+				maxDelay = Math.max(maxDelay, path.getEndVertex().getArrivalTime());
+			}
+			criticalities.clear();
+		}else{
+			graph.computeArrivalTimes(paths);
+			graph.computeSlacks(paths);
+		}
+		
+		Set<SitePinInst> sinks = Collections.newSetFromMap(new IdentityHashMap<SitePinInst, Boolean>());
+		for(GraphPath<TimingVertex, TimingEdge> path : paths){
+			for(TimingEdge e : path.getEdgeList()){
+				if(pathsByEdge.containsKey(e)) sinks.add(e.getSecondPin());
+			}
+		}
+		for(SitePinInst sink : sinks){
+			refresh(sink);
+		}
+	}
+	
+	/**
+	 * Recomputes the criticality of a sink pin from the current slacks of the paths going 
+	 * through it.  Must be called after the physical pin of a sink is changed 
+	 * ({@link SitePinInst#movePin(String)}, as done by LUT pin swaps) so that the 
+	 * criticality follows the connection to its new pin.
+	 * @param sink The sink pin of the connection.
+	 */
+	public void refresh(SitePinInst sink){
+		List<TimingEdge> edges = edgesBySink.get(sink);
+		if(edges == null) return;
+		// A sink pin can end more than one net delay edge, keep the worst one
+		float criticality = 0;
+		for(TimingEdge e : edges){
+			for(GraphPath<TimingVertex, TimingEdge> path : pathsByEdge.get(e)){
+				criticality = Math.max(criticality, getPathCriticality(path));
+			}
+		}
+		criticalities.put(sink, criticality);
+	}
+	
+	private float getPathCriticality(GraphPath<TimingVertex, TimingEdge> path){
+		if(maxDelay <= 0) return 0;
+		TimingVertex end = path.getEndVertex();
+		Float slack = end.getSlack();
+		if(slack == null){
+			slack = maxDelay - end.getArrivalTime();
+		}
+		float criticality = 1.0f - slack / maxDelay;
+		if(criticality <= 0) return 0;
+		criticality = (float) Math.pow(Math.min(criticality, 1.0f), CRITICALITY_EXPONENT);
+		return Math.min(criticality, MAX_CRITICALITY);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * Assigns every routing node (tile and wire pair) of a device a dense integer index.
+ * Indices are contiguous per tile, such that a node's index is the tile's base offset
+ * plus its wire index.  This allows routing state to be kept in primitive arrays
+ * rather than hash-based collections of {@link RouteNode}s.
+ * 
+ * Created on: Jan 22, 2021
+ */
+public class DeviceNodeIndex {
+
+	private static Map<String,DeviceNodeIndex> indexCache = new HashMap<String,DeviceNodeIndex>();
+	
+	private Device device;
+	
+	private int columns;
+	
+	/** Base index of each tile, by [row * columns + column] */
+	private int[] tileBase;
+	
+	/** Tiles sorted by their base index, used for reverse lookups */
+	private Tile[] tiles;
+	
+	/** Base index of each tile in {@link #tiles} */
+	private int[] sortedBase;
+	
+	private int size;
+	
+	private DeviceNodeIndex(Device device){
+		this.device = device;
+		int rows = device.getRows();
+		columns = device.getColumns();
+		tileBase = new int[rows * columns];
+		tiles = new Tile[rows * columns];
+		sortedBase = new int[rows * columns];
+		long total = 0;
+		int count = 0;
+		for(int row=0; row < rows; row++){
+			for(int col=0; col < columns; col++){
+				Tile t = device.getTile(row, col);
+				tileBase[row * columns + col] = (int) total;
+				if(t == null || t.getWireCount() == 0) continue;
+				tiles[count] = t;
+				sortedBase[count] = (int) total;
+				count++;
+				total += t.getWireCount();
+				if(total > Integer.MAX_VALUE){
+					throw new RuntimeException("ERROR: Device " + device.getName() + " has too many wires to be indexed.");
+				}
+			}
+		}
+		size = (int) total;
+		if(count < tiles.length){
+			Tile[] trimmedTiles = new Tile[count];
+			int[] trimmedBase = new int[count];
+			System.arraycopy(tiles, 0, trimmedTiles, 0, count);
+			System.arraycopy(sortedBase, 0, trimmedBase, 0, count);
+			tiles = trimmedTiles;
+			sortedBase = trimmedBase;
+		}
+	}
+	
+	/**
+	 * Gets the node index for the provided device, creating it the first time it is 
+	 * requested.
+	 * @param device The device of interest.
+	 * @return The shared node index for the device.
+	 */
+	public static synchronized DeviceNodeIndex get(Device device){
+		DeviceNodeIndex index = indexCache.get(device.getName());
+		if(index == null){
+			index = new DeviceNodeIndex(device);
+			indexCache.put(device.getName(), index);
+		}
+		return index;
+	}
+	
+	/**
+	 * @return The device being indexed.
+	 */
+	public Device getDevice(){
+		return device;
+	}
+	
+	/**
+	 * @return The total number of node indices (sum of wire counts of all tiles).
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * Gets the dense index of a tile wire.
+	 * @param tile The tile of the node.
+	 * @param wire The wire index within the tile.
+	 * @return The dense node index.
+	 */
+	public int getNodeIndex(Tile tile, int wire){
+		return tileBase[tile.getRow() * columns + tile.getColumn()] + wire;
+	}
+	
+	/**
+	 * Gets the dense index of a route node.
+	 * @param n The route node.
+	 * @return The dense node index.
+	 */
+	public int getNodeIndex(RouteNode n){
+		return getNodeIndex(n.getTile(), n.getWire());
+	}
+	
+	private int getTilePosition(int nodeIndex){
+		int lo = 0;
+		int hi = sortedBase.length - 1;
+		while(lo < hi){
+			int mid = (lo + hi + 1) >>> 1;
+			if(sortedBase[mid] <= nodeIndex){
+				lo = mid;
+			}else{
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Gets the tile of a node from its dense index.
+	 * @param nodeIndex The dense node index.
+	 * @return The tile of the node.
+	 */
+	public Tile getTile(int nodeIndex){
+		return tiles[getTilePosition(nodeIndex)];
+	}
+	
+	/**
+	 * Gets the wire (within its tile) of a node from its dense index.
+	 * @param nodeIndex The dense node index.
+	 * @return The wire index of the node.
+	 */
+	public int getWire(int nodeIndex){
+		return nodeIndex - sortedBase[getTilePosition(nodeIndex)];
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.Arrays;
+
+/**
+ * A primitive int to int hash map (open addressing, linear probing) that can be 
+ * cleared in constant time.  Each entry is stamped with the epoch in which it was 
+ * written and entries from older epochs are treated as empty.  Used to keep per-search 
+ * router state keyed by {@link DeviceNodeIndex} node indices without allocation.
+ * 
+ * Created on: Jan 25, 2021
+ */
+class EpochIntMap {
+
+	/** Value returned by {@link #get(int)} when a key is not present */
+	public static final int NOT_FOUND = -1;
+	
+	private int epoch;
+	
+	private int[] entryEpoch;
+	
+	private int[] keys;
+	
+	private int[] values;
+	
+	private int mask;
+	
+	private int size;
+	
+	/**
+	 * Creates a new map.
+	 * @param expectedSize Expected number of entries, the map grows as needed.
+	 */
+	public EpochIntMap(int expectedSize){
+		int capacity = 16;
+		while(capacity < expectedSize * 2) capacity <<= 1;
+		allocate(capacity);
+		epoch = 1;
+	}
+	
+	private void allocate(int capacity){
+		entryEpoch = new int[capacity];
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+	
+	private static int hash(int key){
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Removes all entries.
+	 */
+	public void clear(){
+		size = 0;
+		epoch++;
+		if(epoch == Integer.MAX_VALUE){
+			Arrays.fill(entryEpoch, 0);
+			epoch = 1;
+		}
+	}
+	
+	/**
+	 * @return The number of entries in the map.
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * Gets the value mapped to the key.
+	 * @param key The key to look up.
+	 * @return The value, or {@link #NOT_FOUND} if the key is not present.
+	 */
+	public int get(int key){
+		int i = hash(key) & mask;
+		while(entryEpoch[i] == epoch){
+			if(keys[i] == key) return values[i];
+			i = (i + 1) & mask;
+		}
+		return NOT_FOUND;
+	}
+	
+	/**
+	 * Maps the key to the value, replacing any previous value.
+	 * @param key The key.
+	 * @param value The value.
+	 */
+	public void put(int key, int value){
+		int i = hash(key) & mask;
+		while(entryEpoch[i] == epoch){
+			if(keys[i] == key){
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		entryEpoch[i] = epoch;
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		if(size * 2 > keys.length){
+			rehash(keys.length * 2);
+		}
+	}
+	
+	private void rehash(int capacity){
+		int[] oldEpoch = entryEpoch;
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		int currEpoch = epoch;
+		allocate(capacity);
+		epoch = 1;
+		size = 0;
+		for(int i=0; i < oldKeys.length; i++){
+			if(oldEpoch[i] == currEpoch){
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
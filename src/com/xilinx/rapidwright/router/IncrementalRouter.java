@@ -0,0 +1,246 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.SitePinInst;
+import com.xilinx.rapidwright.device.Node;
+import com.xilinx.rapidwright.device.PIP;
+
+/**
+ * A persistent routing session for ECO-style flows where small changes (such as 
+ * placement tweaks) are followed by a reroute.  The design-wide setup (marking the 
+ * existing routing as used and identifying missing static pins) is only done once 
+ * when the session is created, the node usage state is then kept between calls.  
+ * Each call rips-up and reroutes only the changed pins or nets, the routing of all 
+ * other connections is preserved.
+ * 
+ * The node each routed sink is reached by is recorded by the session, so the routing of 
+ * a sink can still be ripped-up after its pin was moved (such as a LUT pin swap).  Changes 
+ * made to the routing of the design outside of this session are not tracked and require 
+ * a new session.
+ * 
+ * Created on: Feb 15, 2021
+ */
+public class IncrementalRouter {
+
+	private Design design;
+	
+	private Router router;
+	
+	/** Node the routing of each sink ends at, kept by identity as moving a pin renames it */
+	private Map<SitePinInst,Node> sinkNodes;
+	
+	public IncrementalRouter(Design design){
+		this.design = design;
+		router = new Router(design);
+		router.identifyMissingPins();
+		sinkNodes = new IdentityHashMap<SitePinInst, Node>();
+		for(Net net : design.getNets()){
+			markNetUsed(net);
+			recordSinkNodes(net.getPins());
+		}
+	}
+	
+	public Design getDesign(){
+		return design;
+	}
+	
+	/**
+	 * Gets the router that holds the node usage state of this session.  It can be used 
+	 * to change routing settings between calls.
+	 * @return The router of this session.
+	 */
+	public Router getRouter(){
+		return router;
+	}
+	
+	/**
+	 * Marks all resources used by the net's PIPs as used by the net.
+	 * @param net The net whose routing should be marked used.
+	 */
+	private void markNetUsed(Net net){
+		for(PIP p : net.getPIPs()){
+			router.setWireAsUsed(p.getTile(), p.getStartWireIndex(), net);
+			router.setWireAsUsed(p.getTile(), p.getEndWireIndex(), net);
+			router.markIntermediateNodesAsUsed(p, net);
+		}
+	}
+	
+	/**
+	 * Records the node the routing of each routed sink pin currently ends at.
+	 * @param pins The pins to record, source and unrouted pins are ignored.
+	 */
+	private void recordSinkNodes(Collection<SitePinInst> pins){
+		for(SitePinInst p : pins){
+			if(p.isOutPin() || p.getNet() == null || !p.getNet().hasPIPs()) continue;
+			sinkNodes.put(p, p.getConnectedNode());
+		}
+	}
+	
+	/**
+	 * Removes the routing of the provided sink pins from their nets and releases the 
+	 * resources.  The routing shared with other sinks of the same net is preserved.  This 
+	 * should be called before a pin is removed from its net, a pin can be moved to another 
+	 * site pin before or after it is unrouted.
+	 * @param sinks The sink pins to unroute.
+	 */
+	public void unroutePins(Collection<SitePinInst> sinks){
+		for(SitePinInst sink : sinks){
+			if(sink.isOutPin() || sink.getNet() == null) continue;
+			ripUpSink(sink);
+			sink.setRouted(false);
+		}
+	}
+	
+	/**
+	 * Rips-up and reroutes the provided pins.  Sink pins are rerouted individually from 
+	 * the remaining routing of their nets (sinks of static nets are routed to a static 
+	 * source).  If a source pin is provided, its entire net is rerouted.
+	 * @param changedPins The pins that have changed since the last call.
+	 */
+	public void reroutePins(Collection<SitePinInst> changedPins){
+		Set<Net> netsToReroute = new LinkedHashSet<Net>();
+		for(SitePinInst p : changedPins){
+			Net net = p.getNet();
+			if(net == null) continue;
+			if(p.isOutPin()){
+				netsToReroute.add(net);
+			}
+		}
+		ArrayList<SitePinInst> sinks = new ArrayList<SitePinInst>();
+		Set<Net> sinkNets = new HashSet<Net>();
+		Map<Net,List<SitePinInst>> staticSinks = new LinkedHashMap<Net, List<SitePinInst>>();
+		for(SitePinInst p : changedPins){
+			Net net = p.getNet();
+			if(net == null || netsToReroute.contains(net)) continue;
+			if(net.isStaticNet()){
+				List<SitePinInst> netSinks = staticSinks.get(net);
+				if(netSinks == null){
+					netSinks = new ArrayList<SitePinInst>();
+					staticSinks.put(net, netSinks);
+				}
+				netSinks.add(p);
+			}else{
+				sinks.add(p);
+				sinkNets.add(net);
+			}
+		}
+		rerouteNets(netsToReroute);
+		for(Entry<Net,List<SitePinInst>> e : staticSinks.entrySet()){
+			unroutePins(e.getValue());
+			router.routeStaticSinks(e.getKey(), e.getValue());
+		}
+		unroutePins(sinks);
+		router.reserveCriticalNodes(sinks);
+		router.routeSinkPins(sinks);
+		router.dropReservedNodes(sinkNets);
+		for(List<SitePinInst> netSinks : staticSinks.values()){
+			recordSinkNodes(netSinks);
+		}
+		recordSinkNodes(sinks);
+	}
+	
+	/**
+	 * Rips-up and reroutes the provided nets entirely.
+	 * @param changedNets The nets that have changed since the last call.
+	 */
+	public void rerouteNets(Collection<Net> changedNets){
+		for(Net net : changedNets){
+			router.ripUpNet(net);
+		}
+		for(Net net : changedNets){
+			if(!router.isNetToBeRouted(net)) continue;
+			router.routeNetAndMarkUsed(net);
+			recordSinkNodes(net.getPins());
+		}
+	}
+	
+	/**
+	 * Removes the branch of the net's routing tree that only serves the provided sink.  
+	 * Starting from the node the sink was routed to (which differs from the sink's node 
+	 * if the pin was moved since), PIPs are removed towards the source until a node 
+	 * that drives other PIPs or connects to another pin of the net is reached.
+	 * @param sink The sink pin whose routing should be removed.
+	 */
+	private void ripUpSink(SitePinInst sink){
+		Net net = sink.getNet();
+		Node routedNode = sinkNodes.remove(sink);
+		if(!net.hasPIPs()) return;
+		Map<Node,PIP> driverPIPs = new HashMap<Node, PIP>();
+		Map<Node,Integer> fanout = new HashMap<Node, Integer>();
+		for(PIP p : net.getPIPs()){
+			driverPIPs.put(p.getEndNode(), p);
+			Integer count = fanout.get(p.getStartNode());
+			fanout.put(p.getStartNode(), count == null ? 1 : count + 1);
+		}
+		Set<Node> pinNodes = new HashSet<Node>();
+		for(SitePinInst p : net.getPins()){
+			if(p == sink) continue;
+			pinNodes.add(p.getConnectedNode());
+		}
+		if(net.getAlternateSource() != null){
+			pinNodes.add(net.getAlternateSource().getConnectedNode());
+		}
+		
+		List<PIP> removed = new ArrayList<PIP>();
+		Node curr = routedNode == null ? sink.getConnectedNode() : routedNode;
+		while(removed.size() < driverPIPs.size()){
+			PIP driver = driverPIPs.get(curr);
+			if(driver == null) break;
+			removed.add(driver);
+			curr = driver.getStartNode();
+			int remaining = fanout.get(curr) - 1;
+			fanout.put(curr, remaining);
+			if(remaining > 0 || pinNodes.contains(curr)) break;
+		}
+		if(removed.isEmpty()) return;
+		
+		// The start node of the last removed PIP is still used by the rest of the net
+		for(int i=0; i < removed.size(); i++){
+			PIP p = removed.get(i);
+			if(i < removed.size()-1){
+				router.setWireAsUnused(p.getTile(), p.getStartWireIndex(), net);
+			}
+			router.setWireAsUnused(p.getTile(), p.getEndWireIndex(), net);
+			router.markIntermediateNodesAsUnused(p, net);
+		}
+		Set<PIP> removedSet = new HashSet<PIP>(removed);
+		List<PIP> remainingPIPs = new ArrayList<PIP>(net.getPIPs().size() - removed.size());
+		for(PIP p : net.getPIPs()){
+			if(!removedSet.contains(p)) remainingPIPs.add(p);
+		}
+		net.setPIPs(remainingPIPs);
+	}
+}
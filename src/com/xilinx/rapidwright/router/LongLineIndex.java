@@ -0,0 +1,196 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.FamilyType;
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.TileTypeEnum;
+
+/**
+ * A per-device spatial index of the long line start wires in the interconnect 
+ * (switch box) tiles.  Interconnect tiles are bucketed on a grid by their tile 
+ * X/Y coordinates and the long line start wires of each direction are resolved once 
+ * per tile type.  This replaces looking up tiles and wires by name for every 
+ * connection when searching for long lines near a source.
+ * 
+ * Created on: Mar 1, 2021
+ */
+public class LongLineIndex {
+
+	/** Long line start wire groups by direction of travel */
+	public enum Direction {
+		EAST("EE12_BEG", 8),
+		WEST("WW12_BEG", 8),
+		NORTH("NN12_BEG", 4),
+		SOUTH("SS12_BEG", 4),
+		NORTH16("NN16_BEG", 4),
+		SOUTH16("SS16_BEG", 4);
+		
+		private String wirePrefix;
+		
+		private int count;
+		
+		private Direction(String wirePrefix, int count){
+			this.wirePrefix = wirePrefix;
+			this.count = count;
+		}
+	}
+	
+	private static final int[] EMPTY = new int[0];
+	
+	private static Map<String,LongLineIndex> indexCache = new HashMap<String,LongLineIndex>();
+	
+	/** Offsets from a source tile, sorted by Manhattan distance, by search radius */
+	private static Map<Integer,int[][]> offsetsByRadius = new HashMap<Integer,int[][]>();
+	
+	private int width;
+	
+	private int height;
+	
+	/** Interconnect tiles by [y * width + x] tile coordinates, null where there are none */
+	private Tile[] intTiles;
+	
+	/** Long line start wires by tile type, then by [direction ordinal] */
+	private Map<TileTypeEnum,int[][]> startWires;
+	
+	private boolean isVersal;
+	
+	private LongLineIndex(Device device){
+		isVersal = device.getArchitecture() == FamilyType.VERSAL;
+		List<Tile> tiles = new ArrayList<Tile>();
+		for(Tile t : device.getAllTiles()){
+			if(!t.getName().startsWith("INT_X")) continue;
+			tiles.add(t);
+			width = Math.max(width, t.getTileXCoordinate() + 1);
+			height = Math.max(height, t.getTileYCoordinate() + 1);
+		}
+		intTiles = new Tile[width * height];
+		startWires = new HashMap<TileTypeEnum, int[][]>();
+		for(Tile t : tiles){
+			intTiles[t.getTileYCoordinate() * width + t.getTileXCoordinate()] = t;
+			if(!startWires.containsKey(t.getTileTypeEnum())){
+				startWires.put(t.getTileTypeEnum(), getStartWires(t));
+			}
+		}
+	}
+	
+	/**
+	 * Gets the long line index for the provided device, creating it the first time it 
+	 * is requested.
+	 * @param device The device of interest.
+	 * @return The shared long line index for the device.
+	 */
+	public static synchronized LongLineIndex get(Device device){
+		LongLineIndex index = indexCache.get(device.getName());
+		if(index == null){
+			index = new LongLineIndex(device);
+			indexCache.put(device.getName(), index);
+		}
+		return index;
+	}
+	
+	private int[][] getStartWires(Tile tile){
+		Direction[] directions = Direction.values();
+		int[][] wires = new int[directions.length][];
+		for(Direction d : directions){
+			String prefix = isVersal ? "OUT_" + d.wirePrefix : d.wirePrefix;
+			int[] dirWires = new int[d.count];
+			int count = 0;
+			for(int k=0; k < d.count; k++){
+				int wire = tile.getWireIndex(prefix + k);
+				if(wire != -1) dirWires[count++] = wire;
+			}
+			wires[d.ordinal()] = Arrays.copyOf(dirWires, count);
+		}
+		return wires;
+	}
+	
+	/**
+	 * Gets the interconnect tile at the provided tile coordinates.
+	 * @param x The tile X coordinate.
+	 * @param y The tile Y coordinate.
+	 * @return The interconnect tile or null if there is none at those coordinates.
+	 */
+	public Tile getIntTile(int x, int y){
+		if(x < 0 || y < 0 || x >= width || y >= height) return null;
+		return intTiles[y * width + x];
+	}
+	
+	/**
+	 * Gets the long line start wires of an interconnect tile in the provided direction.
+	 * @param tile The interconnect tile.
+	 * @param direction The direction of the long lines.
+	 * @return The wire indices, possibly empty.  The array must not be modified.
+	 */
+	public int[] getStartWires(Tile tile, Direction direction){
+		int[][] wires = startWires.get(tile.getTileTypeEnum());
+		return wires == null ? EMPTY : wires[direction.ordinal()];
+	}
+	
+	/**
+	 * Gets the interconnect tiles within a radius of the source tile, towards the provided 
+	 * quadrant, ordered by increasing Manhattan distance from the source.
+	 * @param src The source tile (its own interconnect tile is included first).
+	 * @param xSign 1 to search towards increasing X coordinates, -1 otherwise. 
+	 * @param ySign 1 to search towards increasing Y coordinates, -1 otherwise.
+	 * @param radius Maximum X and Y offset (in tiles) from the source.
+	 * @return The interconnect tiles found, nearest first.
+	 */
+	public List<Tile> getNearbyIntTiles(Tile src, int xSign, int ySign, int radius){
+		int[][] offsets = getOffsets(radius);
+		List<Tile> tiles = new ArrayList<Tile>(offsets.length);
+		int x = src.getTileXCoordinate();
+		int y = src.getTileYCoordinate();
+		for(int[] offset : offsets){
+			Tile t = getIntTile(x + xSign * offset[0], y + ySign * offset[1]);
+			if(t != null) tiles.add(t);
+		}
+		return tiles;
+	}
+	
+	private static synchronized int[][] getOffsets(int radius){
+		int[][] offsets = offsetsByRadius.get(radius);
+		if(offsets == null){
+			offsets = new int[(radius+1) * (radius+1)][];
+			int i = 0;
+			for(int dx=0; dx <= radius; dx++){
+				for(int dy=0; dy <= radius; dy++){
+					offsets[i++] = new int[]{dx, dy};
+				}
+			}
+			Arrays.sort(offsets, new Comparator<int[]>() {
+				public int compare(int[] a, int[] b) {
+					return Integer.compare(a[0] + a[1], b[0] + b[1]);
+				}
+			});
+			offsetsByRadius.put(radius, offsets);
+		}
+		return offsets;
+	}
+}
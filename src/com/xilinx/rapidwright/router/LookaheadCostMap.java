@@ -0,0 +1,311 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.unsafe.UnsafeInput;
+import com.esotericsoftware.kryo.unsafe.UnsafeOutput;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.FamilyType;
+import com.xilinx.rapidwright.device.IntentCode;
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.TileTypeEnum;
+import com.xilinx.rapidwright.device.Wire;
+import com.xilinx.rapidwright.util.FileTools;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * A lookahead table for the router's A* cost function.  For each wire class 
+ * ({@link IntentCode}) it stores the minimum number of routing hops observed to 
+ * reach a tile at a given (dx, dy) tile coordinate offset.  The table is computed 
+ * by breadth first walks of the routing graph from sample interconnect tiles in 
+ * the middle of a device, and is serialized per device family next to the 
+ * {@link RouteThruHelper} cache files.  
+ * 
+ * Offsets outside the table (or not reached when it was built) fall back to the 
+ * Manhattan distance divided by the longest distance covered by a single hop seen
+ * while building the table.
+ * 
+ * Note that this is an inadmissible heuristic: the table only holds the minimum 
+ * observed from {@link #SAMPLE_TILES} tiles and {@link #SOURCES_PER_CLASS} wires 
+ * of each class, and offsets beyond {@link #RADIUS} are extrapolated, so the 
+ * estimate can exceed the true remaining cost for some wires.  It trades optimality 
+ * of each connection for fewer expanded nodes, in the same way the default 
+ * Manhattan distance estimate (two per tile) already does.
+ * 
+ * Created on: Feb 1, 2021
+ */
+public class LookaheadCostMap {
+
+	/** Largest |dx| or |dy| (in tile coordinates) stored in the table */
+	public static int RADIUS = 32;
+	
+	/** Number of interconnect tiles walked from when building the table */
+	public static int SAMPLE_TILES = 4;
+	
+	/** Number of source wires per wire class walked from in each sample tile */
+	public static int SOURCES_PER_CLASS = 8;
+	
+	/** Maximum number of nodes visited by a single walk */
+	public static int MAX_NODES_PER_WALK = 200000;
+	
+	private static final short UNREACHED = Short.MAX_VALUE;
+	
+	private static final int FILE_VERSION = 1;
+	
+	private static final String folderName = "routeThrus";
+	
+	private static Map<FamilyType,LookaheadCostMap> lookaheadCache = new HashMap<FamilyType,LookaheadCostMap>();
+	
+	/** Minimum hops by [intent code ordinal][(dy + RADIUS) * width + (dx + RADIUS)], null if unknown */
+	private short[][] table;
+	
+	private int radius;
+	
+	private int width;
+	
+	/** Longest Manhattan distance covered by a single hop */
+	private int maxTilesPerHop;
+	
+	private LookaheadCostMap(Device device){
+		String fileName = getSerializedFileName(device);
+		if(new File(fileName).exists() && readFile(fileName)){
+			return;
+		}
+		build(device);
+		writeFile(fileName);
+	}
+	
+	/**
+	 * Gets the lookahead table for the family of the provided device, loading it 
+	 * from the disk cache or building it the first time it is requested.
+	 * @param device The device being routed.
+	 * @return The shared lookahead table for the device's family.
+	 */
+	public static synchronized LookaheadCostMap get(Device device){
+		LookaheadCostMap map = lookaheadCache.get(device.getArchitecture());
+		if(map == null){
+			map = new LookaheadCostMap(device);
+			lookaheadCache.put(device.getArchitecture(), map);
+		}
+		return map;
+	}
+	
+	private static String getSerializedFileName(Device device){
+		String folder = FileTools.getRapidWrightPath() + File.separator + folderName;
+		FileTools.makeDirs(folder);
+		return folder + File.separator + device.getArchitecture() + ".la";
+	}
+	
+	private void init(int radius){
+		this.radius = radius;
+		width = 2 * radius + 1;
+		table = new short[IntentCode.values().length][];
+		maxTilesPerHop = 1;
+	}
+	
+	private List<Tile> getSampleTiles(Device device){
+		List<Tile> intTiles = new ArrayList<Tile>();
+		for(Tile t : device.getAllTiles()){
+			if(t.getTileTypeEnum() == TileTypeEnum.INT) intTiles.add(t);
+		}
+		List<Tile> samples = new ArrayList<Tile>();
+		if(intTiles.isEmpty()) return samples;
+		// Pick tiles spread around the middle of the list of INT tiles
+		int count = Math.min(SAMPLE_TILES, intTiles.size());
+		int step = Math.max(1, intTiles.size() / (2 * count));
+		int start = Math.max(0, intTiles.size() / 2 - (count / 2) * step);
+		for(int i=0; i < count; i++){
+			samples.add(intTiles.get(Math.min(intTiles.size()-1, start + i * step)));
+		}
+		return samples;
+	}
+	
+	private void build(Device device){
+		init(RADIUS);
+		DeviceNodeIndex index = DeviceNodeIndex.get(device);
+		EpochIntMap hops = new EpochIntMap(MAX_NODES_PER_WALK);
+		int[] walkQueue = new int[MAX_NODES_PER_WALK];
+		long start = System.currentTimeMillis();
+		for(Tile sample : getSampleTiles(device)){
+			int[] sourcesPerClass = new int[table.length];
+			for(int wire=0; wire < sample.getWireCount(); wire++){
+				IntentCode code = sample.getWireIntentCode(wire);
+				if(code == null || sourcesPerClass[code.ordinal()] >= SOURCES_PER_CLASS) continue;
+				List<Wire> conns = sample.getWireConnections(wire);
+				if(conns == null || conns.isEmpty()) continue;
+				sourcesPerClass[code.ordinal()]++;
+				walk(index, sample, wire, code.ordinal(), hops, walkQueue);
+			}
+		}
+		MessageGenerator.briefMessage("Built routing lookahead for " + device.getArchitecture() + " in " 
+				+ (System.currentTimeMillis() - start) + "ms");
+	}
+	
+	/**
+	 * Breadth first walk from a source wire, recording the minimum number of hops to 
+	 * each tile offset within the table radius.
+	 */
+	private void walk(DeviceNodeIndex index, Tile srcTile, int srcWire, int wireClass, EpochIntMap hops, int[] walkQueue){
+		short[] costs = table[wireClass];
+		if(costs == null){
+			costs = new short[width * width];
+			Arrays.fill(costs, UNREACHED);
+			table[wireClass] = costs;
+		}
+		int srcX = srcTile.getTileXCoordinate();
+		int srcY = srcTile.getTileYCoordinate();
+		hops.clear();
+		int head = 0;
+		int tail = 0;
+		int srcIndex = index.getNodeIndex(srcTile, srcWire);
+		hops.put(srcIndex, 0);
+		walkQueue[tail++] = srcIndex;
+		while(head < tail){
+			int curr = walkQueue[head++];
+			Tile tile = index.getTile(curr);
+			int wire = index.getWire(curr);
+			int level = hops.get(curr);
+			int dx = tile.getTileXCoordinate() - srcX;
+			int dy = tile.getTileYCoordinate() - srcY;
+			if(Math.abs(dx) <= radius && Math.abs(dy) <= radius){
+				int cell = (dy + radius) * width + (dx + radius);
+				if(level < costs[cell]) costs[cell] = (short) level;
+			}
+			// Keep walking a little past the radius, paths can leave and come back
+			if(Math.abs(dx) > 2 * radius || Math.abs(dy) > 2 * radius) continue;
+			List<Wire> conns = tile.getWireConnections(wire);
+			if(conns == null) continue;
+			for(Wire w : conns){
+				int next = index.getNodeIndex(w.getTile(), w.getWireIndex());
+				if(hops.get(next) != EpochIntMap.NOT_FOUND) continue;
+				int dist = Math.abs(w.getTile().getTileXCoordinate() - tile.getTileXCoordinate()) 
+						 + Math.abs(w.getTile().getTileYCoordinate() - tile.getTileYCoordinate());
+				if(dist > maxTilesPerHop) maxTilesPerHop = dist;
+				if(tail == walkQueue.length) return;
+				hops.put(next, level + 1);
+				walkQueue[tail++] = next;
+			}
+		}
+	}
+	
+	private void writeFile(String fileName){
+		UnsafeOutput out = FileTools.getUnsafeOutputStream(fileName);
+		out.writeInt(FILE_VERSION);
+		out.writeInt(radius);
+		out.writeInt(maxTilesPerHop);
+		int count = 0;
+		for(short[] costs : table){
+			if(costs != null) count++;
+		}
+		out.writeInt(count);
+		for(IntentCode code : IntentCode.values()){
+			short[] costs = table[code.ordinal()];
+			if(costs == null) continue;
+			out.writeString(code.toString());
+			out.writeShorts(costs, 0, costs.length);
+		}
+		out.close();
+	}
+	
+	/**
+	 * Loads the table from a cache file.  A truncated or stale file is deleted so 
+	 * that the table gets rebuilt.
+	 * @param fileName The cache file.
+	 * @return True if the table was loaded, false if it needs to be built.
+	 */
+	private boolean readFile(String fileName){
+		UnsafeInput in = null;
+		try {
+			in = FileTools.getUnsafeInputStream(fileName);
+			if(in.readInt() != FILE_VERSION) return false;
+			init(in.readInt());
+			maxTilesPerHop = in.readInt();
+			int count = in.readInt();
+			for(int i=0; i < count; i++){
+				IntentCode code = IntentCode.valueOf(in.readString());
+				table[code.ordinal()] = in.readShorts(width * width);
+			}
+		} catch (RuntimeException e) {
+			MessageGenerator.briefError("WARNING: Unable to read routing lookahead file " + fileName + ", rebuilding it.");
+			if(in != null) in.close();
+			in = null;
+			new File(fileName).delete();
+			return false;
+		} finally {
+			if(in != null) in.close();
+		}
+		return true;
+	}
+	
+	/**
+	 * Estimates the number of hops needed to reach the target tile from the 
+	 * provided wire.  This is not a guaranteed lower bound (see the class 
+	 * description).
+	 * @param tile The tile of the wire being expanded.
+	 * @param wire The wire being expanded.
+	 * @param target The tile of the routing target.
+	 * @return The estimated number of remaining hops.
+	 */
+	public int getCost(Tile tile, int wire, Tile target){
+		int dx = target.getTileXCoordinate() - tile.getTileXCoordinate();
+		int dy = target.getTileYCoordinate() - tile.getTileYCoordinate();
+		int adx = Math.abs(dx);
+		int ady = Math.abs(dy);
+		int lowerBound = (adx + ady + maxTilesPerHop - 1) / maxTilesPerHop;
+		IntentCode code = tile.getWireIntentCode(wire);
+		short[] costs = code == null ? null : table[code.ordinal()];
+		if(costs == null) return lowerBound;
+		
+		// Clamp the offset to the table and extrapolate the remainder from the Manhattan 
+		// distance, this part is only an approximation of the cost outside the table
+		int cx = Math.max(-radius, Math.min(radius, dx));
+		int cy = Math.max(-radius, Math.min(radius, dy));
+		short tableCost = costs[(cy + radius) * width + (cx + radius)];
+		if(tableCost == UNREACHED) return lowerBound;
+		int remainder = (adx - Math.abs(cx) + ady - Math.abs(cy) + maxTilesPerHop - 1) / maxTilesPerHop;
+		return Math.max(lowerBound, tableCost + remainder);
+	}
+	
+	/**
+	 * @return The longest Manhattan distance (in tile coordinates) covered by one hop.
+	 */
+	public int getMaxTilesPerHop(){
+		return maxTilesPerHop;
+	}
+	
+	public static void main(String[] args) {
+		if(args.length != 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <device name>");
+		}
+		Device device = Device.getDevice(args[0]);
+		File cached = new File(getSerializedFileName(device));
+		if(cached.exists()) cached.delete();
+		LookaheadCostMap map = LookaheadCostMap.get(device);
+		System.out.println("Wrote " + cached + " (max tiles per hop: " + map.getMaxTilesPerHop() + ")");
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * Device-wide routing node occupancy, stored as one bit per node of the device
+ * (see {@link DeviceNodeIndex}).  Usage checks are a single array read and do not 
+ * allocate.  Updates are atomic so that the occupancy can be shared by several
+ * routers running on different threads.
+ * 
+ * This class also implements {@code Set<RouteNode>} so that it can be used 
+ * wherever the routers previously kept a set of used nodes.  Iteration creates a 
+ * new {@link RouteNode} for each used node and is not intended for performance 
+ * sensitive code.
+ * 
+ * Created on: Jan 27, 2021
+ */
+public class NodeOccupancy extends AbstractSet<RouteNode> {
+
+	private DeviceNodeIndex index;
+	
+	private AtomicLongArray bits;
+	
+	private AtomicInteger count = new AtomicInteger();
+	
+	public NodeOccupancy(DeviceNodeIndex index){
+		this.index = index;
+		bits = new AtomicLongArray((index.size() >>> 6) + 1);
+	}
+	
+	/**
+	 * @return The node index used to address the occupancy bits.
+	 */
+	public DeviceNodeIndex getIndex(){
+		return index;
+	}
+	
+	/**
+	 * Checks if a node is used.
+	 * @param nodeIndex The dense index of the node.
+	 * @return True if the node is used, false otherwise.
+	 */
+	public boolean isUsed(int nodeIndex){
+		return (bits.get(nodeIndex >>> 6) & (1L << nodeIndex)) != 0;
+	}
+	
+	/**
+	 * Checks if a node is used.
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @return True if the node is used, false otherwise.
+	 */
+	public boolean isUsed(Tile tile, int wire){
+		return isUsed(index.getNodeIndex(tile, wire));
+	}
+	
+	/**
+	 * Atomically marks a node as used.
+	 * @param nodeIndex The dense index of the node.
+	 * @return True if the node was previously unused, false if it was already used.
+	 */
+	public boolean setUsed(int nodeIndex){
+		int word = nodeIndex >>> 6;
+		long mask = 1L << nodeIndex;
+		while(true){
+			long old = bits.get(word);
+			if((old & mask) != 0) return false;
+			if(bits.compareAndSet(word, old, old | mask)){
+				count.incrementAndGet();
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Atomically marks a node as unused.
+	 * @param nodeIndex The dense index of the node.
+	 * @return True if the node was previously used, false otherwise.
+	 */
+	public boolean setUnused(int nodeIndex){
+		int word = nodeIndex >>> 6;
+		long mask = 1L << nodeIndex;
+		while(true){
+			long old = bits.get(word);
+			if((old & mask) == 0) return false;
+			if(bits.compareAndSet(word, old, old & ~mask)){
+				count.decrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(Object o){
+		if(!(o instanceof RouteNode)) return false;
+		RouteNode n = (RouteNode) o;
+		return isUsed(n.getTile(), n.getWire());
+	}
+	
+	@Override
+	public boolean add(RouteNode n){
+		return setUsed(index.getNodeIndex(n));
+	}
+	
+	@Override
+	public boolean remove(Object o){
+		if(!(o instanceof RouteNode)) return false;
+		return setUnused(index.getNodeIndex((RouteNode) o));
+	}
+	
+	@Override
+	public void clear(){
+		for(int i=0; i < bits.length(); i++){
+			bits.set(i, 0L);
+		}
+		count.set(0);
+	}
+	
+	@Override
+	public int size(){
+		return count.get();
+	}
+
+	private int nextUsed(int from){
+		int word = from >>> 6;
+		if(word >= bits.length()) return -1;
+		long w = bits.get(word) & (-1L << from);
+		while(true){
+			if(w != 0){
+				int nodeIndex = (word << 6) + Long.numberOfTrailingZeros(w);
+				return nodeIndex < index.size() ? nodeIndex : -1;
+			}
+			if(++word == bits.length()) return -1;
+			w = bits.get(word);
+		}
+	}
+	
+	@Override
+	public Iterator<RouteNode> iterator(){
+		return new Iterator<RouteNode>() {
+			private int next = nextUsed(0);
+			private int last = -1;
+			public boolean hasNext() {
+				return next != -1;
+			}
+			public RouteNode next() {
+				if(next == -1) throw new NoSuchElementException();
+				last = next;
+				next = nextUsed(next + 1);
+				return new RouteNode(index.getTile(last), index.getWire(last));
+			}
+			public void remove() {
+				if(last == -1) throw new IllegalStateException();
+				setUnused(last);
+				last = -1;
+			}
+		};
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+/**
+ * A primitive int array indexed by {@link DeviceNodeIndex} node indices.  Storage is 
+ * split into fixed size pages that are only allocated when one of their entries is 
+ * first written, so only the regions of the device that are used cost memory.  Entries 
+ * that were never written read as 0.  Used to keep device-wide per-node router costs 
+ * without boxing.
+ * 
+ * Created on: Mar 16, 2021
+ */
+class PagedIntArray {
+
+	private static final int PAGE_BITS = 12;
+	
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+	
+	private int[][] pages;
+	
+	/**
+	 * Creates a new array with all entries set to 0.
+	 * @param size The number of entries (typically {@link DeviceNodeIndex#size()}).
+	 */
+	public PagedIntArray(int size){
+		pages = new int[(size >>> PAGE_BITS) + 1][];
+	}
+	
+	/**
+	 * Gets the value of an entry.
+	 * @param index The index of the entry.
+	 * @return The value, 0 if it was never written.
+	 */
+	public int get(int index){
+		int[] page = pages[index >>> PAGE_BITS];
+		return page == null ? 0 : page[index & PAGE_MASK];
+	}
+	
+	/**
+	 * Adds to the value of an entry.
+	 * @param index The index of the entry.
+	 * @param delta The amount to add.
+	 */
+	public void add(int index, int delta){
+		int[] page = pages[index >>> PAGE_BITS];
+		if(page == null){
+			page = new int[PAGE_MASK + 1];
+			pages[index >>> PAGE_BITS] = page;
+		}
+		page[index & PAGE_MASK] += delta;
+	}
+}
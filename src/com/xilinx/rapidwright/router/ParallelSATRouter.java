@@ -0,0 +1,326 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.SitePinInst;
+import com.xilinx.rapidwright.design.blocks.PBlock;
+import com.xilinx.rapidwright.device.Site;
+import com.xilinx.rapidwright.util.ParallelismTools;
+
+/**
+ * Routes a large region, or a set of pblocks, with the SAT router by decomposing it into 
+ * independent sub-problems.  Each sub-region is solved concurrently with an in-process 
+ * solver, routing the nets that have all of their pins inside it.  When a region is split 
+ * into stripes, each stripe overlaps its neighbors by a halo of {@link #SAT_HALO_COLUMNS} 
+ * tile columns so that nets crossing a stripe boundary close to it are also routed by a 
+ * sub-problem.  The solutions are then stitched together: a net solved by more than one 
+ * sub-region keeps the solution of the first one, and nets whose routes use a node or whose 
+ * LUT sinks share a LUT with nets already claimed by another sub-region are deferred.  The 
+ * accepted routes of all sub-regions are applied at once, so the LUT pin swaps they imply 
+ * are resolved together.  A second pass routes the deferred nets, the 
+ * nets of sub-regions without a solution and the nets that reach further than the halo over 
+ * the whole region around the routing already applied.
+ * 
+ * The second pass is a single sequential solve.  Designs with many nets spanning several 
+ * stripes (relative to the halo) leave most of the work to it and will see little speedup 
+ * over {@link SATRouter} (see {@link com.xilinx.rapidwright.tests.ParallelSATRouterTester}).
+ * 
+ * Created on: Mar 5, 2021
+ */
+public class ParallelSATRouter {
+
+	/** Number of sub-problems solved concurrently */
+	public static int SAT_ROUTING_THREADS = ParallelismTools.DEFAULT_THREADS;
+	
+	/** Number of tile columns each stripe extends into its neighbors when a region is split */
+	public static int SAT_HALO_COLUMNS = 8;
+	
+	private Design design;
+	/** Union of all sub-regions, used by the second pass */
+	private PBlock region;
+	private List<PBlock> subRegions;
+	private boolean unroute;
+	/** Conflict limit of each solver call, 0 for no limit */
+	private long maxConflicts = 0;
+	private int verbosity = 1;
+	
+	/**
+	 * Initializes the router with a set of pblocks, each one is a sub-problem.
+	 * @param design A placed design to route
+	 * @param subRegions The areas to route, nets routed by more than one overlapping 
+	 * sub-region keep the solution of the first one.
+	 * @param unroute Unroutes the design before routing
+	 */
+	public ParallelSATRouter(Design design, List<PBlock> subRegions, boolean unroute){
+		this.design = design;
+		this.subRegions = new ArrayList<>(subRegions);
+		this.unroute = unroute;
+		region = new PBlock();
+		for(PBlock pb : subRegions){
+			region.addAll(pb);
+		}
+	}
+	
+	/**
+	 * Initializes the router for a single large region that is split into vertical stripes
+	 * overlapping by {@link #SAT_HALO_COLUMNS} (see {@link #splitPBlock(PBlock, int, int)}), 
+	 * unroutes the design.
+	 * @param design A placed design to route
+	 * @param region The area to route.
+	 * @param numSubRegions Number of sub-problems to split the region into.
+	 */
+	public ParallelSATRouter(Design design, PBlock region, int numSubRegions){
+		this(design, splitPBlock(region, numSubRegions, SAT_HALO_COLUMNS), true);
+		this.region = region;
+	}
+	
+	/**
+	 * Splits a pblock into vertical stripes of sites with roughly the same number of 
+	 * tile columns.
+	 * @param pblock The pblock to split.
+	 * @param parts The number of stripes.
+	 * @return The non-empty stripes, from left to right.
+	 */
+	public static List<PBlock> splitPBlock(PBlock pblock, int parts){
+		return splitPBlock(pblock, parts, 0);
+	}
+	
+	/**
+	 * Splits a pblock into vertical stripes of sites with roughly the same number of 
+	 * tile columns, each stripe also includes the sites of the pblock up to halo tile 
+	 * columns to its left and right.
+	 * @param pblock The pblock to split.
+	 * @param parts The number of stripes.
+	 * @param halo The number of tile columns the stripes overlap their neighbors by.
+	 * @return The non-empty stripes, from left to right.
+	 */
+	public static List<PBlock> splitPBlock(PBlock pblock, int parts, int halo){
+		Set<Site> sites = pblock.getAllSites(null);
+		int minCol = Integer.MAX_VALUE;
+		int maxCol = Integer.MIN_VALUE;
+		for(Site s : sites){
+			minCol = Math.min(minCol, s.getTile().getColumn());
+			maxCol = Math.max(maxCol, s.getTile().getColumn());
+		}
+		parts = Math.max(1, parts);
+		int width = (maxCol - minCol) / parts + 1;
+		List<Set<Site>> stripes = new ArrayList<>(parts);
+		for(int i=0; i < parts; i++){
+			stripes.add(new HashSet<>());
+		}
+		for(Site s : sites){
+			stripes.get(Math.min(parts-1, (s.getTile().getColumn() - minCol) / width)).add(s);
+		}
+		List<PBlock> subRegions = new ArrayList<>(parts);
+		for(int i=0; i < parts; i++){
+			Set<Site> stripe = stripes.get(i);
+			if(stripe.isEmpty()) continue;
+			if(halo > 0){
+				int lo = minCol + i * width - halo;
+				int hi = minCol + (i+1) * width - 1 + halo;
+				for(Site s : sites){
+					int col = s.getTile().getColumn();
+					if(col >= lo && col <= hi) stripe.add(s);
+				}
+			}
+			subRegions.add(new PBlock(pblock.getDevice(), stripe));
+		}
+		return subRegions;
+	}
+	
+	/**
+	 * The solution of one sub-region.
+	 */
+	private static class SubProblem {
+		private SATRouter router;
+		private Map<String,List<String[]>> solution;
+	}
+	
+	/**
+	 * Routes all nets inside the region.  Sub-regions are solved concurrently, the 
+	 * consistent part of their solutions is applied and the remaining nets are routed 
+	 * in a second pass.
+	 */
+	public void route(){
+		long start = System.currentTimeMillis();
+		if(unroute) design.unrouteDesign();
+		SATRouter.routeSiteNets(design);
+		// Tile sets and masks are cached lazily, build them before sharing the pblocks across threads
+		region.getAllTiles();
+		region.getTileMask();
+		for(PBlock pb : subRegions){
+			pb.getAllTiles();
+			pb.getTileMask();
+		}
+		
+		List<Callable<SubProblem>> tasks = new ArrayList<>(subRegions.size());
+		for(PBlock pb : subRegions){
+			tasks.add(new Callable<SubProblem>() {
+				public SubProblem call() {
+					SubProblem sub = new SubProblem();
+					sub.router = new SATRouter(design, pb, false, false);
+					if(sub.router.getNetsToRoute().isEmpty()){
+						sub.solution = new HashMap<>();
+					}else{
+						SATSolver solver = new CDCLSolver();
+						sub.router.setSolver(solver);
+						sub.solution = sub.router.createRoutingProblem().solve(solver, maxConflicts);
+					}
+					return sub;
+				}
+			});
+		}
+		List<SubProblem> subProblems = ParallelismTools.invokeAll(tasks, SAT_ROUTING_THREADS);
+		
+		// Stitch sub-region solutions, the first sub-region to solve a net, use a node or 
+		// reach a LUT keeps it
+		Map<String,Integer> claimedNodes = new HashMap<>();
+		Map<String,Integer> claimedLUTs = new HashMap<>();
+		Map<String,List<String[]>> accepted = new LinkedHashMap<>();
+		SATRouter stitcher = null;
+		int deferred = 0;
+		for(int i=0; i < subProblems.size(); i++){
+			SubProblem sub = subProblems.get(i);
+			if(sub.solution == null){
+				deferred += sub.router.getNetsToRoute().size();
+				continue;
+			}
+			if(stitcher == null) stitcher = sub.router;
+			nextNet: for(Entry<String,List<String[]>> e : sub.solution.entrySet()){
+				// Nets inside the halo are solved by both neighbors
+				if(accepted.containsKey(e.getKey())) continue;
+				for(String[] pair : e.getValue()){
+					for(String node : pair){
+						Integer owner = claimedNodes.get(node);
+						if(owner != null && owner != i){
+							deferred++;
+							continue nextNet;
+						}
+					}
+				}
+				// Each sub-region permutes the inputs of the LUTs it reaches on its own
+				List<String> luts = getLUTSinks(e.getKey());
+				for(String lut : luts){
+					Integer owner = claimedLUTs.get(lut);
+					if(owner != null && owner != i){
+						deferred++;
+						continue nextNet;
+					}
+				}
+				for(String[] pair : e.getValue()){
+					claimedNodes.put(pair[0], i);
+					claimedNodes.put(pair[1], i);
+				}
+				for(String lut : luts){
+					claimedLUTs.put(lut, i);
+				}
+				accepted.put(e.getKey(), e.getValue());
+			}
+		}
+		// A LUT's pin swaps must be processed in one go, pins moved by a first call would no 
+		// longer match the names used by the routes of another sub-region
+		if(stitcher != null) stitcher.applyRoutingSolution(accepted);
+		Set<String> routedNets = accepted.keySet();
+		
+		// Second pass routes what is left over the whole region
+		SATRouter secondPass = new SATRouter(design, region, false, false);
+		List<Net> remaining = new ArrayList<>();
+		for(Net n : secondPass.getNetsToRoute()){
+			if(!routedNets.contains(n.getName())) remaining.add(n);
+		}
+		if(verbosity > 0){
+			System.out.println("Parallel SAT routing: " + subRegions.size() + " sub-regions routed " 
+				+ routedNets.size() + " nets, " + remaining.size() + " nets left for the second pass (" 
+				+ deferred + " boundary conflicts or unsolved) in " + (System.currentTimeMillis() - start) + "ms");
+		}
+		if(remaining.isEmpty()) return;
+		secondPass.setNetsToRoute(remaining);
+		secondPass.setVerbosity(verbosity);
+		secondPass.setSolver(new CDCLSolver());
+		if(maxConflicts > 0) secondPass.setMaxConflicts((int) Math.min(Integer.MAX_VALUE, maxConflicts));
+		secondPass.route();
+	}
+	
+	/**
+	 * Gets the LUTs a net drives a LUT input of.
+	 * @param netName Name of the net.
+	 * @return The site and LUT letter (ex: SLICE_X54Y44/D) of each LUT input sink.
+	 */
+	private List<String> getLUTSinks(String netName){
+		List<String> luts = new ArrayList<>();
+		Net net = design.getNet(netName);
+		if(net == null) return luts;
+		for(SitePinInst p : net.getPins()){
+			if(p.isOutPin() || !p.isLUTInputPin()) continue;
+			luts.add(p.getSiteInst().getSiteName() + "/" + p.getName().charAt(0));
+		}
+		return luts;
+	}
+	
+	public Design getDesign() {
+		return design;
+	}
+	
+	/**
+	 * @return the union of all sub-regions
+	 */
+	public PBlock getRegion() {
+		return region;
+	}
+	
+	public List<PBlock> getSubRegions() {
+		return subRegions;
+	}
+	
+	/**
+	 * @return the conflict limit of each solver call, 0 for no limit
+	 */
+	public long getMaxConflicts() {
+		return maxConflicts;
+	}
+	
+	/**
+	 * @param maxConflicts the conflict limit of each solver call, 0 for no limit
+	 */
+	public void setMaxConflicts(long maxConflicts) {
+		this.maxConflicts = maxConflicts;
+	}
+	
+	public int getVerbosity() {
+		return verbosity;
+	}
+	
+	public void setVerbosity(int verbosity) {
+		this.verbosity = verbosity;
+	}
+}
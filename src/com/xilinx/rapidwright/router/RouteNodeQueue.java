@@ -0,0 +1,289 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * A binary min-heap of {@link RouteNode}s ordered by {@link RouteNode#getCost()}, 
+ * replacing the {@code PriorityQueue<RouteNode>} with a cost comparator used by the 
+ * routing searches.  Nodes are kept in a plain array and compared on their int cost 
+ * directly, and {@link #clear()} is constant time.  
+ * 
+ * When created with a {@link DeviceNodeIndex}, the queue also tracks the heap 
+ * position of each queued node (by tile and wire) so that offering a node that is 
+ * already queued either decreases its key (if the new node is cheaper, it replaces 
+ * the queued one) or is dropped, rather than queueing the same node several times.  
+ * Searches that keep the queued node can also lower its cost in place and call 
+ * {@link #decreaseKey(RouteNode)}.
+ * 
+ * The queue keeps counters of its operations which can be used to compare search 
+ * efficiency (see {@link com.xilinx.rapidwright.tests.RouteNodeQueueBenchmark}).
+ * 
+ * Created on: Jan 25, 2021
+ */
+public class RouteNodeQueue extends AbstractQueue<RouteNode> {
+
+	private RouteNode[] heap;
+	
+	private int size;
+	
+	/** Used to identify nodes for decrease-key, null if disabled */
+	private DeviceNodeIndex index;
+	
+	/** Heap position of each queued node, by node index (-1 once removed) */
+	private EpochIntMap positions;
+	
+	private long offerCount;
+	
+	private long pollCount;
+	
+	private long decreaseKeyCount;
+	
+	private long droppedCount;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/**
+	 * Creates a queue without decrease-key support, nodes offered several times are 
+	 * queued several times.
+	 */
+	public RouteNodeQueue(){
+		this(null);
+	}
+	
+	/**
+	 * Creates a queue that identifies nodes by their index in the provided device 
+	 * node index, enabling decrease-key when a node is offered more than once.
+	 * @param index The device node index, or null to disable decrease-key.
+	 */
+	public RouteNodeQueue(DeviceNodeIndex index){
+		this.index = index;
+		heap = new RouteNode[INITIAL_CAPACITY];
+		if(index != null){
+			positions = new EpochIntMap(INITIAL_CAPACITY);
+		}
+	}
+	
+	private void setPosition(RouteNode n, int pos){
+		heap[pos] = n;
+		if(positions != null){
+			positions.put(index.getNodeIndex(n), pos);
+		}
+	}
+	
+	private void siftUp(int pos, RouteNode n){
+		int cost = n.getCost();
+		while(pos > 0){
+			int parent = (pos - 1) >>> 1;
+			RouteNode p = heap[parent];
+			if(cost >= p.getCost()) break;
+			setPosition(p, pos);
+			pos = parent;
+		}
+		setPosition(n, pos);
+	}
+	
+	private void siftDown(int pos, RouteNode n){
+		int cost = n.getCost();
+		int half = size >>> 1;
+		while(pos < half){
+			int child = (pos << 1) + 1;
+			RouteNode c = heap[child];
+			int right = child + 1;
+			if(right < size && c.getCost() > heap[right].getCost()){
+				c = heap[child = right];
+			}
+			if(cost <= c.getCost()) break;
+			setPosition(c, pos);
+			pos = child;
+		}
+		setPosition(n, pos);
+	}
+	
+	@Override
+	public boolean offer(RouteNode n){
+		if(n == null) throw new NullPointerException();
+		offerCount++;
+		if(positions != null){
+			int pos = positions.get(index.getNodeIndex(n));
+			if(pos >= 0){
+				if(n.getCost() < heap[pos].getCost()){
+					decreaseKeyCount++;
+					siftUp(pos, n);
+					return true;
+				}
+				droppedCount++;
+				return false;
+			}
+		}
+		if(size == heap.length){
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		siftUp(size++, n);
+		return true;
+	}
+	
+	/**
+	 * Same as {@link #offer(RouteNode)}, a node dropped because it is already queued at a 
+	 * lower cost is not an error.
+	 * @return True if the node was queued or replaced a queued node, false if dropped.
+	 */
+	@Override
+	public boolean add(RouteNode n){
+		return offer(n);
+	}
+	
+	/**
+	 * Checks if a node is currently in the queue (waiting to be polled).  Always false 
+	 * for a queue without decrease-key support.
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @return True if the node is queued, false otherwise.
+	 */
+	public boolean isQueued(Tile tile, int wire){
+		return positions != null && positions.get(index.getNodeIndex(tile, wire)) >= 0;
+	}
+	
+	/**
+	 * Checks if a node is currently in the queue (waiting to be polled).  Always false 
+	 * for a queue without decrease-key support.
+	 * @param n The node in question.
+	 * @return True if the node is queued, false otherwise.
+	 */
+	public boolean isQueued(RouteNode n){
+		return isQueued(n.getTile(), n.getWire());
+	}
+	
+	/**
+	 * Restores the heap order after the cost of a queued node was lowered in place.  If 
+	 * another object for the same node is queued, it is replaced by the provided one.
+	 * @param n The node whose cost was lowered.
+	 * @return True if the node is queued, false if it is not (and nothing was done).
+	 */
+	public boolean decreaseKey(RouteNode n){
+		if(positions == null) return false;
+		int pos = positions.get(index.getNodeIndex(n));
+		if(pos < 0) return false;
+		decreaseKeyCount++;
+		siftUp(pos, n);
+		return true;
+	}
+	
+	@Override
+	public RouteNode poll(){
+		if(size == 0) return null;
+		pollCount++;
+		RouteNode result = heap[0];
+		RouteNode last = heap[--size];
+		heap[size] = null;
+		if(size > 0){
+			siftDown(0, last);
+		}
+		if(positions != null){
+			positions.put(index.getNodeIndex(result), -1);
+		}
+		return result;
+	}
+
+	@Override
+	public RouteNode peek(){
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * Removes all nodes from the queue.  This does not release references to the removed 
+	 * nodes, they are overwritten as the queue is refilled. 
+	 */
+	@Override
+	public void clear(){
+		size = 0;
+		if(positions != null){
+			positions.clear();
+		}
+	}
+
+	/**
+	 * Iterates over the queued nodes in no particular order.  Removal through the 
+	 * iterator is not supported.
+	 */
+	@Override
+	public Iterator<RouteNode> iterator(){
+		return new Iterator<RouteNode>() {
+			private int i = 0;
+			public boolean hasNext() {
+				return i < size;
+			}
+			public RouteNode next() {
+				if(i >= size) throw new NoSuchElementException();
+				return heap[i++];
+			}
+		};
+	}
+	
+	/**
+	 * @return The number of times a node was offered to this queue.
+	 */
+	public long getOfferCount() {
+		return offerCount;
+	}
+
+	/**
+	 * @return The number of nodes removed from the head of the queue.
+	 */
+	public long getPollCount() {
+		return pollCount;
+	}
+
+	/**
+	 * @return The number of offers that replaced an already queued node with a cheaper one.
+	 */
+	public long getDecreaseKeyCount() {
+		return decreaseKeyCount;
+	}
+
+	/**
+	 * @return The number of offers dropped because the node was already queued at a lower cost.
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+	
+	/**
+	 * Resets all operation counters to zero.
+	 */
+	public void resetCounts(){
+		offerCount = 0;
+		pollCount = 0;
+		decreaseKeyCount = 0;
+		droppedCount = 0;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.Arrays;
+
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * Keeps the per-search state of a routing expansion (visited nodes and the nodes 
+ * created during the search) in primitive arrays keyed by the dense node index 
+ * of {@link DeviceNodeIndex}.  State is cleared between searches by incrementing an 
+ * epoch counter (see {@link EpochIntMap}) rather than by clearing collections, 
+ * and the {@link RouteNode} objects handed out are pooled and reused by subsequent 
+ * searches.  
+ * 
+ * Pooled nodes are only valid until the next call to {@link #reset()}, callers 
+ * must copy any node that needs to outlive the search.
+ * 
+ * Created on: Jan 22, 2021
+ */
+public class RouteSearchState {
+
+	private DeviceNodeIndex index;
+	
+	/** Slot of each visited node, keyed by node index */
+	private EpochIntMap slots;
+	
+	/** Pooled route nodes, one per slot */
+	private RouteNode[] pool;
+	
+	/** Number of slots visited in the current search */
+	private int size;
+	
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	public RouteSearchState(DeviceNodeIndex index){
+		this.index = index;
+		slots = new EpochIntMap(INITIAL_CAPACITY);
+		pool = new RouteNode[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * @return The node index used by this search state.
+	 */
+	public DeviceNodeIndex getIndex(){
+		return index;
+	}
+	
+	/**
+	 * Clears all visited nodes in preparation for a new search.  
+	 */
+	public void reset(){
+		size = 0;
+		slots.clear();
+	}
+	
+	/**
+	 * @return The number of nodes visited in the current search.
+	 */
+	public int size(){
+		return size;
+	}
+	
+	private void ensureCapacity(){
+		if(size == pool.length){
+			pool = Arrays.copyOf(pool, pool.length * 2);
+		}
+	}
+	
+	/**
+	 * Checks if the node has been visited in the current search.
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @return True if visited, false otherwise.
+	 */
+	public boolean isVisited(Tile tile, int wire){
+		return slots.get(index.getNodeIndex(tile, wire)) != EpochIntMap.NOT_FOUND;
+	}
+	
+	/**
+	 * Checks if the node has been visited in the current search.
+	 * @param n The node in question.
+	 * @return True if visited, false otherwise.
+	 */
+	public boolean isVisited(RouteNode n){
+		return isVisited(n.getTile(), n.getWire());
+	}
+	
+	/**
+	 * Marks a node as visited without taking a pooled node for it.
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @return True if the node was not previously visited, false otherwise.
+	 */
+	public boolean markVisited(Tile tile, int wire){
+		int nodeIndex = index.getNodeIndex(tile, wire);
+		if(slots.get(nodeIndex) != EpochIntMap.NOT_FOUND) return false;
+		ensureCapacity();
+		// The slot has no node, the pooled one would otherwise be returned by getVisited()
+		pool[size] = null;
+		slots.put(nodeIndex, size);
+		size++;
+		return true;
+	}
+	
+	/**
+	 * Gets the pooled node of a node visited in the current search, so that a cheaper
+	 * path found to it while it is still queued can update it in place.
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @return The node passed to {@link #visit(RouteNode)}, null if the node was not 
+	 * visited or was only marked with {@link #markVisited(Tile, int)}.
+	 */
+	public RouteNode getVisited(Tile tile, int wire){
+		int slot = slots.get(index.getNodeIndex(tile, wire));
+		return slot == EpochIntMap.NOT_FOUND ? null : pool[slot];
+	}
+	
+	/**
+	 * Marks a node as visited without taking a pooled node for it.
+	 * @param n The node in question.
+	 * @return True if the node was not previously visited, false otherwise.
+	 */
+	public boolean markVisited(RouteNode n){
+		return markVisited(n.getTile(), n.getWire());
+	}
+	
+	/**
+	 * Gets a pooled node, initialized with the provided values, that can be evaluated 
+	 * as a candidate for the search.  The node is not marked visited until 
+	 * {@link #visit(RouteNode)} is called and the same object will be returned by the 
+	 * next call to this method if it is not. 
+	 * @param tile The tile of the node.
+	 * @param wire The wire of the node.
+	 * @param parent The parent of the node in the search.
+	 * @param level The number of hops from the source.
+	 * @return The pooled candidate node.
+	 */
+	public RouteNode getCandidate(Tile tile, int wire, RouteNode parent, int level){
+		ensureCapacity();
+		RouteNode n = pool[size];
+		if(n == null){
+			n = new RouteNode();
+			pool[size] = n;
+		}
+		n.setTileAndWire(tile, wire);
+		n.setParent(parent);
+		n.setLevel(level);
+		n.setCost(0);
+		n.setHistory(0);
+		return n;
+	}
+	
+	/**
+	 * Marks the candidate last returned by {@link #getCandidate(Tile, int, RouteNode, int)}
+	 * as visited.  The node remains valid until the next {@link #reset()}.
+	 * @param candidate The candidate node.
+	 */
+	public void visit(RouteNode candidate){
+		int nodeIndex = index.getNodeIndex(candidate.getTile(), candidate.getWire());
+		if(pool[size] != candidate){
+			throw new RuntimeException("ERROR: Only the most recent candidate can be visited.");
+		}
+		slots.put(nodeIndex, size);
+		size++;
+	}
+}
@@ -1,12 +1,22 @@
 package com.xilinx.rapidwright.router;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map.Entry;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
-import com.esotericsoftware.kryo.unsafe.UnsafeInput;
-import com.esotericsoftware.kryo.unsafe.UnsafeOutput;
 import com.xilinx.rapidwright.design.Cell;
 import com.xilinx.rapidwright.design.Design;
 import com.xilinx.rapidwright.design.Net;
@@ -20,18 +30,31 @@ import com.xilinx.rapidwright.device.Tile;
 import com.xilinx.rapidwright.device.TileTypeEnum;
 import com.xilinx.rapidwright.device.Wire;
 import com.xilinx.rapidwright.util.FileTools;
+import com.xilinx.rapidwright.util.MessageGenerator;
+import com.xilinx.rapidwright.util.ParallelismTools;
 
 /**
  * Example of how to check if a node->node connection is a routethru
+ * 
+ * The route-through PIPs of each tile type are kept as a sorted array of 
+ * (startWire << 16 | endWire) pairs.  They are cached in a binary file that is memory 
+ * mapped when loaded, the pairs are searched directly in the mapped file without 
+ * copying them to the heap.
  */
 public class RouteThruHelper {
 
-    private HashMap<TileTypeEnum,HashSet<Integer>> routeThrus;
+    /** Sorted route-through wire pairs indexed by tile type ordinal, null if a type has none */
+    private IntBuffer[] routeThrus;
     
     private Device device; 
     
     private static final String rtName = "routeThrus";
     
+    /** Identifies the binary cache format (older caches are rebuilt) */
+    private static final int FILE_MAGIC = 0x52544832; // "RTH2"
+    
+    private static final int FILE_VERSION = 1;
+    
     private static String getSerializedFileName(Device device) {
         String folderName = FileTools.getRapidWrightPath() + File.separator + rtName;
         FileTools.makeDirs(folderName);
@@ -43,70 +66,172 @@ public class RouteThruHelper {
         init();
     }
     
+    /**
+     * Writes the cache file: a header with the name, data offset and size of each tile type's
+     * pairs followed by all pairs.
+     */
     private void writeFile() {
-        UnsafeOutput out = FileTools.getUnsafeOutputStream(getSerializedFileName(device));
-        out.writeInt(routeThrus.size());
-        for(Entry<TileTypeEnum, HashSet<Integer>> e : routeThrus.entrySet()) {
-            out.writeString(e.getKey().toString());
-            out.writeInt(e.getValue().size());
-            for(Integer i : e.getValue()) {
-                out.writeInt(i);
+        List<byte[]> names = new ArrayList<>();
+        List<IntBuffer> pairs = new ArrayList<>();
+        int headerSize = 4 * Integer.BYTES;
+        int dataSize = 0;
+        for (TileTypeEnum type : TileTypeEnum.values()) {
+            IntBuffer rtPairs = routeThrus[type.ordinal()];
+            if (rtPairs == null) continue;
+            byte[] name = type.name().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            pairs.add(rtPairs);
+            headerSize += Short.BYTES + name.length + 2 * Integer.BYTES;
+            dataSize += rtPairs.limit();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + dataSize * Integer.BYTES);
+        buffer.putInt(FILE_MAGIC);
+        buffer.putInt(FILE_VERSION);
+        buffer.putInt(names.size());
+        buffer.putInt(headerSize);
+        int offset = 0;
+        for (int i=0; i < names.size(); i++) {
+            buffer.putShort((short) names.get(i).length);
+            buffer.put(names.get(i));
+            buffer.putInt(offset);
+            buffer.putInt(pairs.get(i).limit());
+            offset += pairs.get(i).limit();
+        }
+        for (IntBuffer rtPairs : pairs) {
+            for (int i=0; i < rtPairs.limit(); i++) {
+                buffer.putInt(rtPairs.get(i));
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(Paths.get(getSerializedFileName(device)), 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
+        } catch (IOException e) {
+            MessageGenerator.briefError("WARNING: Unable to write route thru cache file: " + e.getMessage());
         }
-        out.close();
     }
     
-    private void readFile(){
-        routeThrus = new HashMap<TileTypeEnum, HashSet<Integer>>();
-        UnsafeInput in = FileTools.getUnsafeInputStream(getSerializedFileName(device));
-        int count = in.readInt();
-        for(int i=0; i < count; i++) {
-            TileTypeEnum type = TileTypeEnum.valueOf(in.readString());
-            int count2 = in.readInt();
-            HashSet<Integer> pips = new HashSet<Integer>(count2);
-            for(int j=0; j < count2; j++) {
-                pips.add(in.readInt());
+    /**
+     * Memory maps the cache file and creates views of each tile type's pairs.
+     * @return True if the file was loaded, false if it is missing or has an unknown format.
+     */
+    private boolean readFile() {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(getSerializedFileName(device)), StandardOpenOption.READ)) {
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return false;
+        }
+        if (buffer.remaining() < 4 * Integer.BYTES) return false;
+        if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) return false;
+        int count = buffer.getInt();
+        int dataStart = buffer.getInt();
+        ByteBuffer data = ((ByteBuffer) buffer.duplicate().position(dataStart)).slice();
+        IntBuffer allPairs = data.asIntBuffer();
+        IntBuffer[] loaded = new IntBuffer[TileTypeEnum.values().length];
+        for (int i=0; i < count; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            int offset = buffer.getInt();
+            int size = buffer.getInt();
+            TileTypeEnum type;
+            try {
+                type = TileTypeEnum.valueOf(new String(name, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                // Cache from a different release
+                return false;
             }
-            routeThrus.put(type, pips);
+            allPairs.limit(offset + size).position(offset);
+            loaded[type.ordinal()] = allPairs.slice();
+            allPairs.clear();
         }
+        routeThrus = loaded;
+        return true;
     }
     
     private void init() {
-        String serializedFileName = getSerializedFileName(device);
-        routeThrus = new HashMap<TileTypeEnum,HashSet<Integer>>();
-        if(new File(serializedFileName).exists()) {
-            readFile();
+        if (new File(getSerializedFileName(device)).exists() && readFile()) {
             return;
         }
-        for(Tile tile : device.getAllTiles()) {
-            if(routeThrus.containsKey(tile.getTileTypeEnum())) continue;
-            HashSet<Integer> rtPIPs = new HashSet<Integer>();
-            for(PIP p : tile.getPIPs()) {
-                if(p.isRouteThru()) {
-                    int startEndWirePair = (p.getStartWireIndex() << 16) | p.getEndWireIndex();
-                    rtPIPs.add(startEndWirePair);
+        // One representative tile per tile type, each type is then examined in parallel
+        Map<TileTypeEnum,Tile> tilesByType = new LinkedHashMap<>();
+        for (Tile tile : device.getAllTiles()) {
+            tilesByType.putIfAbsent(tile.getTileTypeEnum(), tile);
+        }
+        List<Callable<int[]>> tasks = new ArrayList<>(tilesByType.size());
+        for (Tile tile : tilesByType.values()) {
+            tasks.add(new Callable<int[]>() {
+                public int[] call() {
+                    return getRouteThruPairs(tile);
                 }
-            }
-            if(rtPIPs.size() > 0) routeThrus.put(tile.getTileTypeEnum(), rtPIPs);
+            });
+        }
+        List<int[]> results = ParallelismTools.invokeAll(tasks, ParallelismTools.DEFAULT_THREADS);
+        routeThrus = new IntBuffer[TileTypeEnum.values().length];
+        int i = 0;
+        for (TileTypeEnum type : tilesByType.keySet()) {
+            int[] rtPairs = results.get(i++);
+            if (rtPairs.length > 0) routeThrus[type.ordinal()] = IntBuffer.wrap(rtPairs);
         }
         writeFile();
     }
     
+    /**
+     * Gets the sorted (startWire << 16 | endWire) pairs of all route-through PIPs in the tile.
+     * @param tile The tile to examine.
+     * @return The sorted pairs, possibly empty.
+     */
+    private static int[] getRouteThruPairs(Tile tile) {
+        List<PIP> pips = tile.getPIPs();
+        int[] rtPairs = new int[pips.size()];
+        int count = 0;
+        for (PIP p : pips) {
+            if (p.isRouteThru()) {
+                rtPairs[count++] = (p.getStartWireIndex() << 16) | p.getEndWireIndex();
+            }
+        }
+        rtPairs = Arrays.copyOf(rtPairs, count);
+        Arrays.sort(rtPairs);
+        return rtPairs;
+    }
+    
+    /**
+     * Binary search of a pair in a sorted buffer, allocation free.
+     */
+    private static boolean contains(IntBuffer rtPairs, int key) {
+        int low = 0;
+        int high = rtPairs.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = rtPairs.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public boolean isRouteThru(Tile tile, int startWire, int endWire) {
-        HashSet<Integer> rtPairs = routeThrus.get(tile.getTileTypeEnum());
+        IntBuffer rtPairs = routeThrus[tile.getTileTypeEnum().ordinal()];
         if(rtPairs == null) return false;
-        return rtPairs.contains(startWire << 16 | endWire);
+        return contains(rtPairs, startWire << 16 | endWire);
     }
     
     public boolean isRouteThru(Node start, Node end) {
         Tile tile = end.getTile();
         int endWire = end.getWire();
-        Wire[] wiresInStartNode = start.getAllWiresInNode();
-        HashSet<Integer> rtPairs = routeThrus.get(tile.getTileTypeEnum());
+        IntBuffer rtPairs = routeThrus[tile.getTileTypeEnum().ordinal()];
         if(rtPairs == null) return false;
+        Wire[] wiresInStartNode = start.getAllWiresInNode();
         for(Wire w : wiresInStartNode) {
             if(w.getTile().equals(tile)) {
-                if(rtPairs.contains((w.getWireIndex() << 16) | endWire)) {
+                if(contains(rtPairs, (w.getWireIndex() << 16) | endWire)) {
                     return true;
                 }
             }
@@ -119,10 +244,11 @@ public class RouteThruHelper {
         for(Tile tile : device.getAllTiles()) {
             if(visited.contains(tile.getTileTypeEnum())) continue;
             visited.add(tile.getTileTypeEnum());
-            HashSet<Integer> rtPairs = routeThrus.get(tile.getTileTypeEnum());
+            IntBuffer rtPairs = routeThrus[tile.getTileTypeEnum().ordinal()];
             if(rtPairs == null) continue; 
             System.out.println(tile.getTileTypeEnum() + "(" + tile.getName() + "):");
-            for(Integer i : rtPairs) {
+            for(int j=0; j < rtPairs.limit(); j++) {
+                int i = rtPairs.get(j);
                 int startWire = i >>> 16;
                 int endWire = i & 0xffff;
                 System.out.println("  " + tile.getWireName(startWire) + " -> " + tile.getWireName(endWire));
@@ -25,16 +25,21 @@
 package com.xilinx.rapidwright.router;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import com.xilinx.rapidwright.design.Cell;
 import com.xilinx.rapidwright.design.Design;
@@ -44,6 +49,7 @@ import com.xilinx.rapidwright.design.NetType;
 import com.xilinx.rapidwright.design.SitePinInst;
 import com.xilinx.rapidwright.design.SiteInst;
 import com.xilinx.rapidwright.design.blocks.PBlock;
+import com.xilinx.rapidwright.design.blocks.TileMask;
 import com.xilinx.rapidwright.device.ClockRegion;
 import com.xilinx.rapidwright.device.BELClass;
 import com.xilinx.rapidwright.device.BELPin;
@@ -65,7 +71,9 @@ import com.xilinx.rapidwright.edif.EDIFNet;
 import com.xilinx.rapidwright.edif.EDIFNetlist;
 import com.xilinx.rapidwright.edif.EDIFPortInst;
 import com.xilinx.rapidwright.tests.CodePerfTracker;
+import com.xilinx.rapidwright.timing.TimingManager;
 import com.xilinx.rapidwright.util.MessageGenerator;
+import com.xilinx.rapidwright.util.ParallelismTools;
 import com.xilinx.rapidwright.util.Utils;
 
 
@@ -76,21 +84,65 @@ import com.xilinx.rapidwright.util.Utils;
  */
 public class Router extends AbstractRouter {
 
-	private static HashSet<String> allLongLines;
-	private static HashSet<String> intNodeQuadLongs;
-	private static HashSet<String> allExclusiveIntSinks;
 	private static HashMap<String,String> clkSitePIPNames;
-	private static HashSet<String> lutOutputPinNames;
 	
-	private static boolean allowWireOverlap = false;
+	/** Set while resolving congestion, lets connections share nodes with other nets */
+	private boolean allowWireOverlap = false;
 	
-	public static boolean ENABLE_RIPUP = false; // TODO - This mode is WIP
+	/** Enables negotiated congestion (rip-up and re-route) of connections that fail to route */
+	public static boolean ENABLE_RIPUP = false;
+	
+	/** Maximum number of negotiated congestion iterations before giving up on overused nodes */
+	public static int MAX_CONGESTION_ITERATIONS = 50;
+	
+	/** Initial cost added for each other net currently using a node during congestion resolution */
+	public static int INITIAL_PRESENT_CONGESTION_COST = 2;
+	
+	/** Multiplier applied to the present congestion cost after each iteration */
+	public static int PRESENT_CONGESTION_COST_GROWTH = 2;
+	
+	/** Cost added to a node's history for each net overusing it at the end of an iteration */
+	public static int HISTORY_CONGESTION_COST = 4;
+	
+	/** Upper bound on the present congestion cost to avoid integer overflow in node costs */
+	private static final int MAX_PRESENT_CONGESTION_COST = 1 << 16;
+	
+	/** Current cost of each other net sharing a node during congestion resolution */
+	private int presentCongestionCost;
+	
+	/** Accumulated congestion history cost of nodes that have been overused, by node index */
+	private PagedIntArray congestionHistory;
 	
 	public static boolean ENABLE_LUT_INPUT_SWAP = true;
+	
+	/** Uses the per-family {@link LookaheadCostMap} instead of the Manhattan distance to estimate 
+	 *  remaining cost (neither estimate is admissible, routes are not guaranteed to be shortest) */
+	public static boolean ENABLE_LOOKAHEAD = false;
+	
+	/** Routes the sinks of a net closest to its already routed tree first (see {@link SteinerSinkOrder}) */
+	public static boolean ENABLE_STEINER_ROUTING = false;
+	
+	/** When timing-driven, only update the timing of paths through rerouted nets between congestion iterations */
+	public static boolean INCREMENTAL_TIMING_UPDATE = true;
+	
+	/** Node delay (in ps) that costs as much as one routing hop when routing a fully critical connection */
+	public static float TIMING_DELAY_PER_HOP = 20.0f;
+	
+	/** Cost units per routing hop when routing a timing-critical connection, so small delay differences aren't rounded away */
+	public static int TIMING_COST_SCALE = 16;
+	
+	/** Connection criticalities used for timing-driven routing, null when routing is not timing-driven */
+	private CriticalityMap criticalities;
+	
+	/** Criticality of the connection currently being routed */
+	private float currCriticality;
 
 	
 	private PBlock routingPblock;
 	
+	/** Tiles of {@link #routingPblock}, used by canUseNode() as the region test */
+	private TileMask routingTileMask;
+	
 	private ArrayList<RouteNode> pathFromSinkToSwitchBox = null;
 	private boolean isCurrNetClk;
 	
@@ -98,46 +150,61 @@ public class Router extends AbstractRouter {
 
 	private boolean supressWarningsErrors = false;
 	
+	/** Number of worker threads used to route nets in routeDesign(), 1 routes sequentially */
+	private int routingThreads = 1;
+	
+	/** Flag to route nets in batches whose result does not depend on the number of threads */
+	private boolean deterministicRouting = false;
+	
+	/** Extra tiles added around each net's bounding box when partitioning nets for parallel routing */
+	public static int PARALLEL_BOUNDING_BOX_MARGIN = 3;
+	
+	/** Width and height (in tiles) of the bins used to detect overlapping bounding boxes */
+	public static int PARALLEL_BIN_SIZE = 4;
+	
+	/** Number of threads used to route the switchbox groups of static net sinks concurrently, 
+	 *  0 or less uses the router's number of routing threads (see {@link #setRoutingThreads(int)}) */
+	public static int STATIC_ROUTING_THREADS = 0;
+	
+	/** Flag to collect per-net and per-phase routing metrics (see {@link #getMetrics()}), off by default */
+	public static boolean COLLECT_ROUTER_METRICS = false;
+	
+	/** Routing metrics, shared with worker routers */
+	private RouterMetrics metrics = new RouterMetrics();
+	
+	/** Largest size of the priority queue since {@link #startNetMetrics()} */
+	private int maxQueueSize;
+	
+	private long netMetricsStart;
+	private int netMetricsConnections;
+	private int netMetricsNodes;
+	private int netMetricsFailures;
+	
+	/** Per tile type wire categories (long lines, exclusive INT sinks, ...) of the device */
+	private WireClassifier wireClasses;
+	
+	/** Long line start wires of the device's interconnect tiles, indexed by location */
+	private LongLineIndex longLineIndex;
+	
+	/** Visited nodes and pooled route nodes of the current connection search in route() */
+	private RouteSearchState searchState;
+	
+	/** Visited nodes of the clock routing searches, only used by the main router */
+	private RouteSearchState clockSearchState;
+	
+	/** Visited nodes of the long line searches (routeToLongLine() and routeLongLines()) */
+	private RouteSearchState longLineSearchState;
+	
+	/** Queue of the long line searches, reused by every search */
+	private RouteNodeQueue longLineQueue;
+	
 	/** Nets found to conflict with a particular net that will be ripped-up and re-routed */
 	private HashSet<RouteNode> conflictNodes;
 	
 	/** The additional min cost of adding a node to the queue when compared with the head */
 	int minCeilingCost = 20;
-	protected PriorityQueue<RouteNode> clockQueue;
+	protected RouteNodeQueue clockQueue;
 	static {
-		allLongLines = new HashSet<String>();
-		for(int i=0; i < 4; i++){
-			for(String endPoint : new String[]{"BEG", "END"}){
-				allLongLines.add("NN12_"+endPoint+i);
-				allLongLines.add("NN16_"+endPoint+i);
-				allLongLines.add("SS12_"+endPoint+i);
-				allLongLines.add("SS16_"+endPoint+i);
-				
-				allLongLines.add("WW12_"+endPoint+i);
-				allLongLines.add("WW12_"+endPoint+(i+4));
-				allLongLines.add("EE12_"+endPoint+i);
-				allLongLines.add("EE12_"+endPoint+(i+4));
-			}
-		}
-		
-		//INT_NODE_QUAD_LONG_#_INT_OUT -> drives Long
-		intNodeQuadLongs = new HashSet<String>();
-		for(int i=0; i < 128; i++){
-			intNodeQuadLongs.add("INT_NODE_QUAD_LONG_"+i+"_INT_OUT");
-		}
-		
-		// INT SINKS
-		allExclusiveIntSinks = new HashSet<String>();
-		for(int i=0; i < 48; i++){
-			allExclusiveIntSinks.add("IMUX_E" + i);
-			allExclusiveIntSinks.add("IMUX_W" + i);
-
-			if(i < 8){
-				allExclusiveIntSinks.add("CTRL_E_B" + i);
-				allExclusiveIntSinks.add("CTRL_W_B" + i);
-			}
-		}
-		
 		clkSitePIPNames = new HashMap<String, String>();
 		// UltraScale
 		clkSitePIPNames.put("CLK_B1", "CLK1INV");
@@ -156,13 +223,6 @@ public class Router extends AbstractRouter {
 		clkSitePIPNames.put("CLK_B", "CLKINV");
 		// Series 7
 		clkSitePIPNames.put("CLK", "CLKINV");
-		
-		lutOutputPinNames = new HashSet<String>();
-		for(String cle : new String[]{"L", "M"}){
-			for(String pin : new String[]{"A", "B", "C", "D", "E", "F", "G", "H"}){
-				lutOutputPinNames.add("CLE_CLE_"+cle+"_SITE_0_"+pin+"_O");
-			}
-		}
 	}
 
 	
@@ -170,27 +230,108 @@ public class Router extends AbstractRouter {
 		super();
 		this.design = design;
 		dev = design.getDevice();
-		clockQueue = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		searchState = new RouteSearchState(DeviceNodeIndex.get(dev));
+		wireClasses = WireClassifier.get(dev);
+		longLineIndex = LongLineIndex.get(dev);
+		if(ENABLE_LOOKAHEAD){
+			lookahead = LookaheadCostMap.get(dev);
+		}
+		initNodeOccupancy(searchState.getIndex());
+		congestionHistory = new PagedIntArray(searchState.getIndex().size());
+		longLineSearchState = new RouteSearchState(searchState.getIndex());
+		queue = new RouteNodeQueue(searchState.getIndex());
+		longLineQueue = new RouteNodeQueue(searchState.getIndex());
+		clockQueue = new RouteNodeQueue(searchState.getIndex());
+		clockSearchState = new RouteSearchState(searchState.getIndex());
+	}
+	
+	/**
+	 * Creates a worker router that shares the node usage state and settings
+	 * of the parent router.  Used to route nets concurrently.
+	 * @param parent The router that owns the routing state.
+	 */
+	private Router(Router parent){
+		super();
+		shareNodeUsage(parent);
+		// Workers share the parent's device-wide structures and only allocate
+		// their own (sparse) search state; they never route clock nets
+		wireClasses = parent.wireClasses;
+		longLineIndex = parent.longLineIndex;
+		lookahead = parent.lookahead;
+		searchState = new RouteSearchState(parent.searchState.getIndex());
+		longLineSearchState = new RouteSearchState(searchState.getIndex());
+		queue = new RouteNodeQueue(searchState.getIndex());
+		longLineQueue = new RouteNodeQueue(searchState.getIndex());
+		this.routingPblock = parent.routingPblock;
+		this.routingTileMask = parent.routingTileMask;
+		this.supressWarningsErrors = parent.supressWarningsErrors;
+		this.minCeilingCost = parent.minCeilingCost;
+		this.criticalities = parent.criticalities;
+		this.metrics = parent.metrics;
+		this.congestionHistory = parent.congestionHistory;
 	}
 	
 	public PBlock getRoutingPblock() {
 		return routingPblock;
 	}
 
+	/**
+	 * Limits routing to the tiles of a pblock.
+	 * @param routingPblock The pblock to route inside of, or null to use the whole device.
+	 */
 	public void setRoutingPblock(PBlock routingPblock) {
 		this.routingPblock = routingPblock;
+		this.routingTileMask = routingPblock == null ? null : routingPblock.getTileMask();
+	}
+	
+	/**
+	 * Enables timing-driven routing.  Each connection is routed with a cost that mixes 
+	 * the congestion/wirelength cost with the delay of the nodes according to the 
+	 * criticality of the connection.  Criticalities are recomputed from the timing graph 
+	 * after the initial routing and between congestion iterations 
+	 * (see {@link #INCREMENTAL_TIMING_UPDATE}).
+	 * @param timingManager The built timing manager of the design, or null to disable 
+	 * timing-driven routing.
+	 */
+	public void setTimingManager(TimingManager timingManager) {
+		this.criticalities = timingManager == null ? null : new CriticalityMap(timingManager);
+	}
+	
+	public TimingManager getTimingManager() {
+		return criticalities == null ? null : criticalities.getTimingManager();
+	}
+	
+	/**
+	 * Gets the connection criticalities used for timing-driven routing.
+	 * @return The criticality map or null if routing is not timing-driven.
+	 */
+	public CriticalityMap getCriticalityMap() {
+		return criticalities;
+	}
+	
+	/**
+	 * Gets the cost of moving to a node for the connection currently being routed.  This 
+	 * is one per hop, unless routing is timing-driven, in which case the cost blends in 
+	 * the node's delay in proportion to the criticality of the connection and all costs 
+	 * of the connection are in units of 1/{@link #TIMING_COST_SCALE} of a hop.
+	 * @param n The candidate node.
+	 * @return The cost to be added to the parent's level.
+	 */
+	private int getHopCost(RouteNode n){
+		if(currCriticality <= 0) return costScale;
+		float delayCost = criticalities.getNodeDelay(n.getIntentCode()) / TIMING_DELAY_PER_HOP;
+		return Math.max(1, Math.round(costScale * ((1.0f - currCriticality) + currCriticality * delayCost)));
 	}
 
 	private boolean canUseNode(RouteNode n){
-		if(usedNodes.contains(n)){
+		if(isNodeUsed(n)){
 			// Only allow over subscribed if the net is routed with this router
 			//   We don't want to rip-up nets from pre-compiled blocks, these have
 			//   already satisfied a timing constraint and should remain intact.
 			return allowWireOverlap && usedNodesMap.get(n)!= null;
 		}
 		if(routingPblock != null){
-			return routingPblock.getAllTiles().contains(n.getTile());
+			return routingTileMask != null && routingTileMask.contains(n.getTile());
 		}
 		return true;
 	}
@@ -198,15 +339,98 @@ public class Router extends AbstractRouter {
 	
 	public static final int LONG_LINE_THRESHOLD = 11;
 	
+	/** Maximum X and Y distance (in tiles) from a source that is searched for long lines */
+	public static int LONG_LINE_SEARCH_RADIUS = 4;
+	
+	/** Number of nearest long line candidates gathered for a long distance connection */
+	public static int MAX_LONG_LINE_CANDIDATES = 32;
+	
+	/** Flag to limit each connection search to a bounding box around its source and sink */
+	public static boolean ENABLE_BOUNDING_BOX_SEARCH = true;
+	
+	/** Tiles added around the source and sink of a connection for its first bounding box */
+	public static int CONNECTION_BOUNDING_BOX_MARGIN = 6;
+	
+	/** Factor by which the bounding box margin grows each time a bounded search fails */
+	public static int CONNECTION_BOUNDING_BOX_GROWTH = 2;
+	
+	/** Number of bounded searches tried before a last search over the whole device */
+	public static int CONNECTION_BOUNDING_BOX_STEPS = 3;
+	
+	/** Flag to update a queued node reached again by a cheaper path instead of ignoring the new path */
+	public static boolean ENABLE_DECREASE_KEY = true;
+	
+	/** Set when the current connection search is limited to the bounding box below */
+	private boolean boundingBoxLimited;
+	
+	private int boundingBoxMinCol;
+	private int boundingBoxMaxCol;
+	private int boundingBoxMinRow;
+	private int boundingBoxMaxRow;
+	
+	/** Number of candidate nodes rejected by the bounding box during the current search */
+	private int boundingBoxPruned;
+	
+	/**
+	 * Routes the current connection, limiting the search to a bounding box around the 
+	 * net's source and the sink (see {@link #ENABLE_BOUNDING_BOX_SEARCH}).  If the search
+	 * fails after having rejected nodes outside of the box, the margin is multiplied by
+	 * {@link #CONNECTION_BOUNDING_BOX_GROWTH} and the search is run again, up to 
+	 * {@link #CONNECTION_BOUNDING_BOX_STEPS} times before a final unbounded search.  The
+	 * outcome of each step is recorded in the router metrics.
+	 */
+	protected void routeConnection(){
+		SitePinInst source = currNet.getSource();
+		if(!ENABLE_BOUNDING_BOX_SEARCH || isCurrSinkAClkWire || source == null){
+			boundingBoxLimited = false;
+			routeConnectionSearch();
+			return;
+		}
+		Tile src = source.getTile();
+		Tile snk = currSink.getTile();
+		int margin = CONNECTION_BOUNDING_BOX_MARGIN;
+		for(int step=0; ; step++){
+			boundingBoxLimited = step < CONNECTION_BOUNDING_BOX_STEPS;
+			boundingBoxMinCol = Math.min(src.getColumn(), snk.getColumn()) - margin;
+			boundingBoxMaxCol = Math.max(src.getColumn(), snk.getColumn()) + margin;
+			boundingBoxMinRow = Math.min(src.getRow(), snk.getRow()) - margin;
+			boundingBoxMaxRow = Math.max(src.getRow(), snk.getRow()) + margin;
+			boundingBoxPruned = 0;
+			routeConnectionSearch();
+			if(COLLECT_ROUTER_METRICS){
+				metrics.recordBoundingBoxStep(step, boundingBoxLimited ? margin : -1, successfulRoute, nodesProcessed);
+			}
+			// A larger box can only help if this one cut the search short
+			if(successfulRoute || !boundingBoxLimited || boundingBoxPruned == 0) break;
+			margin *= CONNECTION_BOUNDING_BOX_GROWTH;
+		}
+		boundingBoxLimited = false;
+	}
+	
+	/**
+	 * Checks if the tile is inside the bounding box of the current connection search.
+	 * @param t The tile in question.
+	 * @return True if the tile is inside of the bounding box, false otherwise.
+	 */
+	private boolean isInBoundingBox(Tile t){
+		int col = t.getColumn();
+		int row = t.getRow();
+		return col >= boundingBoxMinCol && col <= boundingBoxMaxCol 
+				&& row >= boundingBoxMinRow && row <= boundingBoxMaxRow;
+	}
+	
 	/**
 	 * Prepares the class variables for the route() method. Sets everything up
-	 * for each connection to be made. This method is called for each connection
-	 * in a net by routeNet(). It calls route() once the variables are ready
-	 * for routing.
+	 * for each connection to be made. This method is called for each search
+	 * of a connection by routeConnection(). It calls route() once the variables 
+	 * are ready for routing.
 	 * 
 	 */
-	protected void routeConnection(){
+	private void routeConnectionSearch(){
+		currCriticality = criticalities == null ? 0 : criticalities.getCriticality(currSinkPin);
+		costScale = currCriticality > 0 ? TIMING_COST_SCALE : 1;
 		prepareForRoutingConnection();
+		searchState.reset();
 
 		// Check if we should route on just longs
 		RouteNode bestSrc = queue.peek();
@@ -222,6 +446,8 @@ public class Router extends AbstractRouter {
 			}*/
 			for(RouteNode ll : longLineNodes){
 				if(ll.getConnections() != null){
+					// Long line levels are in hops
+					ll.setLevel(ll.getLevel() * costScale);
 					setCost(ll, false);
 					// Long line router doesn't null out parent refs
 					if(currSources.contains(ll)){
@@ -252,6 +478,14 @@ public class Router extends AbstractRouter {
 		return curr;
 	}
 	
+	/**
+	 * Finds unused long line start nodes near the source, in the direction(s) of the sink.  The
+	 * interconnect tiles within {@link #LONG_LINE_SEARCH_RADIUS} tiles of the source (towards 
+	 * the sink) are examined nearest first using the device's {@link LongLineIndex}.
+	 * @param src The switch box node to start from.
+	 * @param snk The node to reach.
+	 * @return Up to {@link #MAX_LONG_LINE_CANDIDATES} long line start nodes, nearest first.
+	 */
 	private ArrayList<RouteNode> findNearestLongLines(RouteNode src, RouteNode snk){
 		
 		ArrayList<RouteNode> longLines = new ArrayList<RouteNode>();
@@ -261,91 +495,39 @@ public class Router extends AbstractRouter {
 		int absY = Math.abs(y);
 		boolean use16LongLines = absY > 14 && isUltraScale;
 		int absX = Math.abs(x);
-		String longLineName = null;
-		String longLineNameAlt = null;
-		int range = 4;
-		int rangeAlt = 4;
-		if(absX > absY){
-			if(x < 0){
-				longLineName = "EE12_BEG";
-				range = 8;
-			}
-			else{
-				longLineName = "WW12_BEG";
-				range = 8;
-			}
-		}
-		else{
-			if(y < 0){
-				longLineName = use16LongLines ? "NN16_BEG" : "NN12_BEG";
-			}
-			else{
-				longLineName = use16LongLines ? "SS16_BEG" : "SS12_BEG";
-			}
-		}
-		if(absX > LONG_LINE_THRESHOLD && absY > LONG_LINE_THRESHOLD){
-			if(absX < absY){
-				if(x < 0){
-					longLineNameAlt = "EE12_BEG";
-					rangeAlt = 8;
-				}
-				else{
-					longLineNameAlt = "WW12_BEG";
-					rangeAlt = 8;
-				}
-			}
-			else{
-				if(y < 0){
-					longLineNameAlt = use16LongLines ? "NN16_BEG" : "NN12_BEG";
-				}
-				else{
-					longLineNameAlt = use16LongLines ? "SS16_BEG" : "SS12_BEG";
-				}
-			}
+		LongLineIndex.Direction horizontal = x < 0 ? LongLineIndex.Direction.EAST : LongLineIndex.Direction.WEST;
+		LongLineIndex.Direction vertical;
+		if(y < 0){
+			vertical = use16LongLines ? LongLineIndex.Direction.NORTH16 : LongLineIndex.Direction.NORTH;
 		}else{
-			rangeAlt = 0;
+			vertical = use16LongLines ? LongLineIndex.Direction.SOUTH16 : LongLineIndex.Direction.SOUTH;
 		}
-		if(design.getDevice().getArchitecture() == FamilyType.VERSAL) {
-			longLineName = "OUT_" + longLineName; 
-			longLineNameAlt = "OUT_" + longLineNameAlt;
+		LongLineIndex.Direction direction = absX > absY ? horizontal : vertical;
+		LongLineIndex.Direction directionAlt = null;
+		if(absX > LONG_LINE_THRESHOLD && absY > LONG_LINE_THRESHOLD){
+			directionAlt = absX < absY ? horizontal : vertical;
 		}
 		
 		RouteNode longLineStart = new RouteNode();
-		RouteNode longLineStartAlt = new RouteNode();
-
-		
-		int tileX = src.getTile().getTileXCoordinate();
-		int tileY = src.getTile().getTileYCoordinate();
-		
-		int diffX = tileX - snk.getTile().getTileXCoordinate();
-		int diffY = tileY - snk.getTile().getTileYCoordinate();
-		
-		for(int i = 0; i < 5; i++){
-			for(int j = 0; j < 5; j++){
-				String tileName = null;
-				if(diffX < 0 && diffY < 0) tileName = "INT_X" + (tileX + i) + "Y" + (tileY + j);
-				if(diffX >= 0 && diffY < 0) tileName = "INT_X" + (tileX - i) + "Y" + (tileY + j);
-				if(diffX < 0 && diffY >= 0) tileName = "INT_X" + (tileX + i) + "Y" + (tileY - j);
-				if(diffX >= 0 && diffY >= 0) tileName = "INT_X" + (tileX - i) + "Y" + (tileY - j);
-				Tile tile = dev.getTile(tileName);
-				if(tile != null){
-					longLineStart.setTile(tile);
-					for(int k=0; k < range; k++){
-						
-						longLineStart.setWire(longLineStart.getWireIndex(longLineName + k));
-						if(canUseNode(longLineStart)){
-							longLines.add(new RouteNode(tile, longLineStart.getWire()));
-						}					
-					}
-					longLineStartAlt.setTile(tile);
-					for(int k=0; k < rangeAlt; k++){
-						longLineStartAlt.setWire(longLineStart.getWireIndex(longLineNameAlt + k));
-						if(canUseNode(longLineStartAlt)){
-							longLines.add(new RouteNode(tile, longLineStartAlt.getWire()));
-						}						
+		int xSign = x < 0 ? 1 : -1;
+		int ySign = y < 0 ? 1 : -1;
+		for(Tile tile : longLineIndex.getNearbyIntTiles(src.getTile(), xSign, ySign, LONG_LINE_SEARCH_RADIUS)){
+			longLineStart.setTile(tile);
+			for(int wire : longLineIndex.getStartWires(tile, direction)){
+				longLineStart.setWire(wire);
+				if(canUseNode(longLineStart)){
+					longLines.add(new RouteNode(tile, wire));
+				}
+			}
+			if(directionAlt != null){
+				for(int wire : longLineIndex.getStartWires(tile, directionAlt)){
+					longLineStart.setWire(wire);
+					if(canUseNode(longLineStart)){
+						longLines.add(new RouteNode(tile, wire));
 					}
 				}
 			}
+			if(longLines.size() >= MAX_LONG_LINE_CANDIDATES) break;
 		}
 		
 		return longLines;
@@ -353,13 +535,11 @@ public class Router extends AbstractRouter {
 	
 	private RouteNode routeToLongLine(RouteNode src, RouteNode snk, HashSet<RouteNode> allNearestLongLines){
 		int[] distCost = {2, 3, 3, 3, 4, 5, 6, 6, 6, 6, 6, 6, 6, 6};
-		RouteNode tmp = new RouteNode();
-		HashSet<RouteNode> visited = new HashSet<RouteNode>();
-		PriorityQueue<RouteNode> longlineQueue = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
-		longlineQueue.add(src);
-		RouteNode currNode = longlineQueue.remove();
-		visited.add(currNode);
+		longLineSearchState.reset();
+		longLineQueue.clear();
+		longLineQueue.add(src);
+		RouteNode currNode = longLineQueue.remove();
+		longLineSearchState.markVisited(currNode.getTile(), currNode.getWire());
 		int nodeCount = 0;
 		int limit = distCost[src.getManhattanDistance(snk)] + 2;
 		boolean debug = false;
@@ -370,26 +550,27 @@ public class Router extends AbstractRouter {
 			if(conns != null && currNode.getLevel() <= limit){
 				for(Wire wc : conns){
 					if(IntentCode.NODE_PINFEED == wc.getIntentCode()) continue;
-					tmp.setTileAndWire(wc.getTile(), wc.getWireIndex());
-					
-					if(visited.contains(tmp)) continue;
-					if(!canUseNode(tmp)) continue;
+					// Queued nodes can still be reached cheaper, the queue keeps the cheaper one
+					if(longLineSearchState.isVisited(wc.getTile(), wc.getWireIndex()) 
+							&& !longLineQueue.isQueued(wc.getTile(), wc.getWireIndex())) continue;
+					tempNode.setTileAndWire(wc.getTile(), wc.getWireIndex());
+					if(!canUseNode(tempNode)) continue;
 					RouteNode n = new RouteNode(wc.getTile(),wc.getWireIndex(), currNode, currNode.getLevel()+1); 
 					
 					n.setCost(n.getManhattanDistance(snk)*2 + n.getLevel());
 					if(allNearestLongLines.contains(n)/*n.equals(snk)*/){
 						n.setCost(-1000);
 					}
-					longlineQueue.add(n);
+					longLineQueue.add(n);
 					if(debug) System.out.println("   -> " + n.toString());
-					visited.add(n);
+					longLineSearchState.markVisited(n.getTile(), n.getWire());
 					nodeCount++;
 				}				
 			}
-			if(longlineQueue.isEmpty() || nodeCount > 1000) {
+			if(longLineQueue.isEmpty() || nodeCount > 1000) {
 				return null;
 			}
-			currNode = longlineQueue.remove();
+			currNode = longLineQueue.remove();
 			//System.out.println(MessageGenerator.makeWhiteSpace(currNode.level) + currNode.toString(we));
 		}
 		if(debug){
@@ -433,15 +614,14 @@ public class Router extends AbstractRouter {
 		int y = end.getTile().getTileYCoordinate() - snk.getTile().getTileYCoordinate();
 		int watchDog = 100; // TODO - change later
 		RouteNode tmp = new RouteNode();
-		HashSet<RouteNode> visited = new HashSet<RouteNode>();
+		longLineSearchState.reset();
 		RouteNode closest = new RouteNode();
 		
 		boolean debug = false;
 
 		// Keep following long lines until we get within the long line 
 		// threshold limit
-		PriorityQueue<RouteNode> longLineQueue = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		longLineQueue.clear();
 		end.setCost(end.getTile().getManhattanDistance(snk.getTile()));
 		longLineQueue.add(end);
 		closest = end;
@@ -460,11 +640,10 @@ public class Router extends AbstractRouter {
 			for(Wire wc : end.getConnections()){
 				// TODO - Categorize UltraScale Long Line Wires
 				//if(we.getWireType(wc.getWire()).equals(WireType.LONG)){// && (wireName.contains("0") || wireName.contains("18"))){
-				String wireName = wc.getWireName();
-				if(intNodeQuadLongs.contains(wireName) || allLongLines.contains(wireName)){
+				if(wireClasses.isQuadLongDriver(wc.getTile(), wc.getWireIndex()) || wireClasses.isLongLine(wc.getTile(), wc.getWireIndex())){
 					tmp.setTileAndWire(wc);
-					if(debug) System.out.println(MessageGenerator.makeWhiteSpace(end.getLevel()) +" -> "+ tmp.toString() +" "+ visited.contains(tmp) +" "+ usedNodes.contains(tmp));
-					if(visited.contains(tmp)) continue;
+					if(debug) System.out.println(MessageGenerator.makeWhiteSpace(end.getLevel()) +" -> "+ tmp.toString() +" "+ longLineSearchState.isVisited(tmp) +" "+ usedNodes.contains(tmp));
+					if(longLineSearchState.isVisited(tmp) && !longLineQueue.isQueued(tmp)) continue;
 					if(!canUseNode(tmp)) continue;
 					
 					int tmpX = tmp.getTile().getTileXCoordinate() - snk.getTile().getTileXCoordinate();
@@ -484,7 +663,7 @@ public class Router extends AbstractRouter {
 					start.setParent(end);
 					start.setCost(start.getTile().getManhattanDistance(snk.getTile()));
 					longLineQueue.add(start);
-					visited.add(start);
+					longLineSearchState.markVisited(start.getTile(), start.getWire());
 				}
 			}
 			if(debug) System.out.println(MessageGenerator.makeWhiteSpace(end.getLevel()) + "NEXT: " + end.toString() + ": CLOSEST=" + closest.toString());
@@ -539,10 +718,10 @@ public class Router extends AbstractRouter {
 	/**
 	 * The heart of the router, it does the actual routing by consuming nodes on
 	 * the priority queue and determining how to proceed to the sink. It is
-	 * called by routeConnection().
+	 * called by routeConnectionSearch().
 	 */
 	protected void route(){	
-		int ceilingCost = (isCurrSinkAClkWire || currSinkPin.getSiteTypeEnum().equals(SiteTypeEnum.BUFGCTRL)) ? 2000 : minCeilingCost;
+		int ceilingCost = costScale * ((isCurrSinkAClkWire || currSinkPin.getSiteTypeEnum().equals(SiteTypeEnum.BUFGCTRL)) ? 2000 : minCeilingCost);
 		
 		// Iterate through all of the nodes in the queue, adding potential candidate nodes 
 		// as we go along. We are finished when we find the sink node.
@@ -553,6 +732,7 @@ public class Router extends AbstractRouter {
 				// If we haven't found a route by now, we probably never will
 				return;
 			}
+			if(queue.size() > maxQueueSize) maxQueueSize = queue.size();
 			RouteNode currNode = queue.remove();
 			if(debug) System.out.println(MessageGenerator.makeWhiteSpace(currNode.getLevel()) + currNode.toString() + " " + currNode.getIntentCode() + " *DQ*");
 			nodesProcessed++;
@@ -577,7 +757,7 @@ public class Router extends AbstractRouter {
 					while(currPathNode.getParent() != null){
 						if(allowWireOverlap){
 							if(usedNodes.contains(currPathNode)){
-								conflictNodes.add(currPathNode);
+								conflictNodes.add(new RouteNode(currPathNode.getTile(), currPathNode.getWire()));
 							}
 						}
 						for(Wire w1 : currPathNode.getParent().getTile().getWireConnections(currPathNode.getParent().getWire())){
@@ -668,25 +848,52 @@ public class Router extends AbstractRouter {
 					}
 
 					// Don't follow INT tile sinks 
-					if(allExclusiveIntSinks.contains(currTile.getWireName(currWire)) && 
+					if(wireClasses.isExclusiveIntSink(currTile, currWire) && 
 						switchMatrixSink != null && 
 						!currTile.equals(switchMatrixSink.getTile())){
 						continue;
 					}
 					
-					RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
-					// Check if this node has already been visited, if so don't add it
-					if(!visitedNodes.contains(tmp) && canUseNode(tmp)){
+					// Stay inside of the connection's bounding box
+					if(boundingBoxLimited && !isInBoundingBox(currTile)){
+						boundingBoxPruned++;
+						continue;
+					}
+					
+					// Check if this node has already been visited, if so only a queued node 
+					// can still be updated with a cheaper path (decrease-key)
+					RouteNode visited = null;
+					if(searchState.isVisited(currTile, currWire)){
+						if(!ENABLE_DECREASE_KEY) continue;
+						visited = searchState.getVisited(currTile, currWire);
+						if(visited == null || !queue.isQueued(visited)) continue;
+					}
+					RouteNode tmp = searchState.getCandidate(currTile, currWire, currNode, currNode.getLevel()+1);
+					if(currCriticality > 0){
+						tmp.setLevel(currNode.getLevel() + getHopCost(tmp));
+					}
+					if(canUseNode(tmp)){
 						// Make sure we haven't used this node already
-						if(tmp.getTile().getWireCount() > 0 && tmp.getConnections() != null){
+						if(currTile.getWireCount() > 0 && tmp.getConnections() != null){
+							if(allowWireOverlap){
+								// Present and history congestion accumulate along the path (g-cost)
+								tmp.setLevel(tmp.getLevel() + costScale * getCongestionCost(tmp));
+							}
 							// This looks like a possible candidate for our next node, we'll add it
 							setCost(tmp, w.isRouteThru());
 							if(debug){ 
 								System.out.println(MessageGenerator.makeWhiteSpace(currNode.getLevel()) 
 										+ " -> " + tmp + " " + tmp.getIntentCode());
 							}
-							if(queue.isEmpty() || tmp.getCost() < (queue.peek().getCost() + ceilingCost)){
-								visitedNodes.add(tmp);
+							if(visited != null){
+								if(tmp.getCost() < visited.getCost()){
+									visited.setParent(currSources.contains(visited) ? null : currNode);
+									visited.setLevel(tmp.getLevel());
+									visited.setCost(tmp.getCost());
+									queue.decreaseKey(visited);
+								}
+							}else if(queue.isEmpty() || tmp.getCost() < (queue.peek().getCost() + ceilingCost)){
+								searchState.visit(tmp);
 								queue.add(tmp);
 								if(currSources.contains(tmp)){
 									tmp.setParent(null);
@@ -770,6 +977,20 @@ public class Router extends AbstractRouter {
 		return false;
 	}
 	
+	/**
+	 * A LUT input pin moved by {@link #routeNet()}, kept so that the routing of the net 
+	 * can be discarded with the pin back on its original physical pin.
+	 */
+	private static class PinSwapRecord {
+		private SitePinInst pin;
+		private String origPinName;
+		/** True if the mappings of both LUT BELs were moved ({@link #swapLUTPinForUnused(SitePinInst)}) */
+		private boolean allLUTs;
+	}
+	
+	/** LUT pin swaps made by routeNet() while routing a net that may be discarded, null if not kept */
+	private List<PinSwapRecord> pinSwapLog;
+	
 	private static String[] lutIndices = new String[]{"1","2","3","4","5","6"}; 
 	private static String[] lutBELSuffixes = new String[]{"5LUT", "6LUT"};
 	
@@ -783,15 +1004,59 @@ public class Router extends AbstractRouter {
 			}
 		}
 		if(unusedLutPinIndex != null){
-			SiteInst i = p.getSiteInst();
-			// All LUT BEL pin mappings (A5 and A6)
-			for(String belName : lutBELSuffixes){
-				Cell c = i.getCell(lutName + belName);
-				if(c == null) continue;
-				String logPin = c.removePinMapping("A" + p.getName().charAt(1));
-				c.addPinMapping("A" + unusedLutPinIndex, logPin);
+			logPinSwap(p, true);
+			moveLUTPin(p, unusedLutPinIndex);
+		}
+	}
+	
+	/**
+	 * Moves a LUT input pin and the pin mappings of all LUT BELs (A5 and A6) of its LUT.
+	 * @param p The LUT input pin.
+	 * @param lutPinIndex The index (1-6) of the new LUT input.
+	 */
+	private void moveLUTPin(SitePinInst p, String lutPinIndex){
+		String lutName = Character.toString(p.getName().charAt(0));
+		SiteInst i = p.getSiteInst();
+		for(String belName : lutBELSuffixes){
+			Cell c = i.getCell(lutName + belName);
+			if(c == null) continue;
+			String logPin = c.removePinMapping("A" + p.getName().charAt(1));
+			c.addPinMapping("A" + lutPinIndex, logPin);
+		}
+		p.movePin(lutName + lutPinIndex);
+		if(criticalities != null) criticalities.refresh(p);
+	}
+	
+	/**
+	 * Records the current physical pin of a LUT input about to be swapped, if the pin 
+	 * swaps of the current net are kept (see {@link #undoPinSwaps(List)}).
+	 * @param p The LUT input pin.
+	 * @param allLUTs True if the mappings of both LUT BELs are moved.
+	 */
+	private void logPinSwap(SitePinInst p, boolean allLUTs){
+		if(pinSwapLog == null) return;
+		PinSwapRecord r = new PinSwapRecord();
+		r.pin = p;
+		r.origPinName = p.getName();
+		r.allLUTs = allLUTs;
+		pinSwapLog.add(r);
+	}
+	
+	/**
+	 * Moves LUT input pins swapped while routing a net back to their original physical 
+	 * pins, in the reverse order of the swaps.
+	 * @param swaps The swaps recorded while routing the net.
+	 */
+	private void undoPinSwaps(List<PinSwapRecord> swaps){
+		for(int i=swaps.size()-1; i >= 0; i--){
+			PinSwapRecord r = swaps.get(i);
+			if(r.pin.getName().equals(r.origPinName)) continue;
+			if(r.allLUTs){
+				moveLUTPin(r.pin, r.origPinName.substring(1));
+			}else{
+				swapLUTInputPins(r.pin, "A" + r.origPinName.charAt(1));
+				if(criticalities != null) criticalities.refresh(r.pin);
 			}
-			p.movePin(lutName + unusedLutPinIndex);
 		}
 	}
 	
@@ -863,10 +1128,12 @@ public class Router extends AbstractRouter {
 			}
 		}
 		
-		// Route each pin by itself
-		for(SitePinInst currPin : currNet.getPins()){
+		// Route each pin by itself, the ones closest to the routed tree first in Steiner mode
+		SteinerSinkOrder steinerOrder = ENABLE_STEINER_ROUTING ? new SteinerSinkOrder(currSource.getTile(), currNet.getPins()) : null;
+		for(SitePinInst pin : currNet.getPins()){
 			// Ignore the source pin
-			if (currPin.isOutPin()) continue; 
+			if (pin.isOutPin()) continue; 
+			SitePinInst currPin = steinerOrder == null ? pin : steinerOrder.next();
 
 			prepareSinkPinsForRouting(currSource, currPin);
 			
@@ -887,16 +1154,20 @@ public class Router extends AbstractRouter {
 			// If initial route fails, see if we can swap a LUT input
 			if(!successfulRoute){
 				String origPinName = "A" + currSinkPin.getName().charAt(1);
+				logPinSwap(currSinkPin, false);
 				for(String alternate : getAlternativeLUTInputs(currSinkPin)){
 					swapLUTInputPins(currSinkPin, alternate);
+					if(criticalities != null) criticalities.refresh(currSinkPin);
 					prepareSinkPinsForRouting(currSource, currSinkPin);
 					routeConnection();
 					if(successfulRoute) break;
 				}
 				if(!successfulRoute) {
 					// If we couldn't route by swapping, return pin to original location
-					if(!currSinkPin.getName().equals(origPinName))
+					if(!currSinkPin.getName().equals(origPinName)){
 						swapLUTInputPins(currSinkPin, origPinName);
+						if(criticalities != null) criticalities.refresh(currSinkPin);
+					}
 				}
 			}
 			
@@ -906,6 +1177,9 @@ public class Router extends AbstractRouter {
 				// Add these PIPs to the rest used in the net
 				netPIPs.addAll(pipList);
 				currPin.setRouted(true);
+				if(steinerOrder != null){
+					steinerOrder.addToTree(pipList);
+				}
 			} 
 			else{
 				if(ENABLE_RIPUP){
@@ -942,18 +1216,18 @@ public class Router extends AbstractRouter {
 		if(isCurrNetClk){
 			for(PIP pip : pips){
 				if(isSwitchBox(pip.getTile())){
-					if(!allExclusiveIntSinks.contains(pip.getStartWireName()))
+					if(!wireClasses.isExclusiveIntSink(pip.getTile(), pip.getStartWireIndex()))
 						sources.add(new RouteNode(pip.getTile(), pip.getStartWireIndex(), null, 0));
-					if(!allExclusiveIntSinks.contains(pip.getEndWireName()))
+					if(!wireClasses.isExclusiveIntSink(pip.getTile(), pip.getEndWireIndex()))
 						sources.add(new RouteNode(pip.getTile(), pip.getEndWireIndex(), null, 0));
 				}
 			}
 		}else{
 			for(PIP pip : pips){
 				if(isSwitchBox(pip.getTile())){
-					if(!allExclusiveIntSinks.contains(pip.getStartWireName()))
+					if(!wireClasses.isExclusiveIntSink(pip.getTile(), pip.getStartWireIndex()))
 						sources.add(new RouteNode(pip.getTile(), pip.getStartWireIndex(), null, 0));
-					if(!allExclusiveIntSinks.contains(pip.getEndWireName()))
+					if(!wireClasses.isExclusiveIntSink(pip.getTile(), pip.getEndWireIndex()))
 						sources.add(new RouteNode(pip.getTile(), pip.getEndWireIndex(), null, 0));
 				}
 			}			
@@ -1094,7 +1368,7 @@ public class Router extends AbstractRouter {
 		String pinName = type == NetType.VCC ? Net.VCC_WIRE_NAME : Net.GND_WIRE_NAME;
 		if(n.getWireName().startsWith(pinName)){
 			return true;
-		}else if(lutOutputPinNames.contains(n.getWireName())){
+		}else if(wireClasses.isLutOutput(n.getTile(), n.getWire())){
 			// If lut is unused, we can re-purpose it for a static source
 			Site slice = n.getTile().getSites()[0];
 			SiteInst i = design.getSiteInstFromSite(slice);			
@@ -1120,11 +1394,22 @@ public class Router extends AbstractRouter {
 	 * if they can be used.
 	 * @param n RouteNode in question
 	 * @param type The net type to designate the static source type
-	 * @return true if this sources is useable and updates the netPIPs accordingly, false otherwise. 
+	 * @param pips The set of PIPs to update with the path if the source is usable
+	 * @return true if this sources is useable and updates the PIPs accordingly, false otherwise. 
 	 */
-	private boolean isThisOurStaticSource(RouteNode n, NetType type, boolean debug){
+	private boolean isThisOurStaticSource(RouteNode n, NetType type, Set<PIP> pips, boolean debug){
 		boolean usable = isNodeUsableStaticSource(n, type);
 		if(!usable) return false;
+		addStaticPathPIPs(n, pips, debug);
+		return true;
+	}
+	
+	/**
+	 * Adds the PIPs of the path from the given node following its parents back to the sink.
+	 * @param n The last node found by a backward static route search.
+	 * @param pips The set to add the PIPs to.
+	 */
+	private void addStaticPathPIPs(RouteNode n, Set<PIP> pips, boolean debug){
 		RouteNode currPathNode = n;
 		// Add this connection as a PIP, and follow it back to the source
 		while(currPathNode.getParent() != null){
@@ -1134,13 +1419,12 @@ public class Router extends AbstractRouter {
 					if(debug) {
 						System.out.println("  " + p.toString());
 					}
-					netPIPs.add(p);
+					pips.add(p);
 					break;
 				}
 			}
 			currPathNode = currPathNode.getParent();
 		}
-		return true;
 	}
 	
 	public RouteNode getRAMSink(RouteNode sink){
@@ -1155,12 +1439,11 @@ public class Router extends AbstractRouter {
 	}
 				
 	public RouteNode clkToSink(RouteNode clkHDistNode, boolean debug){
-		PriorityQueue<RouteNode> tmpQueue = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		clockQueue.clear();
 		setClkCostDistance(clkHDistNode, currSink);
-		tmpQueue.add(clkHDistNode);
-		while(!tmpQueue.isEmpty()){
-			RouteNode currNode = tmpQueue.poll();
+		clockQueue.add(clkHDistNode);
+		while(!clockQueue.isEmpty()){
+			RouteNode currNode = clockQueue.poll();
 			Tile currTile = currNode.getTile();
 			if(currTile.getColumn() != currSink.getTile().getColumn() && (currTile.getTileTypeEnum() == TileTypeEnum.RCLK_INT_L || currTile.getTileTypeEnum() == TileTypeEnum.RCLK_INT_R)){
 				continue;
@@ -1169,7 +1452,8 @@ public class Router extends AbstractRouter {
 			for(Wire w : connections){
 				RouteNode test = new RouteNode(w.getTile(),w.getWireIndex(), currNode, currNode.getLevel()+1);
 				if(debug) System.out.println("clk->sink: "+ test.toString());
-				if(!(visitedNodes.contains(test))){
+				// Queued nodes can still be reached cheaper, the queue keeps the cheaper one
+				if(!(clockSearchState.isVisited(test)) || clockQueue.isQueued(test)){
 					//if(test.getConnections() != null && canUseNode(test)){
 					if(test.getConnections() != null){
 						if(test.equals(currSink)){
@@ -1187,8 +1471,8 @@ public class Router extends AbstractRouter {
 							}
 						}
 						setClkCostDistance(test, currSink);
-						visitedNodes.add(test);
-						tmpQueue.add(test);
+						clockSearchState.markVisited(test);
+						clockQueue.add(test);
 					} 
 						
 				}
@@ -1247,10 +1531,10 @@ public class Router extends AbstractRouter {
 					Tile currTile = w.getTile();
 					int currWire = w.getWireIndex();
 					RouteNode tmp = new RouteNode(currTile, currWire, currRouteNode, currRouteNode.getLevel()+1);
-					if(!(visitedNodes.contains(tmp))){
+					if(!(clockSearchState.isVisited(tmp))){
 						if(tmp.getConnections() != null && canUseNode(tmp)){
 							setClkCostLevel(tmp);
-							visitedNodes.add(tmp);
+							clockSearchState.markVisited(tmp);
 							if (debug)System.out.println(MessageGenerator.makeWhiteSpace(currRouteNode.getLevel()) + " -> " + tmp + " " + tmp.getIntentCode());
 							queue.add(tmp);
 						}
@@ -1281,10 +1565,10 @@ public class Router extends AbstractRouter {
 					Tile currTile = w.getTile();
 					int currWire = w.getWireIndex();
 					RouteNode tmp = new RouteNode(currTile, currWire, currRouteNode, currRouteNode.getLevel()+1);
-					if(!(visitedNodes.contains(tmp))){
+					if(!(clockSearchState.isVisited(tmp))){
 						if(tmp.getConnections() != null && canUseNode(tmp)){
 							setClkCostLevel(tmp);
-							visitedNodes.add(tmp);
+							clockSearchState.markVisited(tmp);
 							if (debug)System.out.println(MessageGenerator.makeWhiteSpace(currRouteNode.getLevel()) + " -> " + tmp + " " + tmp.getIntentCode());
 							queue.add(tmp);
 						}
@@ -1316,7 +1600,7 @@ public class Router extends AbstractRouter {
 				int currWire = w.getWireIndex();
 				RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
 				if (!isClockResource(tmp)) continue;
-				if(!(visitedNodes.contains(tmp))){
+				if(!(clockSearchState.isVisited(tmp))){
 					if(tmp.getConnections() != null && canUseNode(tmp)){
 						ClockRegion crTmp = tmp.getTile().getClockRegion();
 						if(crTmp == null) continue; // TODO - Farnaz investigate
@@ -1329,7 +1613,7 @@ public class Router extends AbstractRouter {
 							}
 						}
 						setClkCostDistance(tmp, avgSink);
-						visitedNodes.add(tmp);
+						clockSearchState.markVisited(tmp);
 						clockQueue.add(tmp);
 					}
 				}
@@ -1350,7 +1634,7 @@ public class Router extends AbstractRouter {
 				int currWire = w.getWireIndex();
 				RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
 				if (!isClockResource(tmp)) continue;
-				if(!(visitedNodes.contains(tmp))){
+				if(!(clockSearchState.isVisited(tmp))){
 					// TODO - It is better If we can find exact tile Type that covers these conditions
 					ClockRegion crTmp = tmp.getTile().getClockRegion();
 					if(tmp.getConnections() != null && canUseNode(tmp) && crSink.getRow()==crTmp.getRow()){
@@ -1360,7 +1644,7 @@ public class Router extends AbstractRouter {
 						}
 						
 						setClkCostDistance(tmp, currSink);
-						visitedNodes.add(tmp);
+						clockSearchState.markVisited(tmp);
 						clockQueue.add(tmp);
 					}
 				}
@@ -1381,7 +1665,7 @@ public class Router extends AbstractRouter {
 				Tile currTile = w.getTile();
 				int currWire = w.getWireIndex();
 				RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
-				if(!(visitedNodes.contains(tmp))){
+				if(!(clockSearchState.isVisited(tmp))){
 					// TODO - It is better If we can find exact tile Type that covers these conditions
 					if(tmp.getConnections() != null && canUseNode(tmp) && (tmp.getTile().getName().contains("RCLK_CLEL")||tmp.getTile().getName().contains("RCLK_RCLK_BRAM"))){
 						ClockRegion crTmp = tmp.getTile().getClockRegion();
@@ -1389,7 +1673,7 @@ public class Router extends AbstractRouter {
 								return getHDfromBUF(tmp, debug);
 						}
 						setClkCostDistance(tmp, currSink);
-						visitedNodes.add(tmp);
+						clockSearchState.markVisited(tmp);
 						clockQueue.add(tmp);
 					}
 				}
@@ -1409,7 +1693,7 @@ public class Router extends AbstractRouter {
 				int currWire = w.getWireIndex();
 				RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
 				if (!isClockResource(tmp)) continue;
-				if(!(visitedNodes.contains(tmp))){
+				if(!(clockSearchState.isVisited(tmp))){
 					// TODO - It is better If we can find exact tile Type that covers these conditions
 					ClockRegion crTmp = tmp.getTile().getClockRegion();
 					if(tmp.getConnections() != null && canUseNode(tmp) && crSink.getRow()==crTmp.getRow()){
@@ -1420,7 +1704,7 @@ public class Router extends AbstractRouter {
 							
 						}
 						setClkCostDistance(tmp, currSink);
-						visitedNodes.add(tmp);
+						clockSearchState.markVisited(tmp);
 						clockQueue.add(tmp);
 					}
 				}
@@ -1446,7 +1730,7 @@ public class Router extends AbstractRouter {
 				if (crWire==null) continue;
 				RouteNode tmp = new RouteNode(currTile, currWire, currNode, currNode.getLevel()+1);
 				if (!isClockResource(tmp)) continue;
-				if(!(visitedNodes.contains(tmp))){
+				if(!(clockSearchState.isVisited(tmp))){
 					if(tmp.getConnections() != null && canUseNode(tmp)){
 						ClockRegion crTmp = tmp.getTile().getClockRegion();
 						if (isClockResource(tmp)){
@@ -1467,7 +1751,7 @@ public class Router extends AbstractRouter {
 						} 
 						if (debug) System.out.println(MessageGenerator.makeWhiteSpace(currNode.getLevel()) + " -> " + tmp + " " + tmp.getIntentCode());
 						setClkCostDistance(tmp, currSink);
-						visitedNodes.add(tmp);
+						clockSearchState.markVisited(tmp);
 						clockQueue.add(tmp);
 					}
 				}// Visited node check
@@ -1558,7 +1842,7 @@ public class Router extends AbstractRouter {
 			// Ignore the source pin
 			if (currPin.isOutPin()) continue;
 			pipList = new ArrayList<PIP>();
-			visitedNodes = new HashSet<RouteNode>();
+			clockSearchState.reset();
 			prepareSinkPinsForRouting(currSource, currPin);
 			if(firstSinkToRouteInNet){
 				addInitialSourceForRouting(currSource);
@@ -1570,7 +1854,7 @@ public class Router extends AbstractRouter {
 				RouteNode src = currSources.iterator().next();
 				// finds a clock resource track from buffer based on the design
 				clkRoot = clkBufToClkRoutes(src, debug);
-				visitedNodes.clear();
+				clockSearchState.reset();
 				if(clkRoot.getIntentCode()==IntentCode.NODE_GLOBAL_HROUTE){
 					clkRegion = routeToCentroid(clkRoot, debug);
 				} else {
@@ -1588,12 +1872,12 @@ public class Router extends AbstractRouter {
 			}
 			if(debug) printClkNodeInfo(clkRoot, "clkRoute");
 			if(debug) printClkNodeInfo(clkRegion, "clkRegion");
-			visitedNodes.clear();
+			clockSearchState.reset();
 			// Reaching to Sink Clock Region
 			RouteNode rowNode = routeCentroidToSinkClkRegion(clkRegion, debug);
-			visitedNodes.clear();
+			clockSearchState.reset();
 			RouteNode colNode = getHDISTRCol(rowNode, debug);
-			visitedNodes.clear();
+			clockSearchState.reset();
 			RouteNode clkSink = clkToSink(colNode, debug);	
 			// going backward to set the pips
 			if(clkSink!=null){
@@ -1712,39 +1996,136 @@ public class Router extends AbstractRouter {
 		
 	}
 	
+	/**
+	 * Routes the sinks of the current static net (GND/VCC) backwards to a static source.  Sinks
+	 * are grouped by the tile of their node (typically the switchbox) and each group is routed
+	 * as a unit, later sinks in a group stop as soon as they reach the routing of earlier ones
+	 * so the tie-off source is only searched for once per group.  Groups are routed 
+	 * concurrently (see {@link #STATIC_ROUTING_THREADS}), each one claims the nodes it uses 
+	 * and a group that loses a node to another group is routed again once the others are done.
+	 */
 	public void routeStaticNet(){
+		// Assume the net is completely un-routed
+		routeStaticSinks(currNet.getPins());
+	}
+	
+	/**
+	 * Routes only the provided sinks of a static net (GND/VCC), the existing routing of its 
+	 * other sinks is kept.  The new resources are marked as used.
+	 * @param net The static net.
+	 * @param sinks The unrouted sinks of the net to route.
+	 */
+	protected void routeStaticSinks(Net net, Collection<SitePinInst> sinks){
+		currNet = net;
+		ArrayList<RouteNode> rNodes = releaseReservedNodes(currNet);
+		netPIPs = new HashSet<PIP>(currNet.getPIPs());
+		routeStaticSinks(sinks);
+		markAndUpdateNetPIPsAsUsed();
+		restoreReservedNodes(currNet, rNodes);
+	}
+	
+	/**
+	 * Routes the provided sinks of the current static net (GND/VCC) and adds the PIPs to 
+	 * netPIPs (see {@link #routeStaticNet()}).
+	 * @param sinks The sinks to route, source pins are skipped.
+	 */
+	private void routeStaticSinks(Collection<SitePinInst> sinks){
 		NetType netType = currNet.getType();
-		// Assume the net is completely un-routed 
-		// For each pin, route backward from the input pin
-		for(SitePinInst sink : currNet.getPins()){
-			boolean debug = false;
+		Map<Tile, List<SitePinInst>> groups = new LinkedHashMap<>();
+		Map<SitePinInst, RouteNode> sinkNodes = new HashMap<>();
+		for(SitePinInst sink : sinks){
 			if(sink.isOutPin()) continue;
-			int watchdog = 10000;
 			int wire = sink.getSiteInst().getSite().getTileWireIndexFromPinName(sink.getName());
-			
 			if(wire == -1) {
 				throw new RuntimeException("ERROR: Problem while trying to route static sink " + sink);
 			}
-			Tile t = sink.getTile();
+			Node node = Node.getNode(sink.getTile(),wire);
+			List<SitePinInst> group = groups.get(node.getTile());
+			if(group == null){
+				group = new ArrayList<>();
+				groups.put(node.getTile(), group);
+			}
+			group.add(sink);
+			sinkNodes.put(sink, new RouteNode(node.getTile(),node.getWire()));
+		}
+
+		final List<List<SitePinInst>> groupList = new ArrayList<>(groups.values());
+		final List<Set<PIP>> results = new ArrayList<>(Collections.nCopies(groupList.size(), (Set<PIP>) null));
+		final int chunks = Math.min(groupList.size(), STATIC_ROUTING_THREADS > 0 ? STATIC_ROUTING_THREADS : routingThreads);
+		if(chunks <= 1){
+			for(int i=0; i < groupList.size(); i++){
+				results.set(i, routeStaticSinkGroup(groupList.get(i), sinkNodes, netType));
+			}
+		}else{
+			List<Callable<Object>> tasks = new ArrayList<>(chunks);
+			for(int i=0; i < chunks; i++){
+				final int first = i;
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						for(int j=first; j < groupList.size(); j+=chunks){
+							results.set(j, routeStaticSinkGroup(groupList.get(j), sinkNodes, netType));
+						}
+						return null;
+					}
+				});
+			}
+			ParallelismTools.invokeAll(ParallelismTools.getSharedPool(), tasks);
+		}
+		for(int i=0; i < groupList.size(); i++){
+			Set<PIP> pips = results.get(i);
+			if(pips == null){
+				// Lost a node to another group, route it again now that the others are done
+				pips = routeStaticSinkGroup(groupList.get(i), sinkNodes, netType);
+			}
+			if(pips != null) netPIPs.addAll(pips);
+		}
+		currNet.setPIPs(netPIPs);
+	}
+
+	/**
+	 * Routes a group of static sinks that share the same switchbox.  For each pin, route
+	 * backward from the input pin until a static source or the routing of a previous sink in
+	 * the group is found.  The nodes of each path are claimed atomically (see 
+	 * {@link #claimNode(RouteNode)}) so groups can be routed concurrently without two of 
+	 * them driving the same node.  If a node was claimed by another group since it was 
+	 * searched, the claims of this group are released and its sinks are left unrouted.
+	 * @param group The sinks to route.
+	 * @param sinkNodes The node of each sink.
+	 * @param netType The static net type (GND or VCC).
+	 * @return The PIPs used to route the group, null if the group lost a node to another group.
+	 */
+	private Set<PIP> routeStaticSinkGroup(List<SitePinInst> group, Map<SitePinInst, RouteNode> sinkNodes, NetType netType){
+		boolean debug = false;
+		Set<PIP> pips = new HashSet<>();
+		Set<RouteNode> groupTree = new HashSet<>();
+		List<RouteNode> claimed = new ArrayList<>();
+		HashSet<RouteNode> visited = new HashSet<>();
+		Queue<RouteNode> q = new LinkedList<RouteNode>();
+		for(SitePinInst sink : group){
+			int watchdog = 10000;
+			RouteNode n = sinkNodes.get(sink);
 			if(debug) {
-				System.out.println("SINK: " + t.getName() + " " + t.getWireName(wire));
+				System.out.println("SINK: " + n.getTile().getName() + " " + n.getWireName());
 			}
-			
-			Node node = Node.getNode(t,wire);
-			RouteNode n = new RouteNode(node.getTile(),node.getWire());
-			Queue<RouteNode> q = new LinkedList<RouteNode>();
-			visitedNodes = new HashSet<RouteNode>();
+			q.clear();
+			visited.clear();
 			q.add(n);
 			boolean success = false;
 			while(!q.isEmpty()){
 				n = q.poll();
-				visitedNodes.add(n);
+				visited.add(n);
 				if(debug) System.out.println("DEQUEUE:" + n);
-				if(success = isThisOurStaticSource(n, netType, debug)) break;
+				if(groupTree.contains(n)){
+					// Reached the routing of a previous sink in this switchbox
+					addStaticPathPIPs(n, pips, debug);
+					success = true;
+					break;
+				}
+				if(success = isThisOurStaticSource(n, netType, pips, debug)) break;
 				for(Wire w : n.getBackwardConnections()){
 					if(w.isRouteThru()) continue;
 					RouteNode nParent = new RouteNode(w.getTile(),w.getWireIndex(), n, n.getLevel()+1);
-					if(!pruneNode(nParent)) q.add(nParent);
+					if(!pruneNode(nParent, visited)) q.add(nParent);
 				}
 				watchdog--;
 				if(watchdog < 0) {
@@ -1753,17 +2134,31 @@ public class Router extends AbstractRouter {
 			}
 			if(!success){
 				System.out.println("FAILED to route " + netType + " pin " + sink.toString());
-			}else{
-				sink.setRouted(true);
+				continue;
 			}
-			
-			currNet.setPIPs(netPIPs);
+			for(RouteNode curr = n; curr != null; curr = curr.getParent()){
+				RouteNode rn = new RouteNode(curr.getTile(), curr.getWire());
+				if(!groupTree.add(rn)) continue;
+				// The sink's own node was not searched (it may already be marked used), 
+				// any other node was unused when it was searched
+				if(claimNode(rn)){
+					claimed.add(rn);
+				}else if(curr.getParent() != null){
+					for(RouteNode c : claimed){
+						usedNodes.remove(c);
+					}
+					for(SitePinInst s : group){
+						s.setRouted(false);
+					}
+					return null;
+				}
+			}
+			sink.setRouted(true);
 		}
-		
+		return pips;
 	}
-	
-	
-	private boolean pruneNode(RouteNode routeNode){
+
+	private boolean pruneNode(RouteNode routeNode, Set<RouteNode> visited){
 		switch (routeNode.getIntentCode()){
 			case NODE_GLOBAL_VDISTR:
 			case NODE_GLOBAL_HROUTE:
@@ -1777,7 +2172,7 @@ public class Router extends AbstractRouter {
 			default:
 		}
 		if(usedNodes.contains(routeNode)) return true;
-		if(visitedNodes.contains(routeNode)) return true;
+		if(visited.contains(routeNode)) return true;
 		return false;
 	}
 	
@@ -1790,7 +2185,56 @@ public class Router extends AbstractRouter {
 	public void routePinsReEntrant(ArrayList<SitePinInst> sitePinInsts, boolean routeUnroutedNets){
 		markExistingRouteResourcesUsed();
 		reserveCriticalNodes(sitePinInsts);
+		metrics.startPhase("Re-entrant routing");
+		routeSinkPins(sitePinInsts);
+		metrics.endPhase();
 		
+		if(routeUnroutedNets){
+			// Route any leftover nets with no routing
+			for(Net n : design.getNets()){
+				boolean needsToBeRouted = n.getPIPs().size() == 0 || n.needsClockNetworkResources();
+				if(n.getPins().size() > 1 && n.getSource() != null && needsToBeRouted){
+					currNet = n;
+					//if(currNet.needsClockNetworkResources()){
+						//continue; // TODO
+					//}
+					// release some reservedNodes
+					ArrayList<RouteNode> rNodes = reservedNodes.remove(currNet);
+					
+					if(rNodes != null){
+						usedNodes.removeAll(rNodes);
+					}
+					
+					netPIPs = new HashSet<PIP>();
+					
+					if(currNet.isClockNet()){
+						// Unroute clock nets, release their previously used nodes
+						for(PIP p : currNet.getPIPs()){                        
+							setWireAsUnused(p.getTile(), p.getStartWireIndex(), currNet);
+							setWireAsUnused(p.getTile(), p.getEndWireIndex(), currNet);
+						}
+						currNet.unroute();
+						routeClockNet();
+					}else{
+						routeNet();
+					}
+					System.out.println("Routing unrouted net: " + currNet.getName());
+					markAndUpdateNetPIPsAsUsed();
+				}
+			}
+			
+			// Re-route GND and VCC
+			routeStaticNets();
+		}
+	}
+	
+	/**
+	 * Routes the given sink pins, leveraging any existing routing of their nets.  Unlike
+	 * {@link #routePinsReEntrant(ArrayList, boolean)}, this does not mark the existing routing
+	 * of the design as used or reserve pin feeds, the caller is expected to have done so.
+	 * @param sitePinInsts The sink pins to be routed.
+	 */
+	protected void routeSinkPins(List<SitePinInst> sitePinInsts){
 		for(SitePinInst currPin : sitePinInsts){
 			successfulRoute = false;
 			
@@ -1806,6 +2250,7 @@ public class Router extends AbstractRouter {
 			if(currNet.isStaticNet()){
 				continue;
 			}
+			startNetMetrics();
 			
 			SitePinInst currSource = currNet.getSource();
 			currSources = new HashSet<RouteNode>();
@@ -1853,46 +2298,9 @@ public class Router extends AbstractRouter {
 				}
 			}
 
+			recordNetMetrics();
 			markAndUpdateNetPIPsAsUsed();
 		}
-		
-		if(routeUnroutedNets){
-			// Route any leftover nets with no routing
-			for(Net n : design.getNets()){
-				boolean needsToBeRouted = n.getPIPs().size() == 0 || n.needsClockNetworkResources();
-				if(n.getPins().size() > 1 && n.getSource() != null && needsToBeRouted){
-					currNet = n;
-					//if(currNet.needsClockNetworkResources()){
-						//continue; // TODO
-					//}
-					// release some reservedNodes
-					ArrayList<RouteNode> rNodes = reservedNodes.remove(currNet);
-					
-					if(rNodes != null){
-						usedNodes.removeAll(rNodes);
-					}
-					
-					netPIPs = new HashSet<PIP>();
-					
-					if(currNet.isClockNet()){
-						// Unroute clock nets, release their previously used nodes
-						for(PIP p : currNet.getPIPs()){                        
-							setWireAsUnused(p.getTile(), p.getStartWireIndex(), currNet);
-							setWireAsUnused(p.getTile(), p.getEndWireIndex(), currNet);
-						}
-						currNet.unroute();
-						routeClockNet();
-					}else{
-						routeNet();
-					}
-					System.out.println("Routing unrouted net: " + currNet.getName());
-					markAndUpdateNetPIPsAsUsed();
-				}
-			}
-			
-			// Re-route GND and VCC
-			routeStaticNets();
-		}
 	}
 	
 	public void routeStaticNets(){
@@ -1978,116 +2386,676 @@ public class Router extends AbstractRouter {
 		markExistingRouteResourcesUsed();
 		
 		// Start Routing
-		for (Net nn : design.getNets()){
-			currNet = nn;
+		metrics.startPhase("Initial routing");
+		if(routingThreads > 1 || deterministicRouting){
+			routeNetsInParallel();
+		}else{
+			for (Net nn : design.getNets()){
+				if(!isNetToBeRouted(nn)) continue;
+				routeNetAndMarkUsed(nn);
+			}
+		}
+		metrics.endPhase();
 
-			// Ignore nets with no pins
-			if(currNet.getPins().size() == 0){
-				continue;
+		if(criticalities != null){
+			metrics.startPhase("Timing update");
+			criticalities.update(null);
+			metrics.endPhase();
+		}
+
+		// Resolve congestion issues
+		if(!failedRoutes.isEmpty()){
+			metrics.startPhase("Congestion resolution");
+			resolveCongestion();
+			metrics.endPhase();
+		}
+		return design;
+	}	
+	
+	/**
+	 * Determines if the net should be routed by {@link #routeDesign()}.  Nets without
+	 * pins, with existing routing or without a source are skipped.
+	 * @param net The net in question.
+	 * @return True if the net should be routed, false otherwise.
+	 */
+	protected boolean isNetToBeRouted(Net net){
+		// Ignore nets with no pins
+		if(net.getPins().size() == 0){
+			return false;
+		}
+		
+		// Consider all nets as fully routed except static nets (TODO - add support to analyze all nets)
+		if(net.getPIPs().size() > 0) return false;
+	
+		if(net.getSource() == null && !net.isStaticNet()){
+			EDIFNet logNet = net.getLogicalNet();
+			if(logNet != null && logNet.getParentCell().getName().equals("IOBUF")) {
+				return false;
 			}
-			
-			// Consider all nets as fully routed except static nets (TODO - add support to analyze all nets)
-			if(currNet.getPIPs().size() > 0) continue;
+			if(!supressWarningsErrors) MessageGenerator.briefError("WARNING: " + net.getName() + " does not have a source pin associated with it.");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Releases the nodes reserved for the given net so they can be used 
+	 * to route it.
+	 * @param net The net about to be routed.
+	 * @return The list of released nodes, or null if none were reserved.
+	 */
+	private ArrayList<RouteNode> releaseReservedNodes(Net net){
+		ArrayList<RouteNode> rNodes;
+		synchronized (reservedNodes) {
+			rNodes = reservedNodes.remove(net);
+		}
+		if(rNodes != null){
+			usedNodes.removeAll(rNodes);
+		}
+		return rNodes;
+	}
+	
+	/**
+	 * Drops the remaining node reservations of the given nets, such as those left by
+	 * {@link #reserveCriticalNodes(ArrayList)} for pins that did not get routed.  Reserved 
+	 * nodes that are now used by a route stay marked as used.
+	 * @param nets The nets whose reservations should be dropped.
+	 */
+	protected void dropReservedNodes(Collection<Net> nets){
+		for(Net net : nets){
+			ArrayList<RouteNode> rNodes;
+			synchronized (reservedNodes) {
+				rNodes = reservedNodes.remove(net);
+			}
+			if(rNodes == null) continue;
+			for(RouteNode rn : rNodes){
+				if(!usedNodesMap.containsKey(rn)){
+					usedNodes.remove(rn);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Puts back a set of reserved nodes for a net that did not get routed.
+	 * @param net The net that owns the reservation.
+	 * @param rNodes The nodes previously released by {@link #releaseReservedNodes(Net)}.
+	 */
+	private void restoreReservedNodes(Net net, ArrayList<RouteNode> rNodes){
+		if(rNodes == null) return;
+		usedNodes.addAll(rNodes);
+		synchronized (reservedNodes) {
+			reservedNodes.put(net, rNodes);
+		}
+	}
+	
+	/**
+	 * Routes the net according to its type (static, clock or regular) and 
+	 * marks all of its resources as used.
+	 * @param net The net to route.
+	 */
+	protected void routeNetAndMarkUsed(Net net){
+		currNet = net;
+		ArrayList<RouteNode> rNodes = releaseReservedNodes(currNet);
 		
-			if(currNet.getSource() == null && !currNet.isStaticNet()){
-				EDIFNet logNet = currNet.getLogicalNet();
-				if(logNet != null && logNet.getParentCell().getName().equals("IOBUF")) {
-					continue;
+		// netPIPs are the pips that belong to a particular net
+		netPIPs = new HashSet<PIP>(currNet.getPIPs());
+		routeCurrNetByType();
+		
+		if(netPIPs.size() == 0){
+			restoreReservedNodes(net, rNodes);
+		}
+		
+		markAndUpdateNetPIPsAsUsed();
+	}
+	
+	/**
+	 * Routes currNet using the routing method that matches its type (static, clock
+	 * or regular). 
+	 */
+	private void routeCurrNetByType(){
+		startNetMetrics();
+		if(currNet.isStaticNet()){
+			routeStaticNet();
+		}else if(currNet.isClockNet()){
+			routeClockNet();
+		}else{
+			routeNet();
+		}
+		recordNetMetrics();
+	}
+	
+	/**
+	 * Starts measuring the routing of currNet, see {@link #recordNetMetrics()}.
+	 */
+	private void startNetMetrics(){
+		if(!COLLECT_ROUTER_METRICS) return;
+		maxQueueSize = 0;
+		netMetricsStart = System.nanoTime();
+		netMetricsConnections = totalConnections;
+		netMetricsNodes = totalNodesProcessed;
+		netMetricsFailures = failedConnections + failedRoutes.size();
+	}
+	
+	/**
+	 * Records the metrics of currNet since the last {@link #startNetMetrics()}.
+	 */
+	private void recordNetMetrics(){
+		if(!COLLECT_ROUTER_METRICS) return;
+		metrics.recordRoute(currNet, totalConnections - netMetricsConnections, 
+			failedConnections + failedRoutes.size() - netMetricsFailures, 
+			totalNodesProcessed - netMetricsNodes, maxQueueSize, System.nanoTime() - netMetricsStart);
+	}
+	
+	/**
+	 * Gets the per-net and per-phase metrics collected while routing (when 
+	 * {@link #COLLECT_ROUTER_METRICS} is set).
+	 * @return The routing metrics.
+	 */
+	public RouterMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Gets the congestion cost of using a node during negotiated congestion resolution.
+	 * This is the node's accumulated history cost plus the present congestion cost for
+	 * each other net currently using it.
+	 * @param n The node in question.
+	 * @return The congestion cost to be added to the node's routing cost.
+	 */
+	private int getCongestionCost(RouteNode n){
+		int cost = congestionHistory.get(searchState.getIndex().getNodeIndex(n));
+		LinkedList<Net> users = usedNodesMap.get(n);
+		if(users != null){
+			int otherUsers = users.size();
+			if(users.contains(currNet)) otherUsers--;
+			cost += otherUsers * presentCongestionCost;
+		}
+		return cost;
+	}
+	
+	/**
+	 * Removes all routing of the net and releases its nodes.  Nodes shared with 
+	 * other nets remain marked as used by those nets.
+	 * @param net The net to rip-up.
+	 */
+	protected void ripUpNet(Net net){
+		if(COLLECT_ROUTER_METRICS) metrics.recordRipUp(net);
+		for(PIP p : net.getPIPs()){
+			setWireAsUnused(p.getTile(), p.getStartWireIndex(), net);
+			setWireAsUnused(p.getTile(), p.getEndWireIndex(), net);
+			markIntermediateNodesAsUnused(p, net);
+		}
+		net.unroute();
+	}
+	
+	/**
+	 * Finds all nodes that are currently used by more than one net, updates their 
+	 * history cost and collects the nets using them.  Static and clock nets are not
+	 * collected as they are not ripped-up, the other nets are pushed away from their
+	 * nodes by the congestion costs instead. 
+	 * @param overusedNets Populated with the nets that use overused nodes.
+	 * @return The number of overused nodes.
+	 */
+	private int updateCongestionHistory(Set<Net> overusedNets){
+		int overusedNodes = 0;
+		for(Entry<RouteNode,LinkedList<Net>> e : usedNodesMap.entrySet()){
+			LinkedList<Net> users = e.getValue();
+			if(users.size() < 2) continue;
+			overusedNodes++;
+			int nodeIndex = searchState.getIndex().getNodeIndex(e.getKey());
+			congestionHistory.add(nodeIndex, HISTORY_CONGESTION_COST * (users.size()-1));
+			for(Net n : users){
+				if(n.isStaticNet() || n.isClockNet()) continue;
+				overusedNets.add(n);
+			}
+		}
+		return overusedNodes;
+	}
+	
+	/**
+	 * Resolves the connections that failed to route with negotiated congestion 
+	 * (PathFinder).  Nets with failed connections are first rerouted allowing them to 
+	 * share nodes with other nets.  Each iteration then increases the cost of the overused 
+	 * nodes (present and history costs) and only rips-up and reroutes the nets that use 
+	 * them.  This stops when no nodes are overused or after 
+	 * {@link #MAX_CONGESTION_ITERATIONS} iterations.
+	 */
+	private void resolveCongestion(){
+		Comparator<Net> byName = new Comparator<Net>() {
+			public int compare(Net a, Net b) {return a.getName().compareTo(b.getName());}};
+		Set<Net> netsToReroute = new TreeSet<Net>(byName);
+		for(SitePinInst sink : failedRoutes){
+			netsToReroute.add(sink.getNet());
+		}
+		presentCongestionCost = INITIAL_PRESENT_CONGESTION_COST;
+		allowWireOverlap = true;
+		int iteration = 0;
+		int overusedNodes = 0;
+		try {
+			while(!netsToReroute.isEmpty() && iteration < MAX_CONGESTION_ITERATIONS){
+				failedRoutes.clear();
+				for(Net net : netsToReroute){
+					ripUpNet(net);
+					currNet = net;
+					netPIPs = new HashSet<PIP>();
+					routeCurrNetByType();
+					markAndUpdateNetPIPsAsUsed();
 				}
-				if(!supressWarningsErrors) MessageGenerator.briefError("WARNING: " + currNet.getName() + " does not have a source pin associated with it.");
-				continue;
+				iteration++;
+				if(criticalities != null){
+					criticalities.update(INCREMENTAL_TIMING_UPDATE ? netsToReroute : null);
+				}
+				netsToReroute = new TreeSet<Net>(byName);
+				overusedNodes = updateCongestionHistory(netsToReroute);
+				if(!supressWarningsErrors){
+					MessageGenerator.briefMessage("Congestion iteration " + iteration + ": " + overusedNodes
+						+ " overused nodes, " + netsToReroute.size() + " nets to reroute");
+				}
+				presentCongestionCost = Math.min(MAX_PRESENT_CONGESTION_COST, presentCongestionCost * PRESENT_CONGESTION_COST_GROWTH);
 			}
-			
-			// release some reservedNodes
-			ArrayList<RouteNode> rNodes = reservedNodes.remove(currNet);
-			
-			if(rNodes != null){
-				usedNodes.removeAll(rNodes);
+		} finally {
+			allowWireOverlap = false;
+		}
+		
+		for(SitePinInst sink : failedRoutes){
+			failedConnections++;
+			if(!supressWarningsErrors){
+				MessageGenerator.briefError("\tFAILED TO ROUTE: net: " + sink.getNet().getName() + " inpin: " + sink.getName() + 
+						" on instance: " + sink.getSiteInstName());
 			}
-			
-			// netPIPs are the pips that belong to a particular net
-			netPIPs = new HashSet<PIP>(currNet.getPIPs());
-			long start = System.currentTimeMillis();
-			if(currNet.isStaticNet()){
-				routeStaticNet();
-			}else if(currNet.isClockNet()){
-				routeClockNet();
-			}else{
-				routeNet();
+		}
+		if(overusedNodes > 0){
+			MessageGenerator.briefError("ERROR: Congestion could not be resolved after " + iteration 
+					+ " iterations, " + overusedNodes + " nodes remain overused.");
+		}
+	}
+	
+	/**
+	 * Routes a net on a worker router while other workers are routing other nets
+	 * of the same design.  The routing result is only committed if none of its 
+	 * nodes were claimed by another worker in the meantime.
+	 * @param net The net to route.
+	 * @return True if the routing was committed, false if a conflict was found and 
+	 * the net was left unrouted.
+	 */
+	private boolean routeNetConcurrently(Net net){
+		currNet = net;
+		ArrayList<RouteNode> rNodes = releaseReservedNodes(currNet);
+		int failedRoutesBefore = failedRoutes.size();
+		int failedConnectionsBefore = failedConnections;
+		netPIPs = new HashSet<PIP>(currNet.getPIPs());
+		pinSwapLog = new ArrayList<PinSwapRecord>();
+		startNetMetrics();
+		routeNet();
+		recordNetMetrics();
+		List<PinSwapRecord> pinSwaps = pinSwapLog;
+		pinSwapLog = null;
+		
+		synchronized (usedNodes) {
+			if(hasUsageConflict(netPIPs)){
+				undoPinSwaps(pinSwaps);
+				while(failedRoutes.size() > failedRoutesBefore){
+					failedRoutes.remove(failedRoutes.size()-1);
+				}
+				failedConnections = failedConnectionsBefore;
+				for(SitePinInst p : currNet.getPins()){
+					if(!p.isOutPin()) p.setRouted(false);
+				}
+				restoreReservedNodes(net, rNodes);
+				return false;
 			}
-			
-			if(netPIPs.size() == 0 && rNodes != null){
-				usedNodes.addAll(rNodes);
-				reservedNodes.put(nn, rNodes);
+			if(netPIPs.size() == 0){
+				restoreReservedNodes(net, rNodes);
 			}
-			
-			long stop = System.currentTimeMillis();
-			//if(stop-start > 100) System.out.println((stop-start) + "ms : " + currNet.getName());
-			
 			markAndUpdateNetPIPsAsUsed();
 		}
-
-		// Resolve congestion issues
-		for(SitePinInst sink : failedRoutes){
-			currNet = sink.getNet();
-			SitePinInst currSource = currNet.getSource();
-			currSources = new HashSet<RouteNode>();
-			prepareSinkPinsForRouting(currSource, sink);
-			
-			// Prepare starting points for the route
-			if(currNet.getPIPs().size() == 0){
-				// just add the original source
-				addInitialSourceForRouting(currSource);
-			}
-			else{
-				// Leverage previous routings to offer additional starting points for this route 
-				getSourcesFromPIPs(pipList, currSources/* TODO - prone this list to make it faster pipList*/);
+		return true;
+	}
+	
+	/**
+	 * The routing result of a net routed by {@link #routeNetDeferred(Net)}, waiting to be
+	 * committed.
+	 */
+	private static class DeferredRoute {
+		private HashSet<PIP> pips;
+		private List<SitePinInst> failedRoutes;
+		private int failedConnections;
+		private List<PinSwapRecord> pinSwaps;
+	}
+	
+	/**
+	 * Routes a net on a worker router without marking any of its resources as used.  The
+	 * shared usage state is left untouched so that the result only depends on the state
+	 * at the start of the batch, not on which other nets have been routed by other workers.
+	 * The failed connections of the net are moved from this router to the result.
+	 * @param net The net to route, its reserved nodes must have been released already.
+	 * @return The routing result to commit (or discard) with 
+	 * {@link #commitDeferredRoute(Net, DeferredRoute, ArrayList, Map)}.
+	 */
+	private DeferredRoute routeNetDeferred(Net net){
+		currNet = net;
+		int failedRoutesBefore = failedRoutes.size();
+		int failedConnectionsBefore = failedConnections;
+		netPIPs = new HashSet<PIP>(currNet.getPIPs());
+		pinSwapLog = new ArrayList<PinSwapRecord>();
+		startNetMetrics();
+		routeNet();
+		recordNetMetrics();
+		
+		DeferredRoute result = new DeferredRoute();
+		result.pips = netPIPs;
+		result.pinSwaps = pinSwapLog;
+		pinSwapLog = null;
+		result.failedRoutes = new ArrayList<>(failedRoutes.subList(failedRoutesBefore, failedRoutes.size()));
+		result.failedConnections = failedConnections - failedConnectionsBefore;
+		while(failedRoutes.size() > failedRoutesBefore){
+			failedRoutes.remove(failedRoutes.size()-1);
+		}
+		failedConnections = failedConnectionsBefore;
+		return result;
+	}
+	
+	/**
+	 * Commits the result of {@link #routeNetDeferred(Net)} unless it uses a node that is 
+	 * already used or that is reserved by another net of the batch.  Results must be 
+	 * committed in a fixed order for the outcome to be deterministic.
+	 * @param net The routed net.
+	 * @param result The routing result of the net.
+	 * @param rNodes The reserved nodes released for the net before routing it (or null).
+	 * @param batchReserved Owner of each reserved node released for the batch.
+	 * @return True if the routing was committed, false if the net was left unrouted.
+	 */
+	private boolean commitDeferredRoute(Net net, DeferredRoute result, ArrayList<RouteNode> rNodes, 
+			Map<RouteNode, Net> batchReserved){
+		currNet = net;
+		boolean conflict = hasUsageConflict(result.pips);
+		for(PIP p : result.pips){
+			if(conflict) break;
+			tempNode.setTileAndWire(p.getTile(), p.getEndWireIndex());
+			Net owner = batchReserved.get(tempNode);
+			conflict = owner != null && owner != net;
+		}
+		if(conflict){
+			undoPinSwaps(result.pinSwaps);
+			for(SitePinInst p : currNet.getPins()){
+				if(!p.isOutPin()) p.setRouted(false);
+			}
+			restoreReservedNodes(net, rNodes);
+			return false;
+		}
+		failedRoutes.addAll(result.failedRoutes);
+		failedConnections += result.failedConnections;
+		netPIPs = result.pips;
+		if(netPIPs.size() == 0){
+			restoreReservedNodes(net, rNodes);
+		}
+		markAndUpdateNetPIPsAsUsed();
+		return true;
+	}
+	
+	/**
+	 * Routes a batch of nets such that the result is the same for any number of worker
+	 * threads.  The reserved nodes of the whole batch are released up front and every net
+	 * is routed against the same (unchanging) usage state.  The results are then committed
+	 * in batch order, a net that conflicts with a net committed before it (or with the 
+	 * reserved nodes of another net of the batch) is left for sequential re-routing.
+	 * @param batch The nets to route, in priority order.
+	 * @param workers The worker routers.
+	 * @param pool The pool of worker threads.
+	 * @param conflictedNets Populated with the nets that could not be committed, in order.
+	 */
+	private void routeBatchDeterministically(List<Net> batch, List<Router> workers, ExecutorService pool, 
+			List<Net> conflictedNets){
+		List<ArrayList<RouteNode>> released = new ArrayList<>(batch.size());
+		Map<RouteNode, Net> batchReserved = new HashMap<>();
+		for(Net net : batch){
+			ArrayList<RouteNode> rNodes = releaseReservedNodes(net);
+			released.add(rNodes);
+			if(rNodes == null) continue;
+			for(RouteNode rn : rNodes){
+				batchReserved.put(rn, net);
 			}
-
-			// Route the current sink node without regard for already used resources
-			totalConnections++;
-			allowWireOverlap = true;
-			routeConnection();
-			allowWireOverlap = false;
-
-			if(successfulRoute){
-				HashSet<Net> netsToRipUpAndReroute = new HashSet<Net>();
-				// Accumulate nets which are sharing resources
-				for(RouteNode conflictNode : conflictNodes){
-					netsToRipUpAndReroute.addAll(usedNodesMap.get(conflictNode));
+		}
+		
+		List<Callable<List<DeferredRoute>>> tasks = new ArrayList<>();
+		int chunks = Math.min(workers.size(), batch.size());
+		for(int i=0; i < chunks; i++){
+			final Router worker = workers.get(i);
+			final List<Net> chunk = new ArrayList<>();
+			for(int j=i; j < batch.size(); j+=chunks){
+				chunk.add(batch.get(j));
+			}
+			tasks.add(new Callable<List<DeferredRoute>>() {
+				public List<DeferredRoute> call() {
+					List<DeferredRoute> results = new ArrayList<>(chunk.size());
+					for(Net n : chunk){
+						results.add(worker.routeNetDeferred(n));
+					}
+					return results;
 				}
-				
-				// Rip up nets using conflicting resources
-				for(Net net : netsToRipUpAndReroute){
-					for(PIP p : net.getPIPs()){
-						setWireAsUnused(p.getTile(), p.getStartWireIndex(), net);
-						setWireAsUnused(p.getTile(), p.getEndWireIndex(), net);
+			});
+		}
+		List<List<DeferredRoute>> results = ParallelismTools.invokeAll(pool, tasks);
+		for(int j=0; j < batch.size(); j++){
+			DeferredRoute result = results.get(j % chunks).get(j / chunks);
+			if(!commitDeferredRoute(batch.get(j), result, released.get(j), batchReserved)){
+				conflictedNets.add(batch.get(j));
+			}
+		}
+	}
+	
+	/**
+	 * Checks if any of the nodes driven by the provided PIPs have been marked as 
+	 * used by another net.
+	 * @param pips The PIPs of the current net.
+	 * @return True if at least one node is used by another net, false otherwise.
+	 */
+	private boolean hasUsageConflict(Collection<PIP> pips){
+		for(PIP p : pips){
+			if(!isNodeUsed(p.getTile(), p.getEndWireIndex())) continue;
+			tempNode.setTileAndWire(p.getTile(), p.getEndWireIndex());
+			LinkedList<Net> users = usedNodesMap.get(tempNode);
+			if(users == null) return true;
+			synchronized (users) {
+				if(!users.contains(currNet)) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Computes the set of partition bins covered by the net's pins, expanded by 
+	 * {@link #PARALLEL_BOUNDING_BOX_MARGIN} tiles in each direction. 
+	 * @param net The net to examine.
+	 * @param binCols Number of bin columns in the device.
+	 * @param binRows Number of bin rows in the device.
+	 * @return An array of {minBinCol, minBinRow, maxBinCol, maxBinRow}.
+	 */
+	private int[] getBoundingBoxBins(Net net, int binCols, int binRows){
+		int minCol = Integer.MAX_VALUE;
+		int minRow = Integer.MAX_VALUE;
+		int maxCol = Integer.MIN_VALUE;
+		int maxRow = Integer.MIN_VALUE;
+		for(SitePinInst p : net.getPins()){
+			Tile t = p.getTile();
+			minCol = Math.min(minCol, t.getColumn());
+			maxCol = Math.max(maxCol, t.getColumn());
+			minRow = Math.min(minRow, t.getRow());
+			maxRow = Math.max(maxRow, t.getRow());
+		}
+		int[] bins = new int[4];
+		bins[0] = Math.max(0, (minCol - PARALLEL_BOUNDING_BOX_MARGIN) / PARALLEL_BIN_SIZE);
+		bins[1] = Math.max(0, (minRow - PARALLEL_BOUNDING_BOX_MARGIN) / PARALLEL_BIN_SIZE);
+		bins[2] = Math.min(binCols-1, (maxCol + PARALLEL_BOUNDING_BOX_MARGIN) / PARALLEL_BIN_SIZE);
+		bins[3] = Math.min(binRows-1, (maxRow + PARALLEL_BOUNDING_BOX_MARGIN) / PARALLEL_BIN_SIZE);
+		return bins;
+	}
+	
+	/**
+	 * Groups nets into batches where no two nets in the same batch have overlapping
+	 * routing bounding boxes.  Nets in a batch can then be routed concurrently without 
+	 * competing for the same routing resources or touching the same sites.  Nets
+	 * with very large bounding boxes are not batched and are returned in 
+	 * largeNets instead.
+	 * @param nets The nets to partition, in routing order.
+	 * @param largeNets Populated with nets that should be routed sequentially.
+	 * @return The list of batches, each batch is a list of nets.
+	 */
+	private List<List<Net>> partitionNetsByBoundingBox(List<Net> nets, List<Net> largeNets){
+		int binCols = (dev.getColumns() + PARALLEL_BIN_SIZE - 1) / PARALLEL_BIN_SIZE;
+		int binRows = (dev.getRows() + PARALLEL_BIN_SIZE - 1) / PARALLEL_BIN_SIZE;
+		int maxBinArea = Math.max(1, (binCols * binRows) / 4);
+		List<List<Net>> batches = new ArrayList<>();
+		List<boolean[]> occupied = new ArrayList<>();
+		for(Net net : nets){
+			int[] bb = getBoundingBoxBins(net, binCols, binRows);
+			if((bb[2]-bb[0]+1) * (bb[3]-bb[1]+1) > maxBinArea){
+				largeNets.add(net);
+				continue;
+			}
+			int batchIdx = 0;
+			nextBatch: for(; batchIdx < batches.size(); batchIdx++){
+				boolean[] bins = occupied.get(batchIdx);
+				for(int row=bb[1]; row <= bb[3]; row++){
+					for(int col=bb[0]; col <= bb[2]; col++){
+						if(bins[row * binCols + col]) continue nextBatch;
 					}
-					net.unroute();
 				}
-				
-				// Accept routing of current net
-				netPIPs.addAll(pipList);
-				markAndUpdateNetPIPsAsUsed();
-				
-				// Re-route ripped-up nets
-				for(Net net : netsToRipUpAndReroute){
-					currNet = net;
-					ENABLE_RIPUP = false;
-					routeNet();
-					ENABLE_RIPUP = true;
+				break;
+			}
+			if(batchIdx == batches.size()){
+				batches.add(new ArrayList<Net>());
+				occupied.add(new boolean[binCols * binRows]);
+			}
+			boolean[] bins = occupied.get(batchIdx);
+			for(int row=bb[1]; row <= bb[3]; row++){
+				for(int col=bb[0]; col <= bb[2]; col++){
+					bins[row * binCols + col] = true;
 				}
-
+			}
+			batches.get(batchIdx).add(net);
+		}
+		return batches;
+	}
+	
+	/**
+	 * Routes all nets of the design using {@link #getRoutingThreads()} worker threads.  
+	 * Static, clock and very large nets are routed sequentially first.  The remaining 
+	 * nets are grouped into batches of non-overlapping bounding boxes and each batch is 
+	 * divided among the workers.  Any net that loses a routing resource to another 
+	 * worker is re-routed sequentially at the end.  In deterministic mode (see 
+	 * {@link #setDeterministicRouting(boolean)}) nets are processed in name order and 
+	 * each batch is routed with {@link #routeBatchDeterministically(List, List, ExecutorService, List)}.
+	 */
+	private void routeNetsInParallel(){
+		List<Net> sequentialNets = new ArrayList<>();
+		List<Net> parallelNets = new ArrayList<>();
+		List<Net> nets = new ArrayList<>(design.getNets());
+		if(deterministicRouting){
+			Collections.sort(nets, new Comparator<Net>() {
+				public int compare(Net a, Net b) {return a.getName().compareTo(b.getName());}});
+		}
+		for(Net nn : nets){
+			if(!isNetToBeRouted(nn)) continue;
+			if(nn.isStaticNet() || nn.isClockNet()){
+				sequentialNets.add(nn);
 			}else{
-				failedConnections++;
-				String switchMatrixString = switchMatrixSink != null ? switchMatrixSink.getTile().getName() + " " + switchMatrixSink.getWireName() : "null";
-				MessageGenerator.briefError("\tFAILED TO ROUTE: net: " + currNet.getName() + " inpin: " + currSinkPin.getName() +
-                   " (" + currSink.getTile().getName() + " "+  currSink.getWireName() + " / "+switchMatrixString+") on instance: " + currSinkPin.getSiteInstName());				
-				continue;
+				parallelNets.add(nn);
 			}
 		}
-		return design;
-	}	
+		List<List<Net>> batches = partitionNetsByBoundingBox(parallelNets, sequentialNets);
+		for(Net nn : sequentialNets){
+			routeNetAndMarkUsed(nn);
+		}
+		
+		List<Router> workers = new ArrayList<>(routingThreads);
+		for(int i=0; i < routingThreads; i++){
+			workers.add(new Router(this));
+		}
+		List<Net> conflictedNets = new ArrayList<>();
+		ExecutorService pool = ParallelismTools.createPool(routingThreads, "Router");
+		try {
+			for(List<Net> batch : batches){
+				if(deterministicRouting){
+					routeBatchDeterministically(batch, workers, pool, conflictedNets);
+					continue;
+				}
+				List<Callable<List<Net>>> tasks = new ArrayList<>();
+				int chunks = Math.min(routingThreads, batch.size());
+				for(int i=0; i < chunks; i++){
+					final Router worker = workers.get(i);
+					final List<Net> chunk = new ArrayList<>();
+					for(int j=i; j < batch.size(); j+=chunks){
+						chunk.add(batch.get(j));
+					}
+					tasks.add(new Callable<List<Net>>() {
+						public List<Net> call() {
+							List<Net> conflicts = new ArrayList<>();
+							for(Net n : chunk){
+								if(!worker.routeNetConcurrently(n)) conflicts.add(n);
+							}
+							return conflicts;
+						}
+					});
+				}
+				for(List<Net> conflicts : ParallelismTools.invokeAll(pool, tasks)){
+					conflictedNets.addAll(conflicts);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		
+		for(Router worker : workers){
+			totalConnections += worker.totalConnections;
+			totalNodesProcessed += worker.totalNodesProcessed;
+			failedConnections += worker.failedConnections;
+			failedRoutes.addAll(worker.failedRoutes);
+		}
+		
+		for(Net nn : conflictedNets){
+			routeNetAndMarkUsed(nn);
+		}
+	}
+	
+	/**
+	 * Gets the number of worker threads used by {@link #routeDesign()}.
+	 * @return The number of routing threads, 1 indicates sequential routing.
+	 */
+	public int getRoutingThreads() {
+		return routingThreads;
+	}
+
+	/**
+	 * Sets the number of worker threads used by {@link #routeDesign()}.  When greater
+	 * than 1, nets with non-overlapping bounding boxes are routed concurrently. A
+	 * value of 1 (the default) routes all nets sequentially in design order.
+	 * @param routingThreads The number of routing threads to use.
+	 */
+	public void setRoutingThreads(int routingThreads) {
+		this.routingThreads = Math.max(1, routingThreads);
+	}
+	
+	/**
+	 * Checks if {@link #routeDesign()} routes nets deterministically.
+	 * @return True if the routing result is independent of the number of routing threads.
+	 */
+	public boolean isDeterministicRouting() {
+		return deterministicRouting;
+	}
+	
+	/**
+	 * Sets whether {@link #routeDesign()} should produce the same routing (down to the 
+	 * order of each net's PIPs) regardless of the number of routing threads and of thread 
+	 * timing.  Nets are routed in concurrent batches against a fixed snapshot of the 
+	 * routing usage and conflicts are resolved in net name order.  This trades some 
+	 * parallelism (more nets are left for sequential re-routing) for reproducibility.
+	 * @param deterministicRouting True to enable deterministic routing.
+	 */
+	public void setDeterministicRouting(boolean deterministicRouting) {
+		this.deterministicRouting = deterministicRouting;
+	}
 	
 	protected static void printTimeHelper(String timedOperation, long start) {
 		System.out.printf("%s %8.3fs\n", timedOperation,
@@ -2151,8 +3119,8 @@ public class Router extends AbstractRouter {
 	}
 	
 	public static void main(String[] args) {
-		if(args.length != 2){
-			System.out.println("USAGE: <input.dcp> <output.dcp>");
+		if(args.length != 2 && args.length != 3){
+			System.out.println("USAGE: <input.dcp> <output.dcp> [metrics.json|metrics.csv]");
 		}
 		CodePerfTracker t = new CodePerfTracker("Router", true);
 		Router r = new Router(Design.readCheckpoint(args[0],t));
@@ -2160,5 +3128,12 @@ public class Router extends AbstractRouter {
 		r.routeDesign();
 		t.stop();
 		r.getDesign().writeCheckpoint(args[1],t);
+		if(args.length > 2){
+			if(args[2].endsWith(".csv")){
+				r.getMetrics().writeCSV(args[2]);
+			}else{
+				r.getMetrics().writeJSON(args[2]);
+			}
+		}
 	}
 }
@@ -0,0 +1,443 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.util.FileTools;
+
+/**
+ * Per-net and per-phase routing metrics collected by {@link Router}: nodes expanded, 
+ * maximum queue size, connections routed, rip-ups and wall time.  Collection adds a few 
+ * counters per routed net and is enabled with {@link Router#COLLECT_ROUTER_METRICS}.  Metrics can be queried or dumped as CSV or 
+ * JSON to find pathological nets.  The outcome of each step of the bounding box limited
+ * connection searches (see {@link Router#ENABLE_BOUNDING_BOX_SEARCH}) is also recorded
+ * to help tune the bounding box margins.
+ * 
+ * Created on: Mar 8, 2021
+ */
+public class RouterMetrics {
+
+	/**
+	 * Counters of a net or a routing phase.
+	 */
+	public static class Counters {
+		private final String name;
+		private int routeCount;
+		private int connections;
+		private int failedConnections;
+		private long nodesExpanded;
+		private int maxQueueSize;
+		private int ripUps;
+		private long wallTimeNanos;
+		
+		private Counters(String name){
+			this.name = name;
+		}
+		
+		private synchronized void add(int connections, int failedConnections, long nodesExpanded, int maxQueueSize, long wallTimeNanos){
+			this.routeCount++;
+			this.connections += connections;
+			this.failedConnections += failedConnections;
+			this.nodesExpanded += nodesExpanded;
+			this.maxQueueSize = Math.max(this.maxQueueSize, maxQueueSize);
+			this.wallTimeNanos += wallTimeNanos;
+		}
+		
+		private synchronized void addRipUp(){
+			ripUps++;
+		}
+		
+		/** @return The net or phase name */
+		public String getName() {
+			return name;
+		}
+		
+		/** @return The number of times the net was routed, or nets routed during the phase */
+		public int getRouteCount() {
+			return routeCount;
+		}
+		
+		/** @return The number of connections routed, including failed attempts */
+		public int getConnections() {
+			return connections;
+		}
+		
+		/** @return The number of connections that failed to route */
+		public int getFailedConnections() {
+			return failedConnections;
+		}
+		
+		/** @return The number of nodes taken off the priority queue */
+		public long getNodesExpanded() {
+			return nodesExpanded;
+		}
+		
+		/** @return The largest size reached by the priority queue */
+		public int getMaxQueueSize() {
+			return maxQueueSize;
+		}
+		
+		/** @return The number of times the net was ripped-up */
+		public int getRipUps() {
+			return ripUps;
+		}
+		
+		/** @return The time spent routing in nanoseconds (summed over threads for phases) */
+		public long getWallTimeNanos() {
+			return wallTimeNanos;
+		}
+	}
+	
+	/**
+	 * Counters of the connection searches run at one bounding box step.
+	 */
+	public static class BoundingBoxStep {
+		private final int step;
+		private int margin;
+		private int searches;
+		private int routed;
+		private long nodesExpanded;
+		
+		private BoundingBoxStep(int step){
+			this.step = step;
+		}
+		
+		private synchronized void add(int margin, boolean routed, long nodesExpanded){
+			this.margin = margin;
+			this.searches++;
+			if(routed) this.routed++;
+			this.nodesExpanded += nodesExpanded;
+		}
+		
+		/** @return The step index, 0 is the initial bounding box */
+		public int getStep() {
+			return step;
+		}
+		
+		/** @return The margin (in tiles) of the bounding box of the last search, -1 if unbounded */
+		public int getMargin() {
+			return margin;
+		}
+		
+		/** @return The number of connection searches run at this step */
+		public int getSearches() {
+			return searches;
+		}
+		
+		/** @return The number of searches at this step that found a route */
+		public int getRouted() {
+			return routed;
+		}
+		
+		/** @return The number of nodes taken off the priority queue by the searches */
+		public long getNodesExpanded() {
+			return nodesExpanded;
+		}
+	}
+	
+	private static final String[] FIELDS = new String[]{"name", "routeCount", "connections", 
+		"failedConnections", "nodesExpanded", "maxQueueSize", "ripUps", "wallTimeMs"};
+	
+	private Map<String,Counters> nets = new ConcurrentHashMap<>();
+	
+	private Map<String,Counters> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+	
+	/** Elapsed time of each phase in nanoseconds */
+	private Map<String,Long> phaseTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+	
+	private volatile Counters currPhase;
+	
+	private List<BoundingBoxStep> boundingBoxSteps = new ArrayList<>();
+	
+	private long currPhaseStart;
+	
+	/**
+	 * Starts a routing phase, the nets routed until {@link #endPhase()} are added to it.
+	 * Starting a phase with the same name as an earlier one adds to it.
+	 * @param name Name of the phase.
+	 */
+	public void startPhase(String name){
+		Counters phase = phases.get(name);
+		if(phase == null){
+			phase = new Counters(name);
+			phases.put(name, phase);
+		}
+		currPhase = phase;
+		currPhaseStart = System.nanoTime();
+	}
+	
+	/**
+	 * Ends the current routing phase and records its elapsed time.
+	 */
+	public void endPhase(){
+		if(currPhase == null) return;
+		long elapsed = System.nanoTime() - currPhaseStart;
+		Long prev = phaseTimes.get(currPhase.getName());
+		phaseTimes.put(currPhase.getName(), (prev == null ? 0 : prev) + elapsed);
+		currPhase = null;
+	}
+	
+	/**
+	 * Records one routing attempt of a net.
+	 * @param net The net routed.
+	 * @param connections Number of connections routed.
+	 * @param failedConnections Number of connections that failed to route.
+	 * @param nodesExpanded Number of nodes taken off the priority queue.
+	 * @param maxQueueSize Largest size of the priority queue.
+	 * @param wallTimeNanos Time spent routing the net.
+	 */
+	public void recordRoute(Net net, int connections, int failedConnections, long nodesExpanded, int maxQueueSize, long wallTimeNanos){
+		getOrCreate(net).add(connections, failedConnections, nodesExpanded, maxQueueSize, wallTimeNanos);
+		Counters phase = currPhase;
+		if(phase != null){
+			phase.add(connections, failedConnections, nodesExpanded, maxQueueSize, wallTimeNanos);
+		}
+	}
+	
+	/**
+	 * Records that the routing of a net was removed.
+	 * @param net The net ripped-up.
+	 */
+	public void recordRipUp(Net net){
+		getOrCreate(net).addRipUp();
+		Counters phase = currPhase;
+		if(phase != null) phase.addRipUp();
+	}
+	
+	/**
+	 * Records one connection search run with a bounding box.
+	 * @param step The bounding box step, 0 for the initial bounding box.
+	 * @param margin The margin (in tiles) of the bounding box, -1 if unbounded.
+	 * @param routed True if the search found a route.
+	 * @param nodesExpanded Number of nodes taken off the priority queue.
+	 */
+	public void recordBoundingBoxStep(int step, int margin, boolean routed, long nodesExpanded){
+		BoundingBoxStep s;
+		synchronized (boundingBoxSteps) {
+			while(boundingBoxSteps.size() <= step){
+				boundingBoxSteps.add(new BoundingBoxStep(boundingBoxSteps.size()));
+			}
+			s = boundingBoxSteps.get(step);
+		}
+		s.add(margin, routed, nodesExpanded);
+	}
+	
+	/**
+	 * @return The counters of each bounding box step, in step order.
+	 */
+	public List<BoundingBoxStep> getBoundingBoxSteps(){
+		synchronized (boundingBoxSteps) {
+			return new ArrayList<>(boundingBoxSteps);
+		}
+	}
+	
+	private Counters getOrCreate(Net net){
+		Counters c = nets.get(net.getName());
+		if(c == null){
+			c = nets.computeIfAbsent(net.getName(), k -> new Counters(k));
+		}
+		return c;
+	}
+	
+	/**
+	 * Gets the metrics of a net.
+	 * @param netName Name of the net.
+	 * @return The net's counters or null if it was not routed.
+	 */
+	public Counters getNetMetrics(String netName){
+		return nets.get(netName);
+	}
+	
+	/**
+	 * @return The counters of all nets routed.
+	 */
+	public Collection<Counters> getNetMetrics(){
+		return nets.values();
+	}
+	
+	/**
+	 * @return The counters of each phase, in the order the phases were started.
+	 */
+	public List<Counters> getPhaseMetrics(){
+		synchronized (phases) {
+			return new ArrayList<>(phases.values());
+		}
+	}
+	
+	/**
+	 * Gets the elapsed time of a phase.
+	 * @param phaseName Name of the phase.
+	 * @return The elapsed time in nanoseconds or 0 if the phase did not end.
+	 */
+	public long getPhaseTimeNanos(String phaseName){
+		Long time = phaseTimes.get(phaseName);
+		return time == null ? 0 : time;
+	}
+	
+	/**
+	 * Gets the nets that took the most time to route.
+	 * @param count Maximum number of nets to return.
+	 * @return The nets sorted by decreasing wall time.
+	 */
+	public List<Counters> getSlowestNets(int count){
+		List<Counters> sorted = new ArrayList<>(nets.values());
+		Collections.sort(sorted, new Comparator<Counters>() {
+			public int compare(Counters a, Counters b) {
+				return Long.compare(b.getWallTimeNanos(), a.getWallTimeNanos());
+			}
+		});
+		return sorted.subList(0, Math.min(count, sorted.size()));
+	}
+	
+	/**
+	 * Removes all metrics collected.
+	 */
+	public void clear(){
+		nets.clear();
+		phases.clear();
+		phaseTimes.clear();
+		currPhase = null;
+		synchronized (boundingBoxSteps) {
+			boundingBoxSteps.clear();
+		}
+	}
+	
+	/**
+	 * Writes the phase and net metrics as CSV, one line per phase (type "phase") followed
+	 * by one line per net (type "net") sorted by decreasing wall time.  The wall time of 
+	 * phases is their elapsed time.
+	 * @param fileName Name of the file to write.
+	 */
+	public void writeCSV(String fileName){
+		List<String> lines = new ArrayList<>();
+		lines.add("type," + String.join(",", FIELDS));
+		for(Counters c : getPhaseMetrics()){
+			lines.add("phase," + toCSV(c, getPhaseTimeNanos(c.getName())));
+		}
+		for(Counters c : getSlowestNets(nets.size())){
+			lines.add("net," + toCSV(c, c.getWallTimeNanos()));
+		}
+		FileTools.writeLinesToTextFile(lines, fileName);
+	}
+	
+	/**
+	 * Writes the phase and net metrics as a JSON object with a "phases" and a "nets" 
+	 * array, nets sorted by decreasing wall time.  The wall time of phases is their 
+	 * elapsed time.  A "boundingBoxSteps" array holds the bounding box step counters.
+	 * @param fileName Name of the file to write.
+	 */
+	public void writeJSON(String fileName){
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"phases\": [");
+		List<Counters> phaseList = getPhaseMetrics();
+		for(int i=0; i < phaseList.size(); i++){
+			Counters c = phaseList.get(i);
+			sb.append(i == 0 ? "\n    " : ",\n    ");
+			appendJSON(sb, c, getPhaseTimeNanos(c.getName()));
+		}
+		sb.append("\n  ],\n  \"nets\": [");
+		List<Counters> netList = getSlowestNets(nets.size());
+		for(int i=0; i < netList.size(); i++){
+			sb.append(i == 0 ? "\n    " : ",\n    ");
+			appendJSON(sb, netList.get(i), netList.get(i).getWallTimeNanos());
+		}
+		sb.append("\n  ],\n  \"boundingBoxSteps\": [");
+		List<BoundingBoxStep> steps = getBoundingBoxSteps();
+		for(int i=0; i < steps.size(); i++){
+			BoundingBoxStep s = steps.get(i);
+			sb.append(i == 0 ? "\n    " : ",\n    ");
+			sb.append("{\"step\": " + s.getStep() + ", \"margin\": " + s.getMargin() 
+				+ ", \"searches\": " + s.getSearches() + ", \"routed\": " + s.getRouted() 
+				+ ", \"nodesExpanded\": " + s.getNodesExpanded() + "}");
+		}
+		sb.append("\n  ]\n}\n");
+		FileTools.writeStringToTextFile(sb.toString(), fileName);
+	}
+	
+	private static Object[] getValues(Counters c, long wallTimeNanos){
+		return new Object[]{c.getRouteCount(), c.getConnections(), c.getFailedConnections(), 
+			c.getNodesExpanded(), c.getMaxQueueSize(), c.getRipUps(), 
+			String.format(Locale.ROOT, "%.3f", wallTimeNanos / 1000000.0)};
+	}
+	
+	private static String toCSV(Counters c, long wallTimeNanos){
+		StringBuilder sb = new StringBuilder();
+		String name = c.getName();
+		if(name.indexOf(',') >= 0 || name.indexOf('"') >= 0){
+			name = "\"" + name.replace("\"", "\"\"") + "\"";
+		}
+		sb.append(name);
+		for(Object value : getValues(c, wallTimeNanos)){
+			sb.append(',');
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+	
+	private static void appendJSON(StringBuilder sb, Counters c, long wallTimeNanos){
+		sb.append("{\"name\": ");
+		appendJSONString(sb, c.getName());
+		Object[] values = getValues(c, wallTimeNanos);
+		for(int i=0; i < values.length; i++){
+			sb.append(", \"");
+			sb.append(FIELDS[i+1]);
+			sb.append("\": ");
+			sb.append(values[i]);
+		}
+		sb.append('}');
+	}
+	
+	/**
+	 * Appends a quoted JSON string, escaping quotes, backslashes and control characters.
+	 */
+	private static void appendJSONString(StringBuilder sb, String s){
+		sb.append('"');
+		for(int i=0; i < s.length(); i++){
+			char ch = s.charAt(i);
+			switch(ch){
+				case '"':  sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				case '\b': sb.append("\\b"); break;
+				case '\f': sb.append("\\f"); break;
+				default:
+					if(ch < 0x20){
+						sb.append(String.format("\\u%04x", (int) ch));
+					}else{
+						sb.append(ch);
+					}
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -1,8 +1,5 @@
 package com.xilinx.rapidwright.router;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +22,7 @@ import com.xilinx.rapidwright.design.PinSwap;
 import com.xilinx.rapidwright.design.SiteInst;
 import com.xilinx.rapidwright.design.SitePinInst;
 import com.xilinx.rapidwright.design.blocks.PBlock;
+import com.xilinx.rapidwright.design.blocks.TileMask;
 import com.xilinx.rapidwright.device.BELPin;
 import com.xilinx.rapidwright.device.Device;
 import com.xilinx.rapidwright.device.IntentCode;
@@ -44,7 +42,9 @@ import com.xilinx.rapidwright.util.MessageGenerator;
  * This class provides a RapidWright front-end usage wrapper for the
  * Vivado-distributed executable evRouter.  evRouter is a SAT Solver
  * wrapped with special capabilities of casting place and route problems
- * as SAT problems.
+ * as SAT problems.  Alternatively, an in-process {@link SATSolver} can be 
+ * provided (see {@link #setSolver(SATSolver)}) to solve the routing problem 
+ * in memory without writing files or spawning evRouter.
  * 
  * @author clavin
  * 
@@ -95,6 +95,8 @@ public class SATRouter {
 	private Design design; 
 	/** Pblock used to constrain routing of the design */
 	private PBlock pblock;
+	/** Tiles of the pblock, used as the fast region test when building the routing graph */
+	private TileMask tileMask;
 	/** Current set of nets to route */
 	private Set<Net> netsToRoute;
 	/** Nodes to exclude from routing solution */
@@ -103,6 +105,10 @@ public class SATRouter {
 	private boolean useWeightsOnNodes = false;
 	/** Flag to indicate if the routing should be fixed */
 	private boolean fixRouting = false;
+	/** In-process solver used instead of evRouter when set */
+	private SATSolver solver = null;
+	/** Writes the pip and problem files for debugging when using an in-process solver */
+	private boolean exportProblemFiles = false;
 	
 	private int commonNodeWeight = 10;
 	
@@ -151,6 +157,21 @@ public class SATRouter {
 		this.netsToRoute = new HashSet<>(netsToRoute);
 	}
 
+	/**
+	 * Initializes the SAT router for one sub-problem of a larger routing problem.
+	 * @param design A placed design to route
+	 * @param pblock The area of the sub-problem, all nets that have all endpoints 
+	 * physically located inside the pblock will be included in the route attempt.
+	 * @param unroute Unroutes the design before using the SAT solver
+	 * @param routeSites Routes the site nets of the design before searching for the nets
+	 * to route, can be skipped if {@link #routeSiteNets(Design)} was already called.
+	 */
+	SATRouter(Design design, PBlock pblock, boolean unroute, boolean routeSites){
+		init(design,pblock, unroute);
+		if(routeSites) routeSiteNets(design);
+		findNetsToRoute();
+	}
+	
 	private void init(Design design, PBlock pblock, boolean unroute){
 		this.design = design;
 		this.setPblock(pblock);
@@ -265,6 +286,16 @@ public class SATRouter {
 	 * for the SAT solver. 
 	 */
 	private void populateNetsToRoute(){
+		routeSiteNets(design);
+		findNetsToRoute();
+	}
+	
+	/**
+	 * Routes the site nets of the design so that the physical nets of site pins 
+	 * can be identified.
+	 * @param design The design to prepare.
+	 */
+	static void routeSiteNets(Design design){
 		Map<String,String> parentNetMap = design.getNetlist().getParentNetMap();
 		for(SiteInst i : design.getSiteInsts()){
 			for(Entry<String,Net> e : i.getNetSiteWireMap().entrySet()){
@@ -291,7 +322,13 @@ public class SATRouter {
 		}
 		design.routeSites();
 		//updateSitePinInsts();
-		
+	}
+	
+	/**
+	 * Finds the nets with all pins inside the pblock and the nodes
+	 * used by existing routing in the pblock.  Does not modify the design.
+	 */
+	void findNetsToRoute(){
 		// Find nets
 		HashSet<Net> visitedNets = new HashSet<>();
 		for(Tile t : pblock.getAllTiles()){
@@ -337,6 +374,8 @@ public class SATRouter {
 	 */
 	private boolean includeNode(Node n){
 		if(n == null) return false;
+		// Nodes rooted outside the pblock can never be used as a fanin, skip them
+		if(tileMask == null || !tileMask.contains(n.getTile())) return false;
 		SitePin sp = n.getSitePin();
 		if(sp != null){
 			SiteInst si = design.getSiteInstFromSite(sp.getSite());
@@ -351,133 +390,141 @@ public class SATRouter {
 	}
 	
 	/**
-	 * Creates the necessary routing resource graph file
-	 * to supply evRouter for routing.
+	 * Creates the routing problem to solve: the routing resource graph of the
+	 * pblock and the nets to route.
+	 * @return The routing problem described by the design, pblock and nets to route.
 	 */
-	public void createPipFile(){
+	public SATRoutingProblem createRoutingProblem(){
+		SATRoutingProblem problem = new SATRoutingProblem();
 		boolean isVersal = design.getDevice().getSeries() == Series.Versal;
-		try {
-			BufferedWriter bw = new BufferedWriter(new FileWriter(pipFile));
-			// Find all sites, expand from all outputs within the region
-			Set<Tile> tiles = pblock.getAllTiles();
-			Set<Node> reported = new HashSet<>();
-						
-			HashMap<String,Cell> luts = new HashMap<String,Cell>();
-			for(Tile t : tiles){
-				for(int i=0; i < t.getWireCount(); i++){
-					if(IntentCode.isUltraScaleClocking(t, i)) continue;
-					Node n = Node.getNode(t,i);					
-					if(!includeNode(n)) continue;
-					if(reported.contains(n)) continue;
-					if(excludedNodes.contains(n)) continue;
-					bw.write(n.toString());
-					for(Wire w : n.getAllWiresInNode()){
-						HashSet<Node> currNodes = new HashSet<Node>();
-						for(PIP p : w.getBackwardPIPs()){
-							if(p.isRouteThru()) continue;
-							String startWireName = p.getStartWireName();
-							Node start = Node.getNode(w.getTile(),startWireName);
-							if(start != null && !currNodes.contains(start) && tiles.contains(start.getTile())){
-								bw.write(" " + start + (useWeightsOnNodes ? ":" + commonNodeWeight : ""));
-								currNodes.add(start);
-							}
+		// Find all sites, expand from all outputs within the region
+		Set<Tile> tiles = pblock.getAllTiles();
+		Set<Node> reported = new HashSet<>();
+
+		HashMap<String,Cell> luts = new HashMap<String,Cell>();
+		for(Tile t : tiles){
+			for(int i=0; i < t.getWireCount(); i++){
+				if(IntentCode.isUltraScaleClocking(t, i)) continue;
+				Node n = Node.getNode(t,i);
+				if(!includeNode(n)) continue;
+				if(reported.contains(n)) continue;
+				if(excludedNodes.contains(n)) continue;
+				int vertex = problem.getVertex(n.toString(), n.getTile());
+				problem.defineVertex(vertex);
+				for(Wire w : n.getAllWiresInNode()){
+					HashSet<Node> currNodes = new HashSet<Node>();
+					for(PIP p : w.getBackwardPIPs()){
+						if(p.isRouteThru()) continue;
+						String startWireName = p.getStartWireName();
+						Node start = Node.getNode(w.getTile(),startWireName);
+						if(start != null && !currNodes.contains(start) && tileMask.contains(start.getTile())){
+							int fanin = problem.getVertex(start.toString(), start.getTile());
+							problem.addFanin(vertex, fanin, useWeightsOnNodes ? commonNodeWeight : -1);
+							currNodes.add(start);
 						}
 					}
-					reported.add(n);
-					bw.write("\n");
 				}
-				if(t.getSites() == null) continue;
-				for(Site s : t.getSites()){
-					SiteInst si = design.getSiteInstFromSite(s);
-					if(si == null) continue;
-					for(Cell c : si.getCells()){
-						if(c.getBELName().contains("LUT")){
-							// Check if the 5LUT is used, if it is, we use that instead
-							Cell lut5 = si.getCell(si.getBEL(c.getBELName().replace("6", "5")).getName());
-							if(lut5 != null) luts.put(lut5.toString(), lut5);
-							else luts.put(c.toString(), c);
-						}
+				reported.add(n);
+			}
+			if(t.getSites() == null) continue;
+			for(Site s : t.getSites()){
+				SiteInst si = design.getSiteInstFromSite(s);
+				if(si == null) continue;
+				for(Cell c : si.getCells()){
+					if(c.getBELName().contains("LUT")){
+						// Check if the 5LUT is used, if it is, we use that instead
+						Cell lut5 = si.getCell(si.getBEL(c.getBELName().replace("6", "5")).getName());
+						if(lut5 != null) luts.put(lut5.toString(), lut5);
+						else luts.put(c.toString(), c);
 					}
 				}
 			}
-			
-			// Generate full crossbar for LUT inputs, using lut input wire as 2nd stage			
-			for(Cell lut : luts.values()){
-				int lutSize = lut.getBELName().charAt(1) - 48 /* ASCII 0 */;
-				Wire[] wires = new Wire[lutSize];
-				Node[] nodes = new Node[lutSize];
-				for(int i=0; i < lutSize; i++){
-					String physPinName = "A" + (i+1);
-					String pinName = lut.getSiteWireNameFromPhysicalPin(physPinName);
-					if(isVersal) {
-						BELPin[] pins = lut.getSiteInst().getSiteWirePins(pinName);
-						BELPin src = null;
-						for(BELPin pin : pins) {
-							if(pin.isOutput()) {
-								src = pin.getBEL().getPin("D");
-								break;
-							}
+		}
+
+		// Generate full crossbar for LUT inputs, using lut input wire as 2nd stage
+		for(Cell lut : luts.values()){
+			int lutSize = lut.getBELName().charAt(1) - 48 /* ASCII 0 */;
+			Wire[] wires = new Wire[lutSize];
+			Node[] nodes = new Node[lutSize];
+			for(int i=0; i < lutSize; i++){
+				String physPinName = "A" + (i+1);
+				String pinName = lut.getSiteWireNameFromPhysicalPin(physPinName);
+				if(isVersal) {
+					BELPin[] pins = lut.getSiteInst().getSiteWirePins(pinName);
+					BELPin src = null;
+					for(BELPin pin : pins) {
+						if(pin.isOutput()) {
+							src = pin.getBEL().getPin("D");
+							break;
 						}
-						pinName = src.getSourcePin().getConnectedSitePinName();
 					}
-					int wire = lut.getSite().getTileWireIndexFromPinName(pinName);
-					wires[i] = new Wire(lut.getSite().getTile(), wire);
-					nodes[i] = Node.getNode(wires[i]);
+					pinName = src.getSourcePin().getConnectedSitePinName();
 				}
-				for(int i=0; i < lutSize; i++){
-					bw.write(wires[i].toString());
-					for(int j=0; j < lutSize; j++){
-						bw.write(" " + nodes[j] + (useWeightsOnNodes ? ":" + lutInputWeights[j] : ""));
-					}
-					bw.write("\n");
+				int wire = lut.getSite().getTileWireIndexFromPinName(pinName);
+				wires[i] = new Wire(lut.getSite().getTile(), wire);
+				nodes[i] = Node.getNode(wires[i]);
+			}
+			for(int i=0; i < lutSize; i++){
+				int vertex = problem.getVertex(wires[i].toString(), wires[i].getTile());
+				problem.defineVertex(vertex);
+				for(int j=0; j < lutSize; j++){
+					int fanin = problem.getVertex(nodes[j].toString(), nodes[j].getTile());
+					problem.addFanin(vertex, fanin, useWeightsOnNodes ? lutInputWeights[j] : -1);
 				}
 			}
-			
-			bw.close();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
+
+		nextNet: for(Net n : netsToRoute){
+			if(n.getSource() == null || n.getPins().size() < 2){
+				//throw new RuntimeException("ERROR: Bad net " + n);
+				continue nextNet;
+			}
+			for(SitePinInst p : n.getPins()){
+				if(!pblock.containsTile(p.getTile())) continue nextNet;
+			}
+			Node srcNode = n.getSource().getConnectedNode();
+			int source = problem.getVertex(srcNode.toString(), srcNode.getTile());
+			List<SitePinInst> sinkPins = n.getSinkPins();
+			int[] sinks = new int[sinkPins.size()];
+			for(int i=0; i < sinks.length; i++){
+				SitePinInst p = sinkPins.get(i);
+				if(p.isLUTInputPin()){
+					Wire w = new Wire(p.getTile(),p.getConnectedWireIndex());
+					sinks[i] = problem.getVertex(w.toString(), w.getTile());
+				}else{
+					Node sinkNode = p.getConnectedNode();
+					sinks[i] = problem.getVertex(sinkNode.toString(), sinkNode.getTile());
+				}
+			}
+			problem.addNet(n.getName(), source, sinks);
+		}
+		return problem;
 	}
-	
+
+	/**
+	 * Creates the necessary routing resource graph file
+	 * to supply evRouter for routing.
+	 */
+	public void createPipFile(){
+		createRoutingProblem().writePipFile(pipFile);
+	}
+
 	public static void randomizeLines(String inputFileName, String outputFileName, long seed){
 		ArrayList<String> lines = FileTools.getLinesFromTextFile(inputFileName);
 		Random rnd = new Random(seed);
 		Collections.shuffle(lines, rnd);
 		FileTools.writeLinesToTextFile(lines, outputFileName);
 	}
-	
+
 	public void createNetsFiles(){
-		try {
-			BufferedWriter bw = new BufferedWriter(new FileWriter(pbFile));
-			nextNet: for(Net n : netsToRoute){
-				if(n.getSource() == null || n.getPins().size() < 2){
-					//throw new RuntimeException("ERROR: Bad net " + n);
-					continue nextNet;
-				}
-				for(SitePinInst p : n.getPins()){
-					if(!pblock.containsTile(p.getTile())) continue nextNet;
-				}
-				
-				bw.write(n.getName() + " " + n.getSource().getConnectedNode());
-				for(SitePinInst p : n.getSinkPins()){
-					if(p.isLUTInputPin()){
-						Wire w = new Wire(p.getTile(),p.getConnectedWireIndex());
-						bw.write(" " + w);
-					}else{
-						bw.write(" " + p.getConnectedNode());
-					}
-					
-				}
-				bw.write("\n");
-			}
-			bw.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		
+		writeNetsFile(createRoutingProblem());
+	}
+
+	private void writeNetsFile(SATRoutingProblem problem){
+		problem.writeNetsFile(pbFile);
 		randomizeLines(pbFile, pbFile, SEED);
 	}
-	
+
 	/**
 	 * Executes evRouter outside of the RapidWright runtime.  Applies
 	 * all configured settings.
@@ -537,9 +584,8 @@ public class SATRouter {
 	 * routing solution taking advantage of the LUT input flexibility.
 	 */
 	public void applyRoutingResult(){
-		Device dev = design.getDevice();
-		Net currNet = null;
-		HashMap<String,HashMap<String,PinSwap>> pinSwaps = new HashMap<>();
+		Map<String,List<String[]>> solution = new LinkedHashMap<>();
+		List<String[]> currRoute = null;
 		for(String line : FileTools.getLinesFromTextFile(outputFileName)){
 			if(line.contains("{") || line.contains("}") || line.contains("\"tree\":")) continue;
 			line = line.trim();
@@ -549,6 +595,32 @@ public class SATRouter {
 				int rightBracket = line.indexOf(']');
 				String node0 = line.substring(2, comma-1);
 				String node1 = line.substring(comma+3, rightBracket-1);
+				currRoute.add(new String[]{node0, node1});
+			}
+			else if(line.startsWith("\"") && line.endsWith("\":")){
+				String netName = line.substring(1, line.length()-2);
+				currRoute = new ArrayList<>();
+				solution.put(netName, currRoute);
+			}
+		}
+		applyRoutingSolution(solution);
+	}
+	
+	/**
+	 * Applies a routing solution to the existing design.  Manages LUT pin input swapping 
+	 * as a result of the routing solution taking advantage of the LUT input flexibility.
+	 * @param solution For each net name, the [driver, driven] node name pairs of its route.
+	 * When the driven name is a LUT input site pin wire rather than a node, the LUT input 
+	 * is swapped to the pin of the driver node.
+	 */
+	public void applyRoutingSolution(Map<String,List<String[]>> solution){
+		Device dev = design.getDevice();
+		HashMap<String,HashMap<String,PinSwap>> pinSwaps = new HashMap<>();
+		for(Entry<String,List<String[]>> route : solution.entrySet()){
+			Net currNet = design.getNet(route.getKey());
+			for(String[] pair : route.getValue()){
+				String node0 = pair[0];
+				String node1 = pair[1];
 				Node n0 = Node.getNode(node0,dev);
 				Node n1 = Node.getNode(node1,dev);
 				if(!node1.equals(n1.toString())){
@@ -622,13 +694,8 @@ public class SATRouter {
 					}
 				}
 				if(!foundPIP){
-					throw new RuntimeException("ERROR: Couldn't find pip from line:\n'" + line + "'");
+					throw new RuntimeException("ERROR: Couldn't find pip from " + node0 + " to " + node1);
 				}
-				
-			}
-			else if(line.startsWith("\"") && line.endsWith("\":")){
-				String netName = line.substring(1, line.length()-2);
-				currNet = design.getNet(netName);
 			}
 		}
 		
@@ -746,8 +813,14 @@ public class SATRouter {
 			}
 		}
 		
-		createNetsFiles();
-		createPipFile();
+		if(solver != null){
+			routeInProcess();
+			return;
+		}
+		
+		SATRoutingProblem problem = createRoutingProblem();
+		writeNetsFile(problem);
+		problem.writePipFile(pipFile);
 		int result = runEvRouter();
 		if(result != 0){
 			int lastLineCount = 10;
@@ -777,6 +850,62 @@ public class SATRouter {
 		applyRoutingResult();
 	}
 	
+	/**
+	 * Solves the routing problem with the in-process {@link #getSolver() solver} and 
+	 * applies the solution, no files are written unless {@link #isExportProblemFiles()} 
+	 * is set.
+	 */
+	private void routeInProcess(){
+		long start = System.currentTimeMillis();
+		SATRoutingProblem problem = createRoutingProblem();
+		if(exportProblemFiles){
+			writeNetsFile(problem);
+			problem.writePipFile(pipFile);
+		}
+		Map<String,List<String[]>> solution = problem.solve(solver, maxConflicts == null ? 0 : maxConflicts);
+		if(verbosity > 0){
+			System.out.println("SAT routing problem: " + problem.getNetCount() + " nets, " + problem.getVertexCount() 
+				+ " nodes, " + solver.getVariableCount() + " variables, " + problem.getPasses() + " solver passes in " 
+				+ (System.currentTimeMillis() - start) + "ms");
+		}
+		if(solution == null){
+			String reason = problem.getLastResult() == null ? "the conflict/pass limit was reached" : "no routing solution exists";
+			throw new RuntimeException("\n  ERROR: SAT Routing failed for design '" 
+					+ design.getName() + "' with pblock '" + pblock.toString() + "', " + reason + ".");
+		}
+		applyRoutingSolution(solution);
+	}
+	
+	/**
+	 * @return the in-process solver used instead of evRouter, null when evRouter is used
+	 */
+	public SATSolver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * Sets an in-process solver (for example {@link CDCLSolver}) to solve the routing problem 
+	 * in memory instead of writing files and running evRouter.
+	 * @param solver the solver to use, or null to use evRouter
+	 */
+	public void setSolver(SATSolver solver) {
+		this.solver = solver;
+	}
+
+	/**
+	 * @return true if the pip and problem files are also written when using an in-process solver
+	 */
+	public boolean isExportProblemFiles() {
+		return exportProblemFiles;
+	}
+
+	/**
+	 * @param exportProblemFiles the exportProblemFiles to set
+	 */
+	public void setExportProblemFiles(boolean exportProblemFiles) {
+		this.exportProblemFiles = exportProblemFiles;
+	}
+
 	/**
 	 * @return the verbosity
 	 */
@@ -1055,6 +1184,7 @@ public class SATRouter {
 	 */
 	public void setPblock(PBlock pblock) {
 		this.pblock = pblock;
+		this.tileMask = pblock == null ? null : pblock.getTileMask();
 	}
 
 	/**
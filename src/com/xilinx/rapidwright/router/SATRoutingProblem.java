@@ -0,0 +1,440 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.util.FileTools;
+
+/**
+ * An in-memory description of a routing problem for the SAT router: a routing graph 
+ * whose vertices are named by their node (or site pin wire for LUT inputs) along with
+ * the vertices that can drive each of them, and the nets to route on that graph.  The 
+ * problem can be written out in the evRouter pip/problem file format or solved directly 
+ * with a {@link SATSolver}.
+ * 
+ * The SAT encoding has one variable per net and vertex the net may use (limited to the net's 
+ * bounding box plus {@link #NET_BOUNDING_BOX_MARGIN}) and one per net and edge between 
+ * such vertices.  Every used vertex other than the source needs a used incoming edge and 
+ * each vertex is used by at most one net.  Connectivity from the source is checked after 
+ * each solve, any net with a sink that cannot be reached from its source gets a cut 
+ * constraint and the problem is solved again.
+ * 
+ * Created on: Mar 3, 2021
+ */
+public class SATRoutingProblem {
+
+	/** Tiles added around each net's bounding box to limit the vertices it may use, doubled each time no solution exists */
+	public static int NET_BOUNDING_BOX_MARGIN = 4;
+	
+	/** Maximum number of times connectivity constraints are added and the problem solved again */
+	public static int MAX_CONNECTIVITY_PASSES = 1000;
+	
+	/** Names of the vertices of the routing graph */
+	private List<String> names = new ArrayList<>();
+	/** Tile of each vertex, used to limit the vertices of each net */
+	private List<Tile> tiles = new ArrayList<>();
+	private Map<String,Integer> ids = new HashMap<>();
+	/** Vertices that can drive each vertex */
+	private List<List<Integer>> fanins = new ArrayList<>();
+	/** Weight of each fanin for evRouter, negative when unweighted */
+	private List<List<Integer>> faninWeights = new ArrayList<>();
+	/** Vertices described in the routing graph, in order */
+	private Set<Integer> definedVertices = new LinkedHashSet<>();
+	private List<String> netNames = new ArrayList<>();
+	/** Source vertex followed by sink vertices of each net */
+	private List<int[]> netVertices = new ArrayList<>();
+	
+	/** Result of the last solve, null if the conflict limit was reached */
+	private Boolean lastResult;
+	private int passes;
+	
+	/**
+	 * Gets the vertex of the given name, creating it if needed.
+	 * @param name Name of the node or wire.
+	 * @param tile Tile of the node or wire.
+	 * @return The vertex index.
+	 */
+	public int getVertex(String name, Tile tile){
+		Integer id = ids.get(name);
+		if(id == null){
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+			tiles.add(tile);
+			fanins.add(new ArrayList<>());
+			faninWeights.add(new ArrayList<>());
+		}
+		return id;
+	}
+	
+	/**
+	 * Adds a vertex to the routing graph description.  Vertices that are only referenced
+	 * as fanins cannot be driven.
+	 * @param vertex The vertex index.
+	 */
+	public void defineVertex(int vertex){
+		definedVertices.add(vertex);
+	}
+	
+	/**
+	 * Adds a vertex that can drive the given vertex.
+	 * @param vertex The driven vertex.
+	 * @param fanin The driver vertex.
+	 * @param weight Weight of the connection, negative for none.
+	 */
+	public void addFanin(int vertex, int fanin, int weight){
+		defineVertex(vertex);
+		List<Integer> curr = fanins.get(vertex);
+		if(curr.contains(fanin)) return;
+		curr.add(fanin);
+		faninWeights.get(vertex).add(weight);
+	}
+	
+	/**
+	 * Adds a net to route.
+	 * @param name Name of the net.
+	 * @param source The vertex of the source.
+	 * @param sinks The vertices of the sinks.
+	 */
+	public void addNet(String name, int source, int[] sinks){
+		int[] vertices = new int[sinks.length+1];
+		vertices[0] = source;
+		System.arraycopy(sinks, 0, vertices, 1, sinks.length);
+		netNames.add(name);
+		netVertices.add(vertices);
+	}
+	
+	public int getVertexCount(){
+		return names.size();
+	}
+	
+	public int getNetCount(){
+		return netNames.size();
+	}
+	
+	/**
+	 * @return The number of times the problem was solved by the last call to 
+	 * {@link #solve(SATSolver, long)}.
+	 */
+	public int getPasses(){
+		return passes;
+	}
+	
+	/**
+	 * @return The result of the last solver call: true if routed, false if no solution exists
+	 * and null if the conflict limit was reached.
+	 */
+	public Boolean getLastResult(){
+		return lastResult;
+	}
+	
+	/**
+	 * Writes the routing graph in the evRouter pip file format, one line per vertex listing
+	 * the vertex followed by its fanins.
+	 * @param fileName Name of the file to write.
+	 */
+	public void writePipFile(String fileName){
+		List<String> lines = new ArrayList<>(definedVertices.size());
+		for(int v : definedVertices){
+			StringBuilder sb = new StringBuilder(names.get(v));
+			List<Integer> curr = fanins.get(v);
+			for(int i=0; i < curr.size(); i++){
+				sb.append(' ');
+				sb.append(names.get(curr.get(i)));
+				int weight = faninWeights.get(v).get(i);
+				if(weight >= 0){
+					sb.append(':');
+					sb.append(weight);
+				}
+			}
+			lines.add(sb.toString());
+		}
+		FileTools.writeLinesToTextFile(lines, fileName);
+	}
+	
+	/**
+	 * Writes the nets in the evRouter problem file format, one line per net listing the 
+	 * net name, source and sinks.
+	 * @param fileName Name of the file to write.
+	 */
+	public void writeNetsFile(String fileName){
+		List<String> lines = new ArrayList<>(netNames.size());
+		for(int i=0; i < netNames.size(); i++){
+			StringBuilder sb = new StringBuilder(netNames.get(i));
+			for(int v : netVertices.get(i)){
+				sb.append(' ');
+				sb.append(names.get(v));
+			}
+			lines.add(sb.toString());
+		}
+		FileTools.writeLinesToTextFile(lines, fileName);
+	}
+	
+	/**
+	 * Solves the routing problem.  If no solution exists with the current bounding box 
+	 * margin, the margin is doubled and the problem solved again until the nets may use 
+	 * every vertex.
+	 * @param solver The solver to use, it is reset before each use.
+	 * @param maxConflicts The number of conflicts allowed per solver call, 0 for no limit.
+	 * @return For each net name, the list of [driver, driven] vertex name pairs that route 
+	 * it, or null if no solution was found (see {@link #getLastResult()}).
+	 */
+	public Map<String,List<String[]>> solve(SATSolver solver, long maxConflicts){
+		passes = 0;
+		int margin = Math.max(0, NET_BOUNDING_BOX_MARGIN);
+		while(true){
+			Encoding encoding = new Encoding(solver, margin);
+			Map<String,List<String[]>> solution = encoding.solve(maxConflicts);
+			if(solution != null || lastResult == null || !encoding.restricted){
+				return solution;
+			}
+			margin = Math.max(1, margin * 2);
+		}
+	}
+	
+	/**
+	 * The variables of the routing problem in a solver for a given bounding box margin.
+	 */
+	private class Encoding {
+		private SATSolver solver;
+		/** True if any net was not allowed to use some vertex */
+		private boolean restricted;
+		/** Per net, the variable of each vertex the net may use */
+		private List<Map<Integer,Integer>> vertexVars = new ArrayList<>();
+		/** Per net, the from vertex, to vertex and variable of each edge the net may use */
+		private List<int[][]> edges = new ArrayList<>();
+		
+		private Encoding(SATSolver solver, int margin){
+			this.solver = solver;
+			solver.reset();
+			Map<Integer,List<Integer>> netsByVertex = new HashMap<>();
+			for(int i=0; i < netVertices.size(); i++){
+				int[] pins = netVertices.get(i);
+				Map<Integer,Integer> vars = new HashMap<>();
+				int[] bbox = getBoundingBox(pins, margin);
+				for(int v=0; v < names.size(); v++){
+					if(!inBoundingBox(tiles.get(v), bbox)) {
+						restricted = true;
+						continue;
+					}
+					vars.put(v, solver.newVariable());
+				}
+				for(int pin : pins){
+					if(!vars.containsKey(pin)) vars.put(pin, solver.newVariable());
+					solver.addClause(vars.get(pin));
+				}
+				
+				List<int[]> netEdges = new ArrayList<>();
+				for(Map.Entry<Integer,Integer> e : vars.entrySet()){
+					int v = e.getKey();
+					int x = e.getValue();
+					List<Integer> netsOfVertex = netsByVertex.get(v);
+					if(netsOfVertex == null){
+						netsOfVertex = new ArrayList<>();
+						netsByVertex.put(v, netsOfVertex);
+					}
+					netsOfVertex.add(x);
+					if(v == pins[0]) continue;
+					// A used vertex needs a used incoming edge, an edge needs both ends used
+					List<Integer> drivers = new ArrayList<>();
+					drivers.add(-x);
+					for(int u : fanins.get(v)){
+						Integer xu = vars.get(u);
+						if(xu == null || u == v) continue;
+						int edge = solver.newVariable();
+						solver.addClause(-edge, xu);
+						solver.addClause(-edge, x);
+						drivers.add(edge);
+						netEdges.add(new int[]{u, v, edge});
+					}
+					solver.addClause(toArray(drivers));
+				}
+				// A used vertex that is not a sink needs a used outgoing edge
+				Map<Integer,List<Integer>> loads = new HashMap<>();
+				for(int[] edge : netEdges){
+					List<Integer> curr = loads.get(edge[0]);
+					if(curr == null){
+						curr = new ArrayList<>();
+						curr.add(-vars.get(edge[0]));
+						loads.put(edge[0], curr);
+					}
+					curr.add(edge[2]);
+				}
+				Set<Integer> sinks = new HashSet<>();
+				for(int j=1; j < pins.length; j++) sinks.add(pins[j]);
+				for(Map.Entry<Integer,Integer> e : vars.entrySet()){
+					if(sinks.contains(e.getKey())) continue;
+					List<Integer> curr = loads.get(e.getKey());
+					solver.addClause(curr == null ? new int[]{-e.getValue()} : toArray(curr));
+				}
+				vertexVars.add(vars);
+				edges.add(netEdges.toArray(new int[netEdges.size()][]));
+			}
+			// Each vertex can only be used by one net
+			for(List<Integer> vars : netsByVertex.values()){
+				if(vars.size() > 1) addAtMostOne(toArray(vars));
+			}
+		}
+		
+		private void addAtMostOne(int[] vars){
+			if(vars.length <= 4){
+				for(int i=0; i < vars.length; i++){
+					for(int j=i+1; j < vars.length; j++){
+						solver.addClause(-vars[i], -vars[j]);
+					}
+				}
+				return;
+			}
+			// Sequential counter encoding
+			int prev = solver.newVariable();
+			solver.addClause(-vars[0], prev);
+			for(int i=1; i < vars.length-1; i++){
+				int curr = solver.newVariable();
+				solver.addClause(-vars[i], curr);
+				solver.addClause(-prev, curr);
+				solver.addClause(-vars[i], -prev);
+				prev = curr;
+			}
+			solver.addClause(-vars[vars.length-1], -prev);
+		}
+		
+		private Map<String,List<String[]>> solve(long maxConflicts){
+			while(passes < MAX_CONNECTIVITY_PASSES){
+				passes++;
+				lastResult = solver.solve(maxConflicts);
+				if(lastResult != Boolean.TRUE) return null;
+				boolean connected = true;
+				Map<String,List<String[]>> solution = new LinkedHashMap<>();
+				for(int i=0; i < netNames.size(); i++){
+					List<String[]> route = getRoute(i);
+					if(route == null){
+						connected = false;
+					}else if(connected){
+						solution.put(netNames.get(i), route);
+					}
+				}
+				if(connected) return solution;
+			}
+			lastResult = null;
+			return null;
+		}
+		
+		/**
+		 * Extracts the route of a net from the solver's assignment.  If a sink cannot be
+		 * reached from the source, a clause requiring an edge out of the reachable vertices is
+		 * added instead.
+		 * @param net Index of the net.
+		 * @return The [driver, driven] vertex name pairs of the route or null if disconnected. 
+		 */
+		private List<String[]> getRoute(int net){
+			int[] pins = netVertices.get(net);
+			int[][] netEdges = edges.get(net);
+			Map<Integer,List<int[]>> fanouts = new HashMap<>();
+			for(int[] edge : netEdges){
+				if(!solver.getValue(edge[2])) continue;
+				List<int[]> curr = fanouts.get(edge[0]);
+				if(curr == null){
+					curr = new ArrayList<>();
+					fanouts.put(edge[0], curr);
+				}
+				curr.add(edge);
+			}
+			Map<Integer,int[]> parents = new HashMap<>();
+			parents.put(pins[0], null);
+			Queue<Integer> q = new ArrayDeque<>();
+			q.add(pins[0]);
+			while(!q.isEmpty()){
+				List<int[]> curr = fanouts.get(q.poll());
+				if(curr == null) continue;
+				for(int[] edge : curr){
+					if(parents.containsKey(edge[1])) continue;
+					parents.put(edge[1], edge);
+					q.add(edge[1]);
+				}
+			}
+			
+			for(int i=1; i < pins.length; i++){
+				if(parents.containsKey(pins[i])) continue;
+				// Any route must leave the vertices reachable from the source
+				List<Integer> cut = new ArrayList<>();
+				for(int[] edge : netEdges){
+					if(parents.containsKey(edge[0]) && !parents.containsKey(edge[1])){
+						cut.add(edge[2]);
+					}
+				}
+				solver.addClause(toArray(cut));
+				return null;
+			}
+			
+			Set<int[]> used = new LinkedHashSet<>();
+			for(int i=1; i < pins.length; i++){
+				int[] edge = parents.get(pins[i]);
+				while(edge != null && used.add(edge)){
+					edge = parents.get(edge[0]);
+				}
+			}
+			List<String[]> route = new ArrayList<>(used.size());
+			for(int[] edge : used){
+				route.add(new String[]{names.get(edge[0]), names.get(edge[1])});
+			}
+			return route;
+		}
+	}
+	
+	private int[] getBoundingBox(int[] pins, int margin){
+		int[] bbox = new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		for(int pin : pins){
+			Tile t = tiles.get(pin);
+			bbox[0] = Math.min(bbox[0], t.getColumn());
+			bbox[1] = Math.max(bbox[1], t.getColumn());
+			bbox[2] = Math.min(bbox[2], t.getRow());
+			bbox[3] = Math.max(bbox[3], t.getRow());
+		}
+		bbox[0] -= margin;
+		bbox[1] += margin;
+		bbox[2] -= margin;
+		bbox[3] += margin;
+		return bbox;
+	}
+	
+	private static boolean inBoundingBox(Tile t, int[] bbox){
+		return t.getColumn() >= bbox[0] && t.getColumn() <= bbox[1] && t.getRow() >= bbox[2] && t.getRow() <= bbox[3];
+	}
+	
+	private static int[] toArray(List<Integer> values){
+		int[] array = new int[values.size()];
+		for(int i=0; i < array.length; i++){
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+/**
+ * A Boolean satisfiability solver that runs inside the RapidWright runtime.  Problems
+ * are provided as clauses in conjunctive normal form using DIMACS conventions: 
+ * variables are numbered from 1 and a negative literal is the negation of its variable.
+ * Clauses may be added between calls to {@link #solve(long)} to refine a problem
+ * incrementally.
+ * 
+ * Created on: Mar 3, 2021
+ */
+public interface SATSolver {
+
+	/**
+	 * Discards all variables and clauses so the solver can be used for a new problem.
+	 */
+	public void reset();
+	
+	/**
+	 * Creates a new variable.
+	 * @return The number of the new variable (1, 2, 3, ...).
+	 */
+	public int newVariable();
+	
+	/**
+	 * Gets the number of variables created so far.
+	 * @return The number of variables.
+	 */
+	public int getVariableCount();
+	
+	/**
+	 * Adds a clause (a disjunction of literals) to the problem.
+	 * @param literals The literals of the clause, positive for a variable and negative 
+	 * for its negation.
+	 */
+	public void addClause(int... literals);
+	
+	/**
+	 * Searches for an assignment that satisfies all clauses.
+	 * @param maxConflicts The number of conflicts allowed before giving up, 0 (or less) for 
+	 * no limit.
+	 * @return True if the problem is satisfiable, false if it is not and null if the 
+	 * conflict limit was reached first.
+	 */
+	public Boolean solve(long maxConflicts);
+	
+	/**
+	 * Gets the value of a variable in the last satisfying assignment found by 
+	 * {@link #solve(long)}.
+	 * @param variable The variable number.
+	 * @return The value of the variable.
+	 */
+	public boolean getValue(int variable);
+}
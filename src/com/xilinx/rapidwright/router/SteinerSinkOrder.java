@@ -0,0 +1,108 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.xilinx.rapidwright.design.SitePinInst;
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.device.Tile;
+
+/**
+ * Orders the sinks of a net for Steiner-aware routing: the next sink to route is 
+ * always the one closest (Manhattan distance in tile coordinates) to the routing 
+ * tree built so far, which starts as the source tile and grows as connections are 
+ * routed.  The distance of each sink to the tree is updated incrementally, so 
+ * ordering all sinks of a net costs O(sinks * tree tiles).
+ * 
+ * Created on: Feb 22, 2021
+ */
+class SteinerSinkOrder {
+
+	private List<SitePinInst> sinks;
+	
+	/** Manhattan distance from each sink to the closest tile of the tree */
+	private int[] distances;
+	
+	private boolean[] taken;
+	
+	/** Tiles of the tree already accounted for in the distances */
+	private Set<Tile> treeTiles;
+	
+	SteinerSinkOrder(Tile source, List<SitePinInst> pins){
+		sinks = new ArrayList<SitePinInst>(pins.size());
+		for(SitePinInst p : pins){
+			if(p.isOutPin()) continue;
+			sinks.add(p);
+		}
+		distances = new int[sinks.size()];
+		Arrays.fill(distances, Integer.MAX_VALUE);
+		taken = new boolean[sinks.size()];
+		treeTiles = new HashSet<Tile>();
+		addToTree(source);
+	}
+	
+	/**
+	 * Gets the sink that is closest to the current tree and has not been returned yet.  
+	 * Ties are broken by the original pin order.
+	 * @return The next sink to route, or null if all sinks have been returned.
+	 */
+	SitePinInst next(){
+		int best = -1;
+		for(int i=0; i < distances.length; i++){
+			if(taken[i]) continue;
+			if(best == -1 || distances[i] < distances[best]){
+				best = i;
+			}
+		}
+		if(best == -1) return null;
+		taken[best] = true;
+		return sinks.get(best);
+	}
+	
+	/**
+	 * Adds the tiles of a newly routed connection to the tree.
+	 * @param pips The PIPs of the routed connection.
+	 */
+	void addToTree(List<PIP> pips){
+		for(PIP p : pips){
+			addToTree(p.getTile());
+		}
+	}
+	
+	private void addToTree(Tile tile){
+		if(!treeTiles.add(tile)) return;
+		int x = tile.getTileXCoordinate();
+		int y = tile.getTileYCoordinate();
+		for(int i=0; i < distances.length; i++){
+			if(taken[i]) continue;
+			Tile t = sinks.get(i).getTile();
+			int d = Math.abs(t.getTileXCoordinate() - x) + Math.abs(t.getTileYCoordinate() - y);
+			if(d < distances[i]){
+				distances[i] = d;
+			}
+		}
+	}
+}
@@ -26,16 +26,18 @@
 package com.xilinx.rapidwright.router;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.xilinx.rapidwright.design.Net;
 import com.xilinx.rapidwright.design.SitePinInst;
@@ -47,6 +49,7 @@ import com.xilinx.rapidwright.device.SiteTypeEnum;
 import com.xilinx.rapidwright.device.Tile;
 import com.xilinx.rapidwright.device.Wire;
 import com.xilinx.rapidwright.router.RouteNode;
+import com.xilinx.rapidwright.util.ParallelismTools;
 
 /**
  * A collection of utility methods for routing clocks on
@@ -56,6 +59,116 @@ import com.xilinx.rapidwright.router.RouteNode;
  */
 public class UltraScaleClockRouting {
 	
+	/** Number of threads used to route independent clock regions concurrently, 1 routes them in order */
+	public static int CLOCK_ROUTING_THREADS = ParallelismTools.DEFAULT_THREADS;
+	
+	/** Flag to reuse the routes of previous clocks with the same BUFG, centroid and clock regions */
+	public static boolean USE_CLOCK_ROUTE_TEMPLATES = true;
+	
+	/** Clock routes from a BUFG to the horizontal distribution lines, keyed by {@link #getTemplateKey(Net, ClockRegion, List)} */
+	private static Map<String, ClockRouteTemplate> templates = new ConcurrentHashMap<>();
+	
+	/**
+	 * The PIPs and horizontal distribution lines of a clock routed from a BUFG to a set of clock regions.
+	 */
+	private static class ClockRouteTemplate {
+		private List<PIP> pips;
+		private Tile[] distTiles;
+		private int[] distWires;
+		
+		private ClockRouteTemplate(List<PIP> pips, List<RouteNode> distLines){
+			this.pips = new ArrayList<>(pips);
+			distTiles = new Tile[distLines.size()];
+			distWires = new int[distLines.size()];
+			for(int i=0; i < distTiles.length; i++){
+				distTiles[i] = distLines.get(i).getTile();
+				distWires[i] = distLines.get(i).getWire();
+			}
+		}
+		
+		private List<RouteNode> getDistLines(){
+			List<RouteNode> distLines = new ArrayList<>(distTiles.length);
+			for(int i=0; i < distTiles.length; i++){
+				distLines.add(new RouteNode(distTiles[i], distWires[i]));
+			}
+			return distLines;
+		}
+	}
+	
+	/**
+	 * Routes a clock from its BUFG through the centroid to the horizontal distribution lines of 
+	 * each of the clock regions provided.  When {@link #USE_CLOCK_ROUTE_TEMPLATES} is set, the 
+	 * resulting route is saved and clocks driven by the same BUFG site with the same centroid and
+	 * clock regions reuse it instead of searching again.
+	 * @param clk The clock net to route.
+	 * @param centroid ClockRegion/FSR considered to be the centroid target
+	 * @param clockRegions The target clock regions.
+	 * @return The horizontal distribution lines of the clock regions, to be routed to the LCBs
+	 * (see {@link #routeDistributionToLCBs(Net, List, Set)}).
+	 */
+	public static List<RouteNode> routeToHorizontalDistributionLines(Net clk, ClockRegion centroid, List<ClockRegion> clockRegions) {
+		String key = USE_CLOCK_ROUTE_TEMPLATES ? getTemplateKey(clk, centroid, clockRegions) : null;
+		if(key != null){
+			ClockRouteTemplate template = templates.get(key);
+			if(template != null){
+				clk.getPIPs().addAll(template.pips);
+				return template.getDistLines();
+			}
+		}
+		
+		int start = clk.getPIPs().size();
+		RouteNode clkRoutingLine = routeBUFGToNearestRoutingTrack(clk);
+		if(clkRoutingLine == null){
+			throw new RuntimeException("ERROR: Couldn't route BUFG " + clk.getSource() + " to a clock routing track");
+		}
+		RouteNode centroidRouteNode = routeToCentroid(clk, clkRoutingLine, centroid);
+		if(centroidRouteNode == null){
+			throw new RuntimeException("ERROR: Couldn't route clock " + clk.getName() + " to centroid " + centroid);
+		}
+		RouteNode centroidDistNode = transitionCentroidToDistributionLine(clk, centroidRouteNode);
+		if(centroidDistNode == null){
+			throw new RuntimeException("ERROR: Couldn't transition clock " + clk.getName() + " to a distribution line in centroid " + centroid);
+		}
+		Map<ClockRegion, RouteNode> vertDistLines = routeCentroidToVerticalDistributionLines(clk, centroidDistNode, clockRegions);
+		List<RouteNode> distLines = routeCentroidToHorizontalDistributionLines(clk, centroidDistNode, vertDistLines);
+		
+		if(key != null){
+			List<PIP> pips = clk.getPIPs();
+			templates.put(key, new ClockRouteTemplate(pips.subList(start, pips.size()), distLines));
+		}
+		return distLines;
+	}
+	
+	private static String getTemplateKey(Net clk, ClockRegion centroid, List<ClockRegion> clockRegions){
+		SitePinInst src = clk.getSource();
+		if(src == null || src.getSite() == null) return null;
+		List<String> crNames = new ArrayList<>();
+		for(ClockRegion cr : clockRegions){
+			crNames.add(cr.getName());
+		}
+		Collections.sort(crNames);
+		StringBuilder sb = new StringBuilder();
+		sb.append(centroid.getDevice().getName());
+		sb.append('/');
+		sb.append(src.getSite().getName());
+		sb.append('/');
+		sb.append(src.getName());
+		sb.append('/');
+		sb.append(centroid.getName());
+		for(String crName : crNames){
+			sb.append(',');
+			sb.append(crName);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Removes all saved clock routes (see {@link #USE_CLOCK_ROUTE_TEMPLATES}).
+	 */
+	public static void clearClockRouteTemplates(){
+		templates.clear();
+	}
+	
 	public static RouteNode routeBUFGToNearestRoutingTrack(Net clk){
 		Queue<RouteNode> q = new LinkedList<RouteNode>();
 		q.add(new RouteNode(clk.getSource()));
@@ -84,8 +197,7 @@ public class UltraScaleClockRouting {
 	 * @param centroid ClockRegion/FSR considered to be the centroid target
 	 */
 	public static RouteNode routeToCentroid(Net clk, RouteNode clkRoutingLine, ClockRegion centroid) {
-		Queue<RouteNode> q = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		Queue<RouteNode> q = new RouteNodeQueue();
 		HashSet<RouteNode> visited = new HashSet<>();
 		clkRoutingLine.setParent(null);
 		q.add(clkRoutingLine);
@@ -163,7 +275,7 @@ public class UltraScaleClockRouting {
 	
 	/**
 	 * Routes the vertical distribution path and generates a map between each target clock region and the vertical distribution line to 
-	 * start from.
+	 * start from.  Each clock region's route reuses the routes of the previous regions, so the regions are routed in order.
 	 * @param clk The clock net.
 	 * @param centroidDistNode Starting point vertical distribution line
 	 * @param clockRegions The target clock regions.
@@ -172,8 +284,7 @@ public class UltraScaleClockRouting {
 	public static Map<ClockRegion, RouteNode> routeCentroidToVerticalDistributionLines(Net clk,	RouteNode centroidDistNode, List<ClockRegion> clockRegions) {
 		Map<ClockRegion, RouteNode> crToVdist = new HashMap<>();
 		centroidDistNode.setParent(null);
-		Queue<RouteNode> q = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		Queue<RouteNode> q = new RouteNodeQueue();
 		HashSet<RouteNode> visited = new HashSet<>();
 		Set<PIP> allPIPs = new HashSet<>();
 		Set<RouteNode> startingPoints = new HashSet<>();
@@ -182,7 +293,6 @@ public class UltraScaleClockRouting {
 			q.clear();
 			visited.clear();
 			q.addAll(startingPoints);
-			//q.add(centroidDistNode);
 			Tile crTarget = cr.getApproximateCenter();
 			while(!q.isEmpty()){
 				RouteNode curr = q.poll();
@@ -215,41 +325,53 @@ public class UltraScaleClockRouting {
 	
 	/**
 	 * Routes from a vertical distribution centroid to destination horizontal distribution lines 
-	 * in the clock regions provided.  
+	 * in the clock regions provided.  Each clock region is routed independently from its vertical
+	 * distribution line, so the regions are routed concurrently.
 	 * @param clk
 	 * @param centroidDistLine
 	 * @param clockRegions
 	 * @return
 	 */
 	public static List<RouteNode> routeCentroidToHorizontalDistributionLines(Net clk, RouteNode centroidDistLine, Map<ClockRegion,RouteNode> crMap) {
-		List<RouteNode> distLines = new ArrayList<>();
 		centroidDistLine.setParent(null);
-		Queue<RouteNode> q = new LinkedList<RouteNode>();
-		Set<PIP> allPIPs = new HashSet<>();
-		nextClockRegion: for(Entry<ClockRegion,RouteNode> e : crMap.entrySet()){
-			q.clear();
-			q.add(e.getValue());
-			while(!q.isEmpty()){
-				RouteNode curr = q.poll(); 
-				IntentCode c = curr.getIntentCode();
-				if(e.getKey().equals(curr.getTile().getClockRegion()) && c == IntentCode.NODE_GLOBAL_HDISTR){
-					List<PIP> pips = curr.getPIPsBackToSource();
-					allPIPs.addAll(pips);
-					distLines.add(curr);
-					continue nextClockRegion;
-				}
-				for(Wire w : curr.getWireConnections()){ 
-					if(!w.getIntentCode().isUltraScaleClocking()) continue;
-					q.add(new RouteNode(w.getTile(), w.getWireIndex(), curr, curr.getLevel()+1));
+		List<Callable<RouteNode>> tasks = new ArrayList<>();
+		for(Entry<ClockRegion,RouteNode> e : crMap.entrySet()){
+			tasks.add(new Callable<RouteNode>() {
+				public RouteNode call() {
+					return routeToHorizontalDistributionLine(e.getKey(), e.getValue());
 				}
-			}
-			throw new RuntimeException("ERROR: Couldn't route to distribution line in clock region " + e.getKey());
+			});
+		}
+		List<RouteNode> distLines = ParallelismTools.invokeAll(tasks, CLOCK_ROUTING_THREADS);
+		Set<PIP> allPIPs = new HashSet<>();
+		for(RouteNode distLine : distLines){
+			allPIPs.addAll(distLine.getPIPsBackToSource());
 		}
 		clk.getPIPs().addAll(allPIPs);
 		return distLines;
 	}
+	
+	private static RouteNode routeToHorizontalDistributionLine(ClockRegion cr, RouteNode vdist) {
+		Queue<RouteNode> q = new LinkedList<RouteNode>();
+		q.add(vdist);
+		while(!q.isEmpty()){
+			RouteNode curr = q.poll(); 
+			IntentCode c = curr.getIntentCode();
+			if(cr.equals(curr.getTile().getClockRegion()) && c == IntentCode.NODE_GLOBAL_HDISTR){
+				return curr;
+			}
+			for(Wire w : curr.getWireConnections()){ 
+				if(!w.getIntentCode().isUltraScaleClocking()) continue;
+				q.add(new RouteNode(w.getTile(), w.getWireIndex(), curr, curr.getLevel()+1));
+			}
+		}
+		throw new RuntimeException("ERROR: Couldn't route to distribution line in clock region " + cr);
+	}
 
 	/**
+	 * Routes the horizontal distribution lines to the LCBs.  LCBs are routed from the distribution 
+	 * lines of their own clock region and searches stay within the region, so the clock regions are
+	 * routed concurrently.
 	 * @param clk
 	 * @param lcbTargets
 	 * @return
@@ -265,17 +387,51 @@ public class UltraScaleClockRouting {
 			}
 			routeNodes.add(rn);
 		}
+		Map<ClockRegion, List<RouteNode>> lcbsByRegion = new LinkedHashMap<>();
+		for(RouteNode lcb : lcbTargets){
+			ClockRegion cr = lcb.getTile().getClockRegion();
+			List<RouteNode> lcbs = lcbsByRegion.get(cr);
+			if(lcbs == null){
+				lcbs = new ArrayList<>();
+				lcbsByRegion.put(cr, lcbs);
+			}
+			lcbs.add(lcb);
+		}
 		
-		Queue<RouteNode> q = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
-			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		List<Callable<Set<PIP>>> tasks = new ArrayList<>();
+		for(Entry<ClockRegion, List<RouteNode>> e : lcbsByRegion.entrySet()){
+			Set<RouteNode> regionStartingPoints = startingPoints.get(e.getKey());
+			if(regionStartingPoints == null){
+				throw new RuntimeException("ERROR: Couldn't route to distribution line in clock region " + e.getValue().get(0));
+			}
+			tasks.add(new Callable<Set<PIP>>() {
+				public Set<PIP> call() {
+					return routeDistributionToRegionLCBs(e.getKey(), regionStartingPoints, e.getValue());
+				}
+			});
+		}
+		for(Set<PIP> pips : ParallelismTools.invokeAll(tasks, CLOCK_ROUTING_THREADS)){
+			clk.getPIPs().addAll(pips);
+		}
+	}
+	
+	/**
+	 * Routes the LCBs of a single clock region, each LCB's route reuses the routes of the 
+	 * previous ones.
+	 * @param currCR The clock region of the LCBs.
+	 * @param startingPoints The distribution lines of the clock region, extended with the routes found.
+	 * @param lcbs The LCBs to route.
+	 * @return The PIPs used to route the LCBs.
+	 */
+	private static Set<PIP> routeDistributionToRegionLCBs(ClockRegion currCR, Set<RouteNode> startingPoints, List<RouteNode> lcbs) {
+		Queue<RouteNode> q = new RouteNodeQueue();
 		Set<PIP> allPIPs = new HashSet<>();
 		HashSet<RouteNode> visited = new HashSet<>();
 		
-		nextLCB: for(RouteNode lcb : lcbTargets){
+		nextLCB: for(RouteNode lcb : lcbs){
 			q.clear();
 			visited.clear();
-			ClockRegion currCR = lcb.getTile().getClockRegion();
-			q.addAll(startingPoints.get(currCR));
+			q.addAll(startingPoints);
 			while(!q.isEmpty()){
 				RouteNode curr = q.poll(); 
 				visited.add(curr);
@@ -283,10 +439,9 @@ public class UltraScaleClockRouting {
 					List<PIP> pips = curr.getPIPsBackToSource();
 					allPIPs.addAll(pips);
 					
-					Set<RouteNode> s = startingPoints.get(currCR);
 					for(PIP p : pips){
-						s.add(new RouteNode(p.getTile(),p.getStartWireIndex()));
-						s.add(new RouteNode(p.getTile(),p.getEndWireIndex()));
+						startingPoints.add(new RouteNode(p.getTile(),p.getStartWireIndex()));
+						startingPoints.add(new RouteNode(p.getTile(),p.getEndWireIndex()));
 					}
 					continue nextLCB;
 				}
@@ -307,7 +462,7 @@ public class UltraScaleClockRouting {
 			}
 			throw new RuntimeException("ERROR: Couldn't route to distribution line in clock region " + lcb);
 		}
-		clk.getPIPs().addAll(allPIPs);
+		return allPIPs;
 	}
 
 	/**
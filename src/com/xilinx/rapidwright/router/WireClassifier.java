@@ -0,0 +1,270 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.router;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.unsafe.UnsafeInput;
+import com.esotericsoftware.kryo.unsafe.UnsafeOutput;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.TileTypeEnum;
+import com.xilinx.rapidwright.util.FileTools;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Classifies the wires of each tile type of a device into the categories the 
+ * router cares about (long lines, quad/long drivers, exclusive INT sinks and LUT 
+ * outputs).  Each category is stored as a bitset per {@link TileTypeEnum}, indexed 
+ * by wire index, so a check is a single array read with no wire name lookup.  
+ * The tables are built once per device from the wire names and cached to disk 
+ * alongside the route-thru cache of {@link RouteThruHelper}.
+ * 
+ * Created on: Jan 29, 2021
+ */
+public class WireClassifier {
+
+	/** UltraScale long line wires (12 and 16 tile spans) */
+	public static final int LONG_LINE = 0;
+	/** INT_NODE_QUAD_LONG_*_INT_OUT wires that drive long lines */
+	public static final int QUAD_LONG_DRIVER = 1;
+	/** INT tile input mux and control wires that are dedicated to a single site pin */
+	public static final int EXCLUSIVE_INT_SINK = 2;
+	/** CLE LUT output wires that can be repurposed as static sources */
+	public static final int LUT_OUTPUT = 3;
+	
+	private static final int CLASS_COUNT = 4;
+	
+	/** Incremented whenever the classification changes to invalidate cached files */
+	private static final int FILE_VERSION = 1;
+	
+	private static final String folderName = "wireClasses";
+	
+	private static Map<String,WireClassifier> classifierCache = new HashMap<String,WireClassifier>();
+	
+	private static HashSet<String> allLongLines;
+	private static HashSet<String> intNodeQuadLongs;
+	private static HashSet<String> allExclusiveIntSinks;
+	private static HashSet<String> lutOutputPinNames;
+	
+	static {
+		allLongLines = new HashSet<String>();
+		for(int i=0; i < 4; i++){
+			for(String endPoint : new String[]{"BEG", "END"}){
+				allLongLines.add("NN12_"+endPoint+i);
+				allLongLines.add("NN16_"+endPoint+i);
+				allLongLines.add("SS12_"+endPoint+i);
+				allLongLines.add("SS16_"+endPoint+i);
+				
+				allLongLines.add("WW12_"+endPoint+i);
+				allLongLines.add("WW12_"+endPoint+(i+4));
+				allLongLines.add("EE12_"+endPoint+i);
+				allLongLines.add("EE12_"+endPoint+(i+4));
+			}
+		}
+		
+		//INT_NODE_QUAD_LONG_#_INT_OUT -> drives Long
+		intNodeQuadLongs = new HashSet<String>();
+		for(int i=0; i < 128; i++){
+			intNodeQuadLongs.add("INT_NODE_QUAD_LONG_"+i+"_INT_OUT");
+		}
+		
+		// INT SINKS
+		allExclusiveIntSinks = new HashSet<String>();
+		for(int i=0; i < 48; i++){
+			allExclusiveIntSinks.add("IMUX_E" + i);
+			allExclusiveIntSinks.add("IMUX_W" + i);
+
+			if(i < 8){
+				allExclusiveIntSinks.add("CTRL_E_B" + i);
+				allExclusiveIntSinks.add("CTRL_W_B" + i);
+			}
+		}
+		
+		lutOutputPinNames = new HashSet<String>();
+		for(String cle : new String[]{"L", "M"}){
+			for(String pin : new String[]{"A", "B", "C", "D", "E", "F", "G", "H"}){
+				lutOutputPinNames.add("CLE_CLE_"+cle+"_SITE_0_"+pin+"_O");
+			}
+		}
+	}
+	
+	private Device device;
+	
+	/** Bitsets by [class][tile type ordinal][word], null when a tile type has no wires of a class */
+	private long[][][] classes;
+	
+	private WireClassifier(Device device){
+		this.device = device;
+		classes = new long[CLASS_COUNT][TileTypeEnum.values().length][];
+		String fileName = getSerializedFileName(device);
+		if(new File(fileName).exists() && readFile(fileName)){
+			return;
+		}
+		HashSet<TileTypeEnum> visited = new HashSet<TileTypeEnum>();
+		for(Tile tile : device.getAllTiles()){
+			if(!visited.add(tile.getTileTypeEnum())) continue;
+			classifyTileType(tile);
+		}
+		writeFile(fileName);
+	}
+	
+	/**
+	 * Gets the wire classification for the provided device, loading it from the disk
+	 * cache or building it the first time it is requested.
+	 * @param device The device of interest.
+	 * @return The shared classifier for the device.
+	 */
+	public static synchronized WireClassifier get(Device device){
+		WireClassifier c = classifierCache.get(device.getName());
+		if(c == null){
+			c = new WireClassifier(device);
+			classifierCache.put(device.getName(), c);
+		}
+		return c;
+	}
+	
+	private static String getSerializedFileName(Device device){
+		String folder = FileTools.getRapidWrightPath() + File.separator + folderName;
+		FileTools.makeDirs(folder);
+		return folder + File.separator + device.getName() + ".wc";
+	}
+	
+	private static int getClass(String wireName){
+		if(allLongLines.contains(wireName)) return LONG_LINE;
+		if(intNodeQuadLongs.contains(wireName)) return QUAD_LONG_DRIVER;
+		if(allExclusiveIntSinks.contains(wireName)) return EXCLUSIVE_INT_SINK;
+		if(lutOutputPinNames.contains(wireName)) return LUT_OUTPUT;
+		return -1;
+	}
+	
+	private void classifyTileType(Tile tile){
+		int type = tile.getTileTypeEnum().ordinal();
+		int wireCount = tile.getWireCount();
+		for(int wire=0; wire < wireCount; wire++){
+			int c = getClass(tile.getWireName(wire));
+			if(c == -1) continue;
+			long[] bits = classes[c][type];
+			if(bits == null){
+				bits = new long[(wireCount >>> 6) + 1];
+				classes[c][type] = bits;
+			}
+			bits[wire >>> 6] |= 1L << wire;
+		}
+	}
+	
+	private void writeFile(String fileName){
+		UnsafeOutput out = FileTools.getUnsafeOutputStream(fileName);
+		out.writeInt(FILE_VERSION);
+		for(int c=0; c < CLASS_COUNT; c++){
+			int count = 0;
+			for(long[] bits : classes[c]){
+				if(bits != null) count++;
+			}
+			out.writeInt(count);
+			for(TileTypeEnum type : TileTypeEnum.values()){
+				long[] bits = classes[c][type.ordinal()];
+				if(bits == null) continue;
+				out.writeString(type.toString());
+				out.writeInt(bits.length);
+				for(long word : bits){
+					out.writeLong(word);
+				}
+			}
+		}
+		out.close();
+	}
+	
+	/**
+	 * Loads the classes from a cache file.  A truncated or stale file is deleted so 
+	 * that the classes get rebuilt.
+	 * @param fileName The cache file.
+	 * @return True if the classes were loaded, false if they need to be rebuilt.
+	 */
+	private boolean readFile(String fileName){
+		UnsafeInput in = null;
+		try {
+			in = FileTools.getUnsafeInputStream(fileName);
+			if(in.readInt() != FILE_VERSION) return false;
+			for(int c=0; c < CLASS_COUNT; c++){
+				int count = in.readInt();
+				for(int i=0; i < count; i++){
+					TileTypeEnum type = TileTypeEnum.valueOf(in.readString());
+					long[] bits = new long[in.readInt()];
+					for(int j=0; j < bits.length; j++){
+						bits[j] = in.readLong();
+					}
+					classes[c][type.ordinal()] = bits;
+				}
+			}
+		} catch (RuntimeException e) {
+			MessageGenerator.briefError("WARNING: Unable to read wire class file " + fileName + ", rebuilding it.");
+			classes = new long[CLASS_COUNT][TileTypeEnum.values().length][];
+			if(in != null) in.close();
+			in = null;
+			new File(fileName).delete();
+			return false;
+		} finally {
+			if(in != null) in.close();
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The device that was classified.
+	 */
+	public Device getDevice(){
+		return device;
+	}
+	
+	/**
+	 * Checks if a wire belongs to the provided class.
+	 * @param wireClass One of {@link #LONG_LINE}, {@link #QUAD_LONG_DRIVER}, 
+	 * {@link #EXCLUSIVE_INT_SINK} or {@link #LUT_OUTPUT}.
+	 * @param tile The tile of the wire.
+	 * @param wire The wire index within the tile.
+	 * @return True if the wire belongs to the class, false otherwise.
+	 */
+	public boolean isClass(int wireClass, Tile tile, int wire){
+		long[] bits = classes[wireClass][tile.getTileTypeEnum().ordinal()];
+		if(bits == null || (wire >>> 6) >= bits.length) return false;
+		return (bits[wire >>> 6] & (1L << wire)) != 0;
+	}
+	
+	public boolean isLongLine(Tile tile, int wire){
+		return isClass(LONG_LINE, tile, wire);
+	}
+	
+	public boolean isQuadLongDriver(Tile tile, int wire){
+		return isClass(QUAD_LONG_DRIVER, tile, wire);
+	}
+	
+	public boolean isExclusiveIntSink(Tile tile, int wire){
+		return isClass(EXCLUSIVE_INT_SINK, tile, wire);
+	}
+	
+	public boolean isLutOutput(Tile tile, int wire){
+		return isClass(LUT_OUTPUT, tile, wire);
+	}
+}
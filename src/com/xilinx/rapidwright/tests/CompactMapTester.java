@@ -0,0 +1,135 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import com.xilinx.rapidwright.util.CompactMap;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Regression check for {@link CompactMap}.  Applies the same random sequence of puts, 
+ * removes, iterator removals, trims and clears to a {@link CompactMap} and a 
+ * {@link LinkedHashMap} and checks that their contents and iteration order match after
+ * every operation.  Also repeatedly adds and removes the last entry of an indexed map, 
+ * which used to fill the hash index with deleted slots until lookups never ended.
+ * 
+ * Created on: Mar 16, 2021
+ */
+public class CompactMapTester {
+
+	private static void check(boolean condition, String message){
+		if(!condition){
+			MessageGenerator.briefErrorAndExit("ERROR: " + message);
+		}
+	}
+	
+	private static void checkSame(CompactMap<String,Integer> c, Map<String,Integer> m, String context){
+		check(c.size() == m.size(), "Size mismatch " + context);
+		check(c.equals(m) && m.equals(c) && c.hashCode() == m.hashCode(), "Content mismatch " + context);
+		check(new ArrayList<>(c.keySet()).equals(new ArrayList<>(m.keySet())), "Key order mismatch " + context);
+		check(new ArrayList<>(c.values()).equals(new ArrayList<>(m.values())), "Value order mismatch " + context);
+	}
+	
+	/**
+	 * Adds and removes the last entry of a map large enough to be indexed.
+	 * @param entries Number of entries kept in the map.
+	 * @param cycles Number of add/remove cycles.
+	 */
+	public static void testRemoveLastChurn(int entries, int cycles){
+		CompactMap<String,Integer> c = new CompactMap<>();
+		for(int i=0; i < entries; i++){
+			c.put("e" + i, i);
+		}
+		for(int i=0; i < cycles; i++){
+			c.put("k" + i, i);
+			check(c.remove("k" + i) == i, "Churn remove failed at cycle " + i);
+			check(!c.containsKey("absent"), "Churn lookup failed at cycle " + i);
+		}
+		check(c.size() == entries, "Churn size mismatch");
+	}
+	
+	/**
+	 * Compares random operations on a {@link CompactMap} and a {@link LinkedHashMap}.
+	 * @param seed Random seed.
+	 * @param maps Number of maps to test.
+	 * @param ops Number of operations per map.
+	 */
+	public static void testRandomOperations(long seed, int maps, int ops){
+		Random r = new Random(seed);
+		for(int t=0; t < maps; t++){
+			CompactMap<String,Integer> c = new CompactMap<>();
+			Map<String,Integer> m = new LinkedHashMap<>();
+			int range = 1 + r.nextInt(60);
+			for(int op=0; op < ops; op++){
+				String key = r.nextInt(10) == 0 ? null : "k" + r.nextInt(range);
+				Integer value = r.nextInt();
+				String context = "(map " + t + ", operation " + op + ")";
+				switch(r.nextInt(7)){
+					case 0:
+					case 1:
+					case 2:
+						check(Objects.equals(c.put(key, value), m.put(key, value)), "put() mismatch " + context);
+						break;
+					case 3:
+						check(Objects.equals(c.remove(key), m.remove(key)), "remove() mismatch " + context);
+						break;
+					case 4:
+						Iterator<String> i1 = c.keySet().iterator();
+						Iterator<String> i2 = m.keySet().iterator();
+						while(i2.hasNext()){
+							check(Objects.equals(i1.next(), i2.next()), "Iteration mismatch " + context);
+							if(r.nextInt(5) == 0){
+								i1.remove();
+								i2.remove();
+							}
+						}
+						check(!i1.hasNext(), "Iteration length mismatch " + context);
+						break;
+					case 5:
+						if(r.nextInt(20) == 0) c.trimToSize();
+						if(r.nextInt(50) == 0){
+							c.clear();
+							m.clear();
+						}
+						break;
+					case 6:
+						check(Objects.equals(c.get(key), m.get(key)) && c.containsKey(key) == m.containsKey(key), 
+								"get() mismatch " + context);
+						break;
+				}
+				checkSame(c, m, context);
+			}
+		}
+	}
+	
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		testRemoveLastChurn(CompactMap.LINEAR_SEARCH_SIZE + 4, 100000);
+		testRandomOperations(seed, 2000, 500);
+		System.out.println("PASS: CompactMap matches LinkedHashMap.");
+	}
+}
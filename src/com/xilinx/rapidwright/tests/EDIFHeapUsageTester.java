@@ -0,0 +1,79 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import com.xilinx.rapidwright.edif.EDIFCell;
+import com.xilinx.rapidwright.edif.EDIFLibrary;
+import com.xilinx.rapidwright.edif.EDIFNet;
+import com.xilinx.rapidwright.edif.EDIFNetlist;
+import com.xilinx.rapidwright.edif.EDIFTools;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Measures the heap used by a parsed EDIF netlist, with and without 
+ * {@link EDIFTools#USE_COMPACT_MAPS}, and reports it as bytes per port instance.
+ * Run with a fixed heap size (-Xms equal to -Xmx) for stable numbers.
+ * 
+ * Created on: Mar 15, 2021
+ */
+public class EDIFHeapUsageTester {
+
+	/**
+	 * Counts the port instances on all nets of the netlist.
+	 * @param netlist The netlist.
+	 * @return The number of port instances.
+	 */
+	public static long getPortInstCount(EDIFNetlist netlist){
+		long count = 0;
+		for(EDIFLibrary lib : netlist.getLibraries()){
+			for(EDIFCell cell : lib.getCells()){
+				for(EDIFNet net : cell.getNets()){
+					count += net.getPortInsts().size();
+				}
+			}
+		}
+		return count;
+	}
+	
+	private static long getUsedHeap(){
+		Runtime rt = Runtime.getRuntime();
+		for(int i=0; i < 3; i++){
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	public static void main(String[] args) {
+		if(args.length != 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <input.edf>");
+		}
+		for(boolean compact : new boolean[]{false, true}){
+			EDIFTools.USE_COMPACT_MAPS = compact;
+			long before = getUsedHeap();
+			EDIFNetlist netlist = EDIFTools.loadEDIFFile(args[0]);
+			long used = getUsedHeap() - before;
+			long portInsts = getPortInstCount(netlist);
+			System.out.printf("Compact maps: %5s, heap: %8.1f MB, port instances: %d, bytes per port instance: %.1f\n", 
+					compact, used / (1024.0 * 1024.0), portInsts, portInsts == 0 ? 0.0 : (double) used / portInsts);
+			netlist = null;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.xilinx.rapidwright.edif.EDIFCell;
+import com.xilinx.rapidwright.edif.EDIFCellInst;
+import com.xilinx.rapidwright.edif.EDIFLibrary;
+import com.xilinx.rapidwright.edif.EDIFName;
+import com.xilinx.rapidwright.edif.EDIFNet;
+import com.xilinx.rapidwright.edif.EDIFNetlist;
+import com.xilinx.rapidwright.edif.EDIFParser;
+import com.xilinx.rapidwright.edif.EDIFPort;
+import com.xilinx.rapidwright.edif.EDIFPortInst;
+import com.xilinx.rapidwright.edif.EDIFPropertyObject;
+import com.xilinx.rapidwright.edif.EDIFPropertyValue;
+import com.xilinx.rapidwright.edif.ParallelEDIFParser;
+import com.xilinx.rapidwright.util.MessageGenerator;
+import com.xilinx.rapidwright.util.ParallelismTools;
+
+/**
+ * Regression check for {@link ParallelEDIFParser}.  Parses the same EDIF file with 
+ * {@link EDIFParser} and with the parallel parser and compares the two netlists: 
+ * libraries and cells (in file order), ports, cell instances, nets with their port 
+ * instances, properties and names (including renames).  Exits with a non-zero status 
+ * if the netlists differ.
+ * 
+ * Created on: Mar 16, 2021
+ */
+public class EDIFParserTester {
+
+	/** Number of differences printed before the rest are only counted */
+	private static final int MAX_REPORTED = 20;
+	
+	private static int differences;
+	
+	private static void difference(String context, Object expected, Object found){
+		differences++;
+		if(differences <= MAX_REPORTED){
+			System.out.println("DIFFERENCE: " + context + ": expected " + expected + ", found " + found);
+		}
+	}
+	
+	private static boolean compare(String context, Object expected, Object found){
+		if(expected == null ? found == null : expected.equals(found)) return true;
+		difference(context, expected, found);
+		return false;
+	}
+	
+	private static void compareNames(String context, EDIFName expected, EDIFName found){
+		compare(context + " name", expected.getName(), found.getName());
+		compare(context + " EDIF name", expected.getLegalEDIFName(), found.getLegalEDIFName());
+	}
+	
+	private static List<String> getProperties(EDIFPropertyObject o){
+		List<String> properties = new ArrayList<>();
+		if(o.getProperties() == null) return properties;
+		for(Entry<EDIFName, EDIFPropertyValue> e : o.getProperties().entrySet()){
+			properties.add(e.getKey().getName() + "=" + e.getValue());
+		}
+		return properties;
+	}
+	
+	private static List<String> getPortInsts(Collection<EDIFPortInst> portInsts){
+		List<String> names = new ArrayList<>(portInsts.size());
+		for(EDIFPortInst p : portInsts){
+			names.add(p.toString() + "(" + p.getPort().getName() + ")");
+		}
+		Collections.sort(names);
+		return names;
+	}
+	
+	private static void compareObjects(String context, EDIFPropertyObject expected, EDIFPropertyObject found){
+		compareNames(context, expected, found);
+		compare(context + " properties", getProperties(expected), getProperties(found));
+	}
+	
+	private static void compareCells(String context, EDIFCell expected, EDIFCell found){
+		compareObjects(context, expected, found);
+		compare(context + " view", expected.getView(), found.getView());
+		
+		compare(context + " port count", expected.getPorts().size(), found.getPorts().size());
+		for(Entry<String, EDIFPort> e : expected.getPortMap().entrySet()){
+			EDIFPort p = e.getValue();
+			EDIFPort other = found.getPortMap().get(e.getKey());
+			if(!compare(context + " port " + p.getName(), p.getName(), other == null ? null : other.getName())) continue;
+			compareObjects(context + " port " + p.getName(), p, other);
+			compare(context + " port " + p.getName() + " direction", p.getDirection(), other.getDirection());
+			compare(context + " port " + p.getName() + " width", p.getWidth(), other.getWidth());
+		}
+		
+		compare(context + " instance count", expected.getCellInsts().size(), found.getCellInsts().size());
+		for(EDIFCellInst i : expected.getCellInsts()){
+			String instContext = context + " instance " + i.getName();
+			EDIFCellInst other = found.getCellInst(i.getName());
+			if(!compare(instContext, i.getName(), other == null ? null : other.getName())) continue;
+			compareObjects(instContext, i, other);
+			compare(instContext + " type", i.getCellType().getName(), other.getCellType().getName());
+			compare(instContext + " type library", i.getCellType().getLibrary().getName(), 
+					other.getCellType().getLibrary().getName());
+		}
+		
+		compare(context + " net count", expected.getNets().size(), found.getNets().size());
+		for(EDIFNet n : expected.getNets()){
+			String netContext = context + " net " + n.getName();
+			EDIFNet other = found.getNet(n.getName());
+			if(!compare(netContext, n.getName(), other == null ? null : other.getName())) continue;
+			compareObjects(netContext, n, other);
+			compare(netContext + " port instances", getPortInsts(n.getPortInsts()), getPortInsts(other.getPortInsts()));
+		}
+	}
+	
+	/**
+	 * Compares two netlists and prints their first differences.
+	 * @param expected The reference netlist.
+	 * @param found The netlist to check.
+	 * @return The number of differences found.
+	 */
+	public static int compareNetlists(EDIFNetlist expected, EDIFNetlist found){
+		differences = 0;
+		compare("comments", expected.getComments(), found.getComments());
+		compareObjects("design", expected.getDesign(), found.getDesign());
+		compare("top cell", expected.getDesign().getTopCell().getName(), found.getDesign().getTopCell().getName());
+		compare("library count", expected.getLibraries().size(), found.getLibraries().size());
+		Iterator<EDIFLibrary> foundLibs = found.getLibraries().iterator();
+		for(EDIFLibrary lib : expected.getLibraries()){
+			if(!foundLibs.hasNext()) break;
+			EDIFLibrary other = foundLibs.next();
+			String context = "library " + lib.getName();
+			compareNames(context, lib, other);
+			compare(context + " cell count", lib.getCells().size(), other.getCells().size());
+			Iterator<EDIFCell> foundCells = other.getCells().iterator();
+			for(EDIFCell c : lib.getCells()){
+				if(!foundCells.hasNext()) break;
+				EDIFCell otherCell = foundCells.next();
+				// Cells must also be in the same order for the netlists to be written the same
+				if(!compare(context + " cell order", c.getName(), otherCell.getName())) continue;
+				compareCells(context + " cell " + c.getName(), c, otherCell);
+			}
+		}
+		return differences;
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <input.edf> [threads, default=" 
+					+ ParallelismTools.DEFAULT_THREADS + "]");
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : ParallelismTools.DEFAULT_THREADS;
+		
+		long start = System.nanoTime();
+		EDIFNetlist expected;
+		try {
+			expected = new EDIFParser(args[0]).parseEDIFNetlist();
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+		long sequential = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		EDIFNetlist found = new ParallelEDIFParser(args[0], threads).parseEDIFNetlist();
+		long parallel = System.nanoTime() - start;
+		
+		System.out.printf("EDIFParser:                  %8.3fs\n", sequential / 1000000000.0);
+		System.out.printf("ParallelEDIFParser (%3d th): %8.3fs\n", threads, parallel / 1000000000.0);
+		int count = compareNetlists(expected, found);
+		if(count > 0){
+			MessageGenerator.briefErrorAndExit("ERROR: Found " + count + " difference(s) between the netlists.");
+		}
+		System.out.println("PASS: Both parsers produce the same netlist.");
+	}
+}
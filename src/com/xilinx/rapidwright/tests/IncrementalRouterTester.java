@@ -0,0 +1,127 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.SitePinInst;
+import com.xilinx.rapidwright.device.Node;
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.router.IncrementalRouter;
+import com.xilinx.rapidwright.router.Router;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Regression check for the rip-up of moved pins in {@link IncrementalRouter}.  Opens a 
+ * session on a routed design, moves LUT input sinks to a free input of their LUT (as an 
+ * ECO would) and reroutes them.  Exits with a non-zero status if any of the changed nets 
+ * is left with a dangling PIP, a PIP whose end node neither drives another PIP of the net 
+ * nor connects to one of its pins.
+ * 
+ * Created on: Mar 16, 2021
+ */
+public class IncrementalRouterTester {
+
+	/**
+	 * Gets the PIPs of a net that end at a node that neither drives another PIP of the 
+	 * net nor connects to one of its pins.
+	 * @param net The routed net.
+	 * @return The dangling PIPs of the net.
+	 */
+	public static List<PIP> getDanglingPIPs(Net net){
+		Set<Node> usedNodes = new HashSet<>();
+		for(PIP p : net.getPIPs()){
+			usedNodes.add(p.getStartNode());
+		}
+		for(SitePinInst p : net.getPins()){
+			usedNodes.add(p.getConnectedNode());
+		}
+		if(net.getAlternateSource() != null){
+			usedNodes.add(net.getAlternateSource().getConnectedNode());
+		}
+		List<PIP> dangling = new ArrayList<>();
+		for(PIP p : net.getPIPs()){
+			if(!usedNodes.contains(p.getEndNode())) dangling.add(p);
+		}
+		return dangling;
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <routed.dcp> [number of pins to move, default=10]");
+		}
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		Design design = Design.readCheckpoint(args[0]);
+		IncrementalRouter session = new IncrementalRouter(design);
+		session.getRouter().setSupressWarningsErrors(true);
+		
+		// Move LUT input sinks of routed nets to a free input of their LUT
+		Map<SitePinInst,String> moved = new LinkedHashMap<>();
+		Set<Net> changedNets = new LinkedHashSet<>();
+		for(Net net : design.getNets()){
+			if(moved.size() >= count) break;
+			if(net.isStaticNet() || !net.hasPIPs() || !getDanglingPIPs(net).isEmpty()) continue;
+			for(SitePinInst p : net.getPins()){
+				if(p.isOutPin() || !p.isLUTInputPin()) continue;
+				List<String> alternatives = Router.getAlternativeLUTInputs(p);
+				if(alternatives.isEmpty()) continue;
+				String origPinName = p.getName();
+				Router.swapLUTInputPins(p, alternatives.get(0));
+				moved.put(p, origPinName);
+				changedNets.add(net);
+				break;
+			}
+		}
+		if(moved.isEmpty()){
+			MessageGenerator.briefErrorAndExit("ERROR: No movable LUT input pin found in " + args[0]);
+		}
+		
+		long start = System.nanoTime();
+		session.reroutePins(new ArrayList<>(moved.keySet()));
+		long elapsed = System.nanoTime() - start;
+		
+		int failures = 0;
+		for(SitePinInst p : moved.keySet()){
+			List<PIP> dangling = getDanglingPIPs(p.getNet());
+			System.out.println(p.getNet().getName() + " " + p.getSiteInstName() + "/" + moved.get(p) 
+				+ " -> " + p.getName() + ": " + (p.isRouted() ? "routed" : "unrouted") + ", " 
+				+ dangling.size() + " dangling PIP(s)");
+			for(PIP pip : dangling){
+				System.out.println("  " + pip);
+			}
+			if(!dangling.isEmpty()) failures++;
+		}
+		System.out.printf("Rerouted %d moved pin(s) of %d net(s) in %.3fs\n", moved.size(), 
+				changedNets.size(), elapsed / 1000000000.0);
+		if(failures > 0){
+			MessageGenerator.briefErrorAndExit("ERROR: " + failures + " net(s) have dangling PIPs after moving a pin.");
+		}
+		System.out.println("PASS: No dangling PIPs after moving pins.");
+	}
+}
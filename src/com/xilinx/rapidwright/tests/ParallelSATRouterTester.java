@@ -0,0 +1,129 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.blocks.PBlock;
+import com.xilinx.rapidwright.device.Node;
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.router.CDCLSolver;
+import com.xilinx.rapidwright.router.ParallelSATRouter;
+import com.xilinx.rapidwright.router.SATRouter;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Compares {@link ParallelSATRouter} against routing the same region as a single 
+ * {@link SATRouter} problem.  Both runs start from the same placed design and route with 
+ * the in-process {@link CDCLSolver}.  The check fails if the parallel run routes fewer of 
+ * the region's nets than the single-region run or if two nets share a node.
+ * 
+ * Created on: Mar 16, 2021
+ */
+public class ParallelSATRouterTester {
+
+	/**
+	 * Counts the nodes of a design that are used by more than one net.
+	 * @param design The routed design.
+	 * @return The number of overused nodes.
+	 */
+	public static int countOverusedNodes(Design design){
+		Map<Node,Net> users = new HashMap<>();
+		int overused = 0;
+		for(Net net : design.getNets()){
+			for(PIP p : net.getPIPs()){
+				for(Node n : new Node[]{p.getStartNode(), p.getEndNode()}){
+					if(n == null) continue;
+					Net prev = users.put(n, net);
+					if(prev != null && prev != net) overused++;
+				}
+			}
+		}
+		return overused;
+	}
+	
+	/**
+	 * Counts how many of the provided nets have routing.
+	 * @param design The routed design.
+	 * @param netNames Names of the nets to check.
+	 * @return The number of nets with PIPs.
+	 */
+	public static int countRoutedNets(Design design, List<String> netNames){
+		int routed = 0;
+		for(String name : netNames){
+			Net net = design.getNet(name);
+			if(net != null && net.hasPIPs()) routed++;
+		}
+		return routed;
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 2){
+			MessageGenerator.briefMessageAndExit("USAGE: <placed.dcp> <pblock range> [sub-regions, default=" 
+					+ ParallelSATRouter.SAT_ROUTING_THREADS + "] [halo columns, default=" 
+					+ ParallelSATRouter.SAT_HALO_COLUMNS + "]");
+		}
+		int subRegions = args.length > 2 ? Integer.parseInt(args[2]) : ParallelSATRouter.SAT_ROUTING_THREADS;
+		if(args.length > 3){
+			ParallelSATRouter.SAT_HALO_COLUMNS = Integer.parseInt(args[3]);
+		}
+		
+		// Single region reference
+		Design design = Design.readCheckpoint(args[0]);
+		PBlock pblock = new PBlock(design.getDevice(), args[1]);
+		SATRouter satRouter = new SATRouter(design, pblock, true);
+		satRouter.setSolver(new CDCLSolver());
+		satRouter.setVerbosity(0);
+		List<String> netNames = new ArrayList<>();
+		for(Net net : satRouter.getNetsToRoute()){
+			netNames.add(net.getName());
+		}
+		long start = System.nanoTime();
+		satRouter.route();
+		long singleTime = System.nanoTime() - start;
+		int singleRouted = countRoutedNets(design, netNames);
+		System.out.printf("Single region: %6d/%d nets routed, %d overused nodes (%8.3fs)\n", singleRouted, 
+				netNames.size(), countOverusedNodes(design), singleTime / 1000000000.0);
+		
+		// Parallel sub-regions
+		design = Design.readCheckpoint(args[0]);
+		pblock = new PBlock(design.getDevice(), args[1]);
+		ParallelSATRouter parallelRouter = new ParallelSATRouter(design, pblock, subRegions);
+		start = System.nanoTime();
+		parallelRouter.route();
+		long parallelTime = System.nanoTime() - start;
+		int parallelRouted = countRoutedNets(design, netNames);
+		int overused = countOverusedNodes(design);
+		System.out.printf("%2d sub-regions: %5d/%d nets routed, %d overused nodes (%8.3fs)\n", subRegions, 
+				parallelRouted, netNames.size(), overused, parallelTime / 1000000000.0);
+		
+		if(parallelRouted < singleRouted || overused > 0){
+			MessageGenerator.briefErrorAndExit("ERROR: Parallel SAT routing does not match single region routing.");
+		}
+		System.out.println("PASS: Parallel SAT routing matches single region routing (" 
+				+ String.format("%.2f", (double) singleTime / parallelTime) + "x speedup).");
+	}
+}
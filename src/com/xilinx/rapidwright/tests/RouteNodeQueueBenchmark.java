@@ -0,0 +1,179 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.TileTypeEnum;
+import com.xilinx.rapidwright.device.Wire;
+import com.xilinx.rapidwright.router.DeviceNodeIndex;
+import com.xilinx.rapidwright.router.RouteNode;
+import com.xilinx.rapidwright.router.RouteNodeQueue;
+import com.xilinx.rapidwright.router.RouteSearchState;
+import com.xilinx.rapidwright.router.Router;
+import com.xilinx.rapidwright.util.MessageGenerator;
+
+/**
+ * Compares the {@code PriorityQueue<RouteNode>} previously used by the routing searches
+ * against {@link RouteNodeQueue} (with decrease-key) on randomly chosen interconnect 
+ * connections of a device.  Both runs use the same search and the same connections, only
+ * the queue differs.  Reports the number of queue operations and the average time per 
+ * connection.  
+ * 
+ * When given a placed design instead of a device, routes the design with {@link Router} 
+ * (single threaded) with and without {@link Router#ENABLE_DECREASE_KEY} and reports the 
+ * routing time and the operations of the router's search queue for each run.
+ * 
+ * Created on: Jan 25, 2021
+ */
+public class RouteNodeQueueBenchmark {
+
+	/** Maximum Manhattan distance (in tiles) between the source and sink of a connection */
+	private static final int MAX_DISTANCE = 20;
+	
+	/** Maximum number of nodes expanded by a single search */
+	private static final int MAX_EXPANSIONS = 100000;
+	
+	private static long queueOperations;
+	
+	private static int routed;
+	
+	private static RouteNode[][] createConnections(Device dev, int count, long seed){
+		List<Tile> intTiles = new ArrayList<>();
+		for(Tile t : dev.getAllTiles()){
+			if(t.getTileTypeEnum() == TileTypeEnum.INT) intTiles.add(t);
+		}
+		if(intTiles.isEmpty()){
+			MessageGenerator.briefMessageAndExit("ERROR: No INT tiles found in device " + dev.getName());
+		}
+		Random rand = new Random(seed);
+		RouteNode[][] connections = new RouteNode[count][];
+		int i = 0;
+		while(i < count){
+			Tile src = intTiles.get(rand.nextInt(intTiles.size()));
+			Tile snk = intTiles.get(rand.nextInt(intTiles.size()));
+			if(src.getManhattanDistance(snk) > MAX_DISTANCE) continue;
+			int srcWire = rand.nextInt(src.getWireCount());
+			int snkWire = rand.nextInt(snk.getWireCount());
+			if(src.getWireConnections(srcWire) == null || src.getWireConnections(srcWire).isEmpty()) continue;
+			connections[i++] = new RouteNode[]{new RouteNode(src, srcWire), new RouteNode(snk, snkWire)};
+		}
+		return connections;
+	}
+	
+	private static void route(RouteNode start, RouteNode end, Queue<RouteNode> q, RouteSearchState closed){
+		q.clear();
+		closed.reset();
+		start.setCost(0);
+		q.add(start);
+		queueOperations++;
+		while(!q.isEmpty()){
+			RouteNode curr = q.poll();
+			queueOperations++;
+			if(!closed.markVisited(curr.getTile(), curr.getWire())) continue;
+			if(curr.equals(end)){
+				routed++;
+				return;
+			}
+			if(closed.size() > MAX_EXPANSIONS) return;
+			List<Wire> conns = curr.getConnections();
+			if(conns == null) continue;
+			for(Wire w : conns){
+				if(closed.isVisited(w.getTile(), w.getWireIndex())) continue;
+				RouteNode rn = new RouteNode(w, curr);
+				rn.setCost((rn.getManhattanDistance(end) << 1) + rn.getLevel());
+				if(q.offer(rn)) queueOperations++;
+			}
+		}
+	}
+	
+	private static void run(String name, RouteNode[][] connections, Queue<RouteNode> q, RouteSearchState closed){
+		queueOperations = 0;
+		routed = 0;
+		long start = System.nanoTime();
+		for(RouteNode[] c : connections){
+			route(c[0], c[1], q, closed);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-14s: %6d/%6d routed, %12d queue operations, %10.3f us/connection\n", 
+				name, routed, connections.length, queueOperations, (elapsed / 1000.0) / connections.length);
+	}
+	
+	private static void runRouter(String dcpFileName, boolean decreaseKey){
+		Design design = Design.readCheckpoint(dcpFileName);
+		Router.ENABLE_DECREASE_KEY = decreaseKey;
+		Router router = new Router(design);
+		router.setSupressWarningsErrors(true);
+		router.setRoutingThreads(1);
+		RouteNodeQueue q = router.getQueue();
+		q.resetCounts();
+		long start = System.nanoTime();
+		router.routeDesign();
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("decrease-key %-5s: %10.3fs, %12d offers, %12d polls, %10d decrease-key, %10d dropped\n", 
+				decreaseKey, elapsed / 1000000000.0, q.getOfferCount(), q.getPollCount(), 
+				q.getDecreaseKeyCount(), q.getDroppedCount());
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <device name> [number of connections, default=1000] [seed, default=0]\n" 
+					+ "       <placed.dcp>");
+		}
+		if(args[0].endsWith(".dcp")){
+			boolean decreaseKey = Router.ENABLE_DECREASE_KEY;
+			// The first run also loads the device and the router's device-wide structures
+			runRouter(args[0], false);
+			runRouter(args[0], true);
+			runRouter(args[0], false);
+			Router.ENABLE_DECREASE_KEY = decreaseKey;
+			return;
+		}
+		Device dev = Device.getDevice(args[0]);
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		RouteNode[][] connections = createConnections(dev, count, seed);
+		DeviceNodeIndex index = DeviceNodeIndex.get(dev);
+		RouteSearchState closed = new RouteSearchState(index);
+		
+		Queue<RouteNode> baseline = new PriorityQueue<RouteNode>(16, new Comparator<RouteNode>() {
+			public int compare(RouteNode i, RouteNode j) {return i.getCost() - j.getCost();}});
+		RouteNodeQueue indexed = new RouteNodeQueue(index);
+		
+		// Warm up both implementations before measuring
+		run("warm-up", connections, baseline, closed);
+		run("warm-up", connections, indexed, closed);
+		
+		run("PriorityQueue", connections, baseline, closed);
+		indexed.resetCounts();
+		run("RouteNodeQueue", connections, indexed, closed);
+		System.out.println("RouteNodeQueue: " + indexed.getDecreaseKeyCount() + " decrease-key, " 
+				+ indexed.getDroppedCount() + " duplicate offers dropped");
+	}
+}
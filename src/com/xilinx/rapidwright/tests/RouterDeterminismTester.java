@@ -0,0 +1,120 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.tests;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.router.Router;
+import com.xilinx.rapidwright.util.MessageGenerator;
+import com.xilinx.rapidwright.util.ParallelismTools;
+
+/**
+ * Regression check for the deterministic routing mode of {@link Router}.  Routes the 
+ * same placed design with several thread counts and compares a hash of the resulting 
+ * PIPs of every net (in net name order and in PIP order).  Exits with a non-zero status
+ * if any of the runs produces a different routing.
+ * 
+ * Created on: Mar 9, 2021
+ */
+public class RouterDeterminismTester {
+
+	/**
+	 * Computes a SHA-256 hash of the routing of a design.  Nets are visited in name order
+	 * and the PIPs of each net in the order they are stored on the net, so two designs 
+	 * only have the same hash if their PIP lists are identical.
+	 * @param design The routed design.
+	 * @return The hash as a hexadecimal string.
+	 */
+	public static String getRoutedPIPsHash(Design design){
+		List<Net> nets = new ArrayList<>(design.getNets());
+		Collections.sort(nets, new Comparator<Net>() {
+			public int compare(Net a, Net b) {return a.getName().compareTo(b.getName());}});
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		for(Net net : nets){
+			if(!net.hasPIPs()) continue;
+			md.update(net.getName().getBytes(StandardCharsets.UTF_8));
+			md.update((byte) '\n');
+			for(PIP p : net.getPIPs()){
+				md.update(p.toString().getBytes(StandardCharsets.UTF_8));
+				md.update((byte) '\n');
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for(byte b : md.digest()){
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 1){
+			MessageGenerator.briefMessageAndExit("USAGE: <placed.dcp> [thread counts, default=1 2 " 
+					+ ParallelismTools.DEFAULT_THREADS + "]");
+		}
+		List<Integer> threadCounts = new ArrayList<>();
+		for(int i=1; i < args.length; i++){
+			threadCounts.add(Integer.parseInt(args[i]));
+		}
+		if(threadCounts.isEmpty()){
+			threadCounts.add(1);
+			threadCounts.add(2);
+			threadCounts.add(ParallelismTools.DEFAULT_THREADS);
+		}
+		
+		String reference = null;
+		boolean mismatch = false;
+		for(int threads : threadCounts){
+			Design design = Design.readCheckpoint(args[0]);
+			Router router = new Router(design);
+			router.setSupressWarningsErrors(true);
+			router.setRoutingThreads(threads);
+			router.setDeterministicRouting(true);
+			long start = System.nanoTime();
+			router.routeDesign();
+			long elapsed = System.nanoTime() - start;
+			String hash = getRoutedPIPsHash(design);
+			System.out.printf("%3d thread(s): %s (%8.3fs)\n", threads, hash, elapsed / 1000000000.0);
+			if(reference == null){
+				reference = hash;
+			}else if(!reference.equals(hash)){
+				mismatch = true;
+			}
+		}
+		if(mismatch){
+			MessageGenerator.briefErrorAndExit("ERROR: Routing differs between thread counts.");
+		}
+		System.out.println("PASS: Routing is identical for all thread counts.");
+	}
+}
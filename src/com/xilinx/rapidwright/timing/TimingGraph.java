@@ -533,7 +533,16 @@ public class TimingGraph extends DefaultDirectedWeightedGraph<TimingVertex, Timi
      * delays.
      */
     public void computeArrivalTimes() {
-        for (GraphPath<TimingVertex, TimingEdge> p : graphPathHashSet) {
+        computeArrivalTimes(graphPathHashSet);
+    }
+
+    /**
+     * Computes/recomputes the arrival times stored at the vertices of only the provided paths.  This
+     * is used for incremental timing updates after the delays of a few edges have changed.
+     * @param paths The GraphPaths containing edges with updated delays.
+     */
+    public void computeArrivalTimes(Collection<GraphPath<TimingVertex, TimingEdge>> paths) {
+        for (GraphPath<TimingVertex, TimingEdge> p : paths) {
             float arrival = 0;
             for (TimingEdge e : (List<TimingEdge>) p.getEdgeList()) {
                 arrival += e.getDelay();
@@ -555,6 +564,19 @@ public class TimingGraph extends DefaultDirectedWeightedGraph<TimingVertex, Timi
         }
     }
 
+    /**
+     * Computes/recomputes the slack stored at the vertices of only the provided paths.  This is 
+     * used for incremental timing updates after the delays of a few edges have changed.
+     * @param paths The GraphPaths containing edges with updated delays.
+     */
+    public void computeSlacks(Collection<GraphPath<TimingVertex, TimingEdge>> paths) {
+        for (GraphPath<TimingVertex, TimingEdge> p : paths) {
+            for (TimingVertex v : p.getVertexList()) {
+                v.setSlack(v.getRequiredTime() - v.getArrivalTime());
+            }
+        }
+    }
+
     /**
      * This helper function is used to avoid duplicate insertions of vertices within the TimingGraph.  
      * To avoid duplicates, the helper function first checks if a vertex with the same name already 
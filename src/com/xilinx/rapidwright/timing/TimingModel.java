@@ -872,6 +872,55 @@ public class TimingModel {
         return calcDelay(null, null, null, null, groups);
     }
 
+    /**
+     * Gives a quick estimate of the delay in picoseconds of a single routing node based only on 
+     * its intent code.  It uses the same k0 + k1 * L terms as the group delay calculation, but 
+     * ignores the k2 * d term as it depends on the resources crossed by a particular node.  Singles 
+     * and doubles use the horizontal terms as their direction is not known from the intent code.
+     * This is intended for routers that need a per-node delay cost.
+     * @param intentCode The intent code of the node.
+     * @return Estimated delay in picoseconds, 0 for intent codes without a delay term.
+     */
+    public float getIntentCodeDelay(IntentCode intentCode) {
+        if (intentCode == null) return 0;
+        switch (intentCode) {
+            case NODE_SINGLE:
+            case NODE_HSINGLE:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_SINGLE;
+            case NODE_VSINGLE:
+                return K0_VERTICAL + K1_VERTICAL * L_VERTICAL_SINGLE;
+            case NODE_DOUBLE:
+            case NODE_HDOUBLE:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_DOUBLE;
+            case NODE_VDOUBLE:
+                return K0_VERTICAL + K1_VERTICAL * L_VERTICAL_DOUBLE;
+            case NODE_HQUAD:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_QUAD;
+            case NODE_VQUAD:
+                return K0_VERTICAL + K1_VERTICAL * L_VERTICAL_QUAD;
+            case NODE_HLONG:
+            case NODE_HLONG6:
+            case NODE_HLONG10:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_LONG;
+            case NODE_VLONG:
+            case NODE_VLONG7:
+            case NODE_VLONG12:
+                return K0_VERTICAL + K1_VERTICAL * L_VERTICAL_LONG;
+            case NODE_GLOBAL_VDISTR:
+            case NODE_GLOBAL_HROUTE:
+            case NODE_GLOBAL_HDISTR:
+            case NODE_GLOBAL_VROUTE:
+            case NODE_GLOBAL_LEAF:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_GLOBAL;
+            case NODE_LOCAL:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_INTERNAL;
+            case NODE_PINBOUNCE:
+                return K0_HORIZONTAL + K1_HORIZONTAL * L_HORIZONTAL_BOUNCE;
+            default:
+                return 0;
+        }
+    }
+
 
     private float intrasiteDelay;
     private SitePinInst startPinInst;
@@ -0,0 +1,69 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream over the remaining bytes of a {@link ByteBuffer}, such as a memory 
+ * mapped region of a file.
+ * 
+ * Created on: Mar 13, 2021
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private ByteBuffer buffer;
+	
+	/**
+	 * Creates a stream that reads the bytes between the buffer's position and limit.
+	 * @param buffer The buffer to read from.
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer){
+		this.buffer = buffer;
+	}
+	
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if(len == 0) return 0;
+		if(!buffer.hasRemaining()) return -1;
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+	
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+	
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
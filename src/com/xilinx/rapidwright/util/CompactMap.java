@@ -0,0 +1,402 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A memory compact, insertion ordered map intended for the very large number of small
+ * maps held by a netlist.  Keys and values are stored next to each other in a single 
+ * array (there are no entry objects) and small maps are searched linearly.  Once a map 
+ * holds more than {@link #LINEAR_SEARCH_SIZE} entries, an open addressed table of array
+ * positions is added to keep lookups constant time.  Removing an entry leaves a hole 
+ * that is reclaimed the next time the array is resized, so removals never move other 
+ * entries.  Iteration order is the order in which keys were first added, as with 
+ * {@link java.util.LinkedHashMap}.  This map is not thread safe.
+ * 
+ * Created on: Mar 15, 2021
+ */
+public class CompactMap<K,V> extends AbstractMap<K,V> {
+
+	/** Maps with up to this many entries are searched linearly instead of through a hash index */
+	public static final int LINEAR_SEARCH_SIZE = 8;
+	
+	/** Marks the key of a removed entry */
+	private static final Object REMOVED = new Object();
+	
+	private static final Object[] EMPTY_TABLE = new Object[0];
+	
+	private static final int EMPTY_SLOT = 0;
+	
+	private static final int DELETED_SLOT = -1;
+	
+	/** Keys and values, interleaved, in insertion order */
+	private Object[] table;
+	
+	/** Number of positions of the table in use (including removed entries) */
+	private int used;
+	
+	private int size;
+	
+	/** Hash index of table positions (stored as position + 1), null while the map is small */
+	private int[] index;
+	
+	/** Number of deleted slots in the index, counted so they can't fill up the index */
+	private int deleted;
+	
+	public CompactMap(){
+		table = EMPTY_TABLE;
+	}
+	
+	/**
+	 * Creates an empty map with room for the provided number of entries.
+	 * @param initialCapacity Number of entries to allocate space for.
+	 */
+	public CompactMap(int initialCapacity){
+		table = initialCapacity <= 0 ? EMPTY_TABLE : new Object[initialCapacity * 2];
+	}
+	
+	/**
+	 * Creates a map with the same entries as the provided map.
+	 * @param map The map to copy.
+	 */
+	public CompactMap(Map<? extends K, ? extends V> map){
+		this(map.size());
+		putAll(map);
+	}
+	
+	private static int hash(Object key){
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Finds the table position of a key.
+	 * @param key The key to look for.
+	 * @return The position of the key or -1 if it is not in the map.
+	 */
+	private int getPosition(Object key){
+		if(index == null){
+			for(int i=0; i < used; i++){
+				Object k = table[i*2];
+				if(k != REMOVED && Objects.equals(k, key)) return i;
+			}
+			return -1;
+		}
+		int mask = index.length - 1;
+		for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask){
+			int entry = index[slot];
+			if(entry == EMPTY_SLOT) return -1;
+			if(entry != DELETED_SLOT && Objects.equals(table[(entry - 1) * 2], key)) return entry - 1;
+		}
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return getPosition(key) >= 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		int pos = getPosition(key);
+		return pos < 0 ? null : (V) table[pos*2+1];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value) {
+		int pos = getPosition(key);
+		if(pos >= 0){
+			V old = (V) table[pos*2+1];
+			table[pos*2+1] = value;
+			return old;
+		}
+		if(used * 2 == table.length){
+			resize(size + (size >> 1) + 1);
+		}
+		pos = used++;
+		table[pos*2] = key;
+		table[pos*2+1] = value;
+		size++;
+		if(index != null){
+			// Removing the last entry frees its position but leaves a deleted slot behind, 
+			// rebuild before they use up the empty slots lookups stop at
+			if((used + deleted) * 2 > index.length){
+				rebuildIndex();
+			}else{
+				addToIndex(key, pos);
+			}
+		}else if(used > LINEAR_SEARCH_SIZE){
+			rebuildIndex();
+		}
+		return null;
+	}
+	
+	@Override
+	public V remove(Object key) {
+		int pos = getPosition(key);
+		return pos < 0 ? null : removePosition(pos);
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(table, 0, used * 2, null);
+		used = 0;
+		size = 0;
+		index = null;
+		deleted = 0;
+	}
+	
+	/**
+	 * Releases unused space of the map.  Useful once a map is fully populated.
+	 */
+	public void trimToSize(){
+		if(used * 2 < table.length || used > size){
+			resize(size);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private V removePosition(int pos){
+		Object key = table[pos*2];
+		V old = (V) table[pos*2+1];
+		if(index != null){
+			int mask = index.length - 1;
+			int slot = hash(key) & mask;
+			while(index[slot] != pos + 1){
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = DELETED_SLOT;
+			deleted++;
+		}
+		size--;
+		if(pos == used - 1){
+			table[pos*2] = null;
+			used--;
+		}else{
+			table[pos*2] = REMOVED;
+		}
+		table[pos*2+1] = null;
+		return old;
+	}
+	
+	/**
+	 * Moves the entries (without holes) to a new table and rebuilds the index.
+	 * @param capacity Number of entries of the new table.
+	 */
+	private void resize(int capacity){
+		Object[] newTable = capacity == 0 ? EMPTY_TABLE : new Object[capacity * 2];
+		int count = 0;
+		for(int i=0; i < used; i++){
+			if(table[i*2] == REMOVED) continue;
+			newTable[count*2] = table[i*2];
+			newTable[count*2+1] = table[i*2+1];
+			count++;
+		}
+		table = newTable;
+		used = count;
+		index = null;
+		deleted = 0;
+		if(used > LINEAR_SEARCH_SIZE) rebuildIndex();
+	}
+	
+	private void rebuildIndex(){
+		// At least twice as many slots as table positions
+		index = new int[Integer.highestOneBit(table.length - 1) << 1];
+		deleted = 0;
+		for(int i=0; i < used; i++){
+			if(table[i*2] == REMOVED) continue;
+			addToIndex(table[i*2], i);
+		}
+	}
+	
+	private void addToIndex(Object key, int pos){
+		int mask = index.length - 1;
+		int slot = hash(key) & mask;
+		while(index[slot] > 0){
+			slot = (slot + 1) & mask;
+		}
+		if(index[slot] == DELETED_SLOT) deleted--;
+		index[slot] = pos + 1;
+	}
+	
+	/**
+	 * Iterates over the positions of the table that hold an entry.
+	 */
+	private abstract class PositionIterator<T> implements Iterator<T> {
+		private int next = skipRemoved(0);
+		private int last = -1;
+		
+		private int skipRemoved(int pos){
+			while(pos < used && table[pos*2] == REMOVED) pos++;
+			return pos;
+		}
+		
+		public boolean hasNext(){
+			return next < used;
+		}
+		
+		protected int nextPosition(){
+			if(next >= used) throw new NoSuchElementException();
+			last = next;
+			next = skipRemoved(next + 1);
+			return last;
+		}
+		
+		public void remove(){
+			if(last < 0) throw new IllegalStateException();
+			removePosition(last);
+			last = -1;
+		}
+	}
+	
+	private class Entry implements Map.Entry<K,V> {
+		private int pos;
+		
+		private Entry(int pos){
+			this.pos = pos;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public K getKey(){
+			return (K) table[pos*2];
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V getValue(){
+			return (V) table[pos*2+1];
+		}
+		
+		public V setValue(V value){
+			V old = getValue();
+			table[pos*2+1] = value;
+			return old;
+		}
+		
+		@Override
+		public boolean equals(Object o){
+			if(!(o instanceof Map.Entry)) return false;
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+		
+		@Override
+		public int hashCode(){
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+		
+		@Override
+		public String toString(){
+			return getKey() + "=" + getValue();
+		}
+	}
+	
+	@Override
+	public Set<Map.Entry<K,V>> entrySet() {
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new PositionIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() {
+						return new Entry(nextPosition());
+					}
+				};
+			}
+			
+			public int size() {
+				return size;
+			}
+			
+			public void clear() {
+				CompactMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new PositionIterator<K>() {
+					@SuppressWarnings("unchecked")
+					public K next() {
+						return (K) table[nextPosition()*2];
+					}
+				};
+			}
+			
+			public int size() {
+				return size;
+			}
+			
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+			
+			public boolean remove(Object o) {
+				int pos = getPosition(o);
+				if(pos < 0) return false;
+				removePosition(pos);
+				return true;
+			}
+			
+			public void clear() {
+				CompactMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new PositionIterator<V>() {
+					@SuppressWarnings("unchecked")
+					public V next() {
+						return (V) table[nextPosition()*2+1];
+					}
+				};
+			}
+			
+			public int size() {
+				return size;
+			}
+			
+			public void clear() {
+				CompactMap.this.clear();
+			}
+		};
+	}
+}
@@ -28,6 +28,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -35,6 +36,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -46,7 +48,13 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.lang.reflect.Field;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.CodeSource;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -1131,17 +1139,7 @@ public class FileTools {
 		InputStream i = null;
 		try {
 			zip = new ZipFile(zipOrDcpFileName);
-			Enumeration<? extends ZipEntry> entries = zip.entries();
-			while(entries.hasMoreElements()){
-				ZipEntry entry = entries.nextElement();
-				if(entry.getName().endsWith(fileEndsWith)){
-					if(match != null){
-						throw new RuntimeException("ERROR: Found 2 or more matching files in zip/dcp file: " +
-								zipOrDcpFileName + " with ending: '" + fileEndsWith + "'");
-					}
-					match = entry;
-				}
-			}
+			match = getMatchingZipEntry(zip, zipOrDcpFileName, fileEndsWith);
 			if(match == null) return null;
 			i = zip.getInputStream(match);
 		} catch (IOException e) {
@@ -1150,6 +1148,150 @@ public class FileTools {
 		return i;
 	}
 	
+	private static ZipEntry getMatchingZipEntry(ZipFile zip, String zipOrDcpFileName, String fileEndsWith){
+		ZipEntry match = null;
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while(entries.hasMoreElements()){
+			ZipEntry entry = entries.nextElement();
+			if(entry.getName().endsWith(fileEndsWith)){
+				if(match != null){
+					throw new RuntimeException("ERROR: Found 2 or more matching files in zip/dcp file: " +
+							zipOrDcpFileName + " with ending: '" + fileEndsWith + "'");
+				}
+				match = entry;
+			}
+		}
+		return match;
+	}
+	
+	/**
+	 * Gets an input stream to the single file in a zip/dcp file that ends with the provided 
+	 * string, set up for fast sequential reads of large files.  If the file is stored 
+	 * uncompressed in the archive, the stream reads directly from a memory mapped region of
+	 * the archive.  Otherwise, the file is decompressed on a separate thread ahead of the 
+	 * reader (see {@link PipelinedInputStream}).  The caller should close the stream once done.
+	 * @param zipOrDcpFileName Name of the zip or dcp file.
+	 * @param fileEndsWith The ending of the file name to look for.
+	 * @return The stream or null if no file matches.
+	 */
+	public static InputStream getPipelinedInputStreamFromZipOrDcpFile(String zipOrDcpFileName, String fileEndsWith){
+		ZipFile zip = null;
+		try {
+			zip = new ZipFile(zipOrDcpFileName);
+			ZipEntry match = getMatchingZipEntry(zip, zipOrDcpFileName, fileEndsWith);
+			if(match == null){
+				close(zip);
+				return null;
+			}
+			if(match.getMethod() == ZipEntry.STORED){
+				InputStream mapped = getMappedStoredZipEntry(zipOrDcpFileName, match);
+				if(mapped != null){
+					close(zip);
+					return mapped;
+				}
+			}
+			final ZipFile openZip = zip;
+			InputStream entry = new FilterInputStream(zip.getInputStream(match)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						openZip.close();
+					}
+				}
+			};
+			return new PipelinedInputStream(entry, "ZipReader-" + match.getName());
+		} catch (IOException e) {
+			close(zip);
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	private static final int ZIP_LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int ZIP_CENTRAL_DIR_SIGNATURE = 0x02014b50;
+	private static final int ZIP_END_OF_CENTRAL_DIR_SIGNATURE = 0x06054b50;
+	private static final int ZIP_LOCAL_HEADER_SIZE = 30;
+	private static final int ZIP_CENTRAL_DIR_HEADER_SIZE = 46;
+	private static final int ZIP_END_OF_CENTRAL_DIR_SIZE = 22;
+	
+	/**
+	 * Memory maps the data of an uncompressed (stored) zip entry.
+	 * @param zipFileName Name of the zip file.
+	 * @param entry The stored entry.
+	 * @return A stream over the mapped entry data or null if the entry could not be mapped.
+	 */
+	private static InputStream getMappedStoredZipEntry(String zipFileName, ZipEntry entry) throws IOException {
+		long size = entry.getSize();
+		if(size < 0 || size > Integer.MAX_VALUE) return null;
+		try (FileChannel channel = FileChannel.open(Paths.get(zipFileName), StandardOpenOption.READ)) {
+			long offset = getZipEntryDataOffset(channel, entry.getName());
+			if(offset < 0 || offset + size > channel.size()) return null;
+			return new ByteBufferInputStream(channel.map(MapMode.READ_ONLY, offset, size));
+		}
+	}
+	
+	/**
+	 * Finds where the data of a zip entry starts in the zip file by looking up the entry's 
+	 * local header in the central directory.
+	 * @param channel The open zip file.
+	 * @param entryName Name of the entry.
+	 * @return The offset of the entry's data in the file or -1 if it could not be found 
+	 * (including archives that need zip64 extensions).
+	 */
+	private static long getZipEntryDataOffset(FileChannel channel, String entryName) throws IOException {
+		long fileSize = channel.size();
+		int tailSize = (int) Math.min(fileSize, ZIP_END_OF_CENTRAL_DIR_SIZE + 0xffff);
+		ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, tail, fileSize - tailSize);
+		int end = -1;
+		for(int i=tailSize-ZIP_END_OF_CENTRAL_DIR_SIZE; i >= 0; i--){
+			if(tail.getInt(i) == ZIP_END_OF_CENTRAL_DIR_SIGNATURE){
+				end = i;
+				break;
+			}
+		}
+		if(end < 0) return -1;
+		long dirSize = tail.getInt(end + 12) & 0xffffffffL;
+		long dirOffset = tail.getInt(end + 16) & 0xffffffffL;
+		if(dirOffset == 0xffffffffL || dirOffset + dirSize > fileSize) return -1;
+		ByteBuffer dir = ByteBuffer.allocate((int) dirSize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, dir, dirOffset);
+		byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+		int pos = 0;
+		while(pos + ZIP_CENTRAL_DIR_HEADER_SIZE <= dirSize && dir.getInt(pos) == ZIP_CENTRAL_DIR_SIGNATURE){
+			int nameLength = dir.getShort(pos + 28) & 0xffff;
+			int extraLength = dir.getShort(pos + 30) & 0xffff;
+			int commentLength = dir.getShort(pos + 32) & 0xffff;
+			if(nameLength == name.length && pos + ZIP_CENTRAL_DIR_HEADER_SIZE + nameLength <= dirSize){
+				boolean matches = true;
+				for(int i=0; i < nameLength && matches; i++){
+					matches = dir.get(pos + ZIP_CENTRAL_DIR_HEADER_SIZE + i) == name[i];
+				}
+				if(matches){
+					long localOffset = dir.getInt(pos + 42) & 0xffffffffL;
+					if(localOffset == 0xffffffffL) return -1;
+					ByteBuffer local = ByteBuffer.allocate(ZIP_LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+					readFully(channel, local, localOffset);
+					if(local.getInt(0) != ZIP_LOCAL_HEADER_SIGNATURE) return -1;
+					return localOffset + ZIP_LOCAL_HEADER_SIZE + (local.getShort(26) & 0xffff) 
+							+ (local.getShort(28) & 0xffff);
+				}
+			}
+			pos += ZIP_CENTRAL_DIR_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return -1;
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()){
+			if(channel.read(buffer, position + buffer.position()) < 0){
+				throw new EOFException();
+			}
+		}
+	}
+	
 	public static void close(InputStream is) {
 	    try {
 	        if(is != null) is.close();
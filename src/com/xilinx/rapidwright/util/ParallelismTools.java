@@ -0,0 +1,164 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small set of helpers for running independent tasks on a pool of worker
+ * threads.  Tasks are always returned in the order they were submitted so that 
+ * callers can merge results deterministically.
+ * 
+ * Created on: Jan 20, 2021
+ */
+public class ParallelismTools {
+
+	/** Default number of worker threads to use when a caller does not specify one */
+	public static int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+	
+	private static AtomicInteger poolCount = new AtomicInteger(0);
+	
+	/** Pool shared by short, frequent parallel sections (see {@link #getSharedPool()}) */
+	private static ExecutorService sharedPool;
+	
+	/**
+	 * Creates a fixed size pool of daemon worker threads.  The caller is 
+	 * responsible for calling {@link ExecutorService#shutdown()} once finished.
+	 * @param numThreads Number of worker threads in the pool.
+	 * @param name Prefix used to name the worker threads (useful when debugging).
+	 * @return The new executor.
+	 */
+	public static ExecutorService createPool(int numThreads, String name){
+		final int poolID = poolCount.getAndIncrement();
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		ThreadFactory factory = new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + "-" + poolID + "-" + threadCount.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+		return Executors.newFixedThreadPool(Math.max(1, numThreads), factory);
+	}
+	
+	/**
+	 * Gets a pool of {@link #DEFAULT_THREADS} daemon worker threads shared by all callers.  
+	 * It is created the first time it is requested and is never shut down, which avoids 
+	 * creating threads for parallel sections that run many times (such as once per net).  
+	 * Callers should limit the number of tasks they submit to the parallelism they need, 
+	 * and tasks must not wait on other tasks submitted to this pool.
+	 * @return The shared executor.
+	 */
+	public static synchronized ExecutorService getSharedPool(){
+		if(sharedPool == null){
+			sharedPool = createPool(DEFAULT_THREADS, "RapidWrightShared");
+		}
+		return sharedPool;
+	}
+	
+	/**
+	 * Runs all of the provided tasks on a temporary pool of worker threads and
+	 * waits for all of them to complete.  
+	 * @param tasks The tasks to run.
+	 * @param numThreads Maximum number of tasks to run concurrently.  If 1 (or 
+	 * fewer), the tasks are run in order on the calling thread.
+	 * @return The results of each task, in the same order as the tasks were provided.
+	 */
+	public static <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks, int numThreads){
+		List<T> results = new ArrayList<>(tasks.size());
+		if(numThreads <= 1 || tasks.size() <= 1){
+			for(Callable<T> task : tasks){
+				try {
+					results.add(task.call());
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return results;
+		}
+		ExecutorService pool = createPool(Math.min(numThreads, tasks.size()), "RapidWright");
+		try {
+			return invokeAll(pool, tasks);
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Runs all of the provided tasks on an existing pool of worker threads and
+	 * waits for all of them to complete.  
+	 * @param pool The executor to run the tasks on.
+	 * @param tasks The tasks to run.
+	 * @return The results of each task, in the same order as the tasks were provided.
+	 */
+	public static <T> List<T> invokeAll(ExecutorService pool, Collection<? extends Callable<T>> tasks){
+		List<Future<T>> futures = new ArrayList<>(tasks.size());
+		for(Callable<T> task : tasks){
+			futures.add(pool.submit(task));
+		}
+		return joinAll(futures);
+	}
+	
+	/**
+	 * Waits for each future to complete and collects its result.  Any exception 
+	 * thrown by a task is re-thrown as a RuntimeException on the calling thread.
+	 * @param futures The list of futures to wait on.
+	 * @return The results of each future, in order.
+	 */
+	public static <T> List<T> joinAll(List<Future<T>> futures){
+		List<T> results = new ArrayList<>(futures.size());
+		for(Future<T> f : futures){
+			results.add(join(f));
+		}
+		return results;
+	}
+	
+	/**
+	 * Waits for the future to complete and returns its result.  Any exception 
+	 * thrown by the task is re-thrown as a RuntimeException on the calling thread.
+	 * @param future The future to wait on.
+	 * @return The result of the future.
+	 */
+	public static <T> T join(Future<T> future){
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if(cause instanceof Error) throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * 
+ * Copyright (c) 2021 Xilinx, Inc. 
+ * All rights reserved.
+ *
+ * This file is part of RapidWright. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.xilinx.rapidwright.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An input stream that reads (and decompresses) its source on a separate thread.  The 
+ * reader thread fills a ring of large buffers ahead of the consumer so that reading 
+ * the source (for example, inflating a zip entry) overlaps with the work done by the 
+ * thread consuming the stream (for example, parsing).  The reader thread closes the 
+ * source once it reaches the end of it.
+ * 
+ * Created on: Mar 13, 2021
+ */
+public class PipelinedInputStream extends InputStream {
+
+	/** Default size (in bytes) of each buffer in the ring */
+	public static int BUFFER_SIZE = 4 * 1024 * 1024;
+	
+	/** Default number of buffers in the ring */
+	public static int BUFFER_COUNT = 4;
+	
+	/** A buffer of the ring and the number of valid bytes it holds */
+	private static class Block {
+		private byte[] data;
+		private int length;
+		
+		private Block(byte[] data){
+			this.data = data;
+		}
+	}
+	
+	/** Marks the end of the source (or the point where reading it failed) */
+	private static final Block END = new Block(new byte[0]);
+	
+	private InputStream source;
+	
+	private BlockingQueue<Block> free;
+	
+	private BlockingQueue<Block> filled;
+	
+	private Thread reader;
+	
+	private Block current;
+	
+	private int currentPos;
+	
+	private byte[] single = new byte[1];
+	
+	/** Failure of the reader thread, rethrown to the consumer instead of the end of stream */
+	private volatile Throwable error;
+	
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a pipelined stream with the default buffer size and count.
+	 * @param source The stream to read on a separate thread.
+	 * @param name Name of the reader thread (useful when debugging).
+	 */
+	public PipelinedInputStream(InputStream source, String name){
+		this(source, name, BUFFER_SIZE, BUFFER_COUNT);
+	}
+	
+	/**
+	 * Creates a pipelined stream and starts reading the source.
+	 * @param source The stream to read on a separate thread.
+	 * @param name Name of the reader thread (useful when debugging).
+	 * @param bufferSize Size (in bytes) of each buffer in the ring.
+	 * @param bufferCount Number of buffers in the ring (at least 2).
+	 */
+	public PipelinedInputStream(InputStream source, String name, int bufferSize, int bufferCount){
+		this.source = source;
+		bufferCount = Math.max(2, bufferCount);
+		free = new ArrayBlockingQueue<>(bufferCount);
+		// Room for every buffer and the end marker, so the reader never blocks when finishing
+		filled = new ArrayBlockingQueue<>(bufferCount + 1);
+		for(int i=0; i < bufferCount; i++){
+			free.add(new Block(new byte[bufferSize]));
+		}
+		reader = new Thread(new Runnable() {
+			public void run() {
+				readSource();
+			}
+		}, name);
+		reader.setDaemon(true);
+		reader.start();
+	}
+	
+	/**
+	 * Reader thread loop: fills free buffers from the source and hands them to the consumer.
+	 */
+	private void readSource(){
+		try {
+			boolean endOfSource = false;
+			while(!endOfSource && !closed){
+				Block block = free.take();
+				int length = 0;
+				while(length < block.data.length){
+					int count = source.read(block.data, length, block.data.length - length);
+					if(count < 0){
+						endOfSource = true;
+						break;
+					}
+					length += count;
+				}
+				block.length = length;
+				if(length > 0) filled.put(block);
+			}
+		} catch (InterruptedException e) {
+			// Stream was closed
+		} catch (Throwable t) {
+			// Anything else must reach the consumer, or it would see a truncated stream as a clean end
+			error = t;
+		} finally {
+			try {
+				source.close();
+			} catch (Throwable t) {
+				if(error == null) error = t;
+			}
+			filled.offer(END);
+		}
+	}
+	
+	/**
+	 * Gets the next buffer with unread bytes, returning the current one to the reader.
+	 * @return True if there are bytes to read, false at the end of the stream.
+	 */
+	private boolean nextBlock() throws IOException {
+		if(current == END){
+			checkError();
+			return false;
+		}
+		if(current != null) free.offer(current);
+		try {
+			current = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		currentPos = 0;
+		if(current == END){
+			checkError();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Rethrows the failure of the reader thread, if any, on the consumer thread.
+	 */
+	private void checkError() throws IOException {
+		Throwable t = error;
+		if(t == null) return;
+		if(t instanceof IOException) throw (IOException) t;
+		throw new IOException("ERROR: Failed while reading the source stream", t);
+	}
+	
+	@Override
+	public int read() throws IOException {
+		int count = read(single, 0, 1);
+		return count < 0 ? -1 : single[0] & 0xff;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(closed) throw new IOException("Stream closed");
+		if(len == 0) return 0;
+		if((current == null || currentPos >= current.length) && !nextBlock()){
+			return -1;
+		}
+		int count = Math.min(len, current.length - currentPos);
+		System.arraycopy(current.data, currentPos, b, off, count);
+		currentPos += count;
+		return count;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		return current == null || current == END ? 0 : current.length - currentPos;
+	}
+	
+	/**
+	 * Stops the reader thread (if still running), which closes the source.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) return;
+		closed = true;
+		reader.interrupt();
+	}
+}